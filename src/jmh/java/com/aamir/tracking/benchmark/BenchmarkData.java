@@ -0,0 +1,143 @@
+package com.aamir.tracking.benchmark;
+
+import com.aamir.tracking.TrackingGenApplication;
+import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.service.impl.InMemorySequenceBlockAllocator;
+import com.aamir.tracking.service.impl.TrackingNumberMetrics;
+import com.aamir.tracking.service.impl.TrackingNumberServiceImpl;
+import com.aamir.tracking.util.Country;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Shared fixtures for the benchmarks: service instances, application contexts and synthetic rows.
+ */
+final class BenchmarkData {
+
+    static final int CUSTOMERS = 10_000;
+    static final int DAYS = 365;
+    static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.DAYS);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * A service outside Spring with an in-memory sequence over the widest range, for pure generation benchmarks.
+     */
+    static TrackingNumberServiceImpl sequenceOnlyService() {
+        return generationService("sequence");
+    }
+
+    /**
+     * A service outside Spring issuing snowflake IDs with the default bit layout.
+     */
+    static TrackingNumberServiceImpl snowflakeService() {
+        return generationService("snowflake");
+    }
+
+    private static TrackingNumberServiceImpl generationService(String mode) {
+        TrackingNumberServiceImpl service =
+                new TrackingNumberServiceImpl(null, new InMemorySequenceBlockAllocator(), null,
+                        new TrackingNumberMetrics(new SimpleMeterRegistry()), null, null, null, null, null);
+        ReflectionTestUtils.setField(service, "pattern", "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789");
+        ReflectionTestUtils.setField(service, "idLength", 16);
+        ReflectionTestUtils.setField(service, "instanceId", "XYZ3");
+        ReflectionTestUtils.setField(service, "startRange", 0);
+        ReflectionTestUtils.setField(service, "endRange", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(service, "padding", 6);
+        ReflectionTestUtils.setField(service, "blockSize", 1000);
+        ReflectionTestUtils.setField(service, "lowWaterMark", 200);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 1000);
+        ReflectionTestUtils.setField(service, "mode", mode);
+        ReflectionTestUtils.setField(service, "snowflakeEpoch", "2025-01-01T00:00:00Z");
+        ReflectionTestUtils.setField(service, "snowflakeTimestampBits", 40);
+        ReflectionTestUtils.setField(service, "snowflakeInstanceBits", 10);
+        ReflectionTestUtils.setField(service, "snowflakeSequenceBits", 12);
+        ReflectionTestUtils.setField(service, "snowflakeInstance", 3L);
+        service.init();
+        return service;
+    }
+
+    /**
+     * Boots the application without the web layer against a private in-memory H2 database.
+     *
+     * @param properties Further {@code --name=value} arguments, e.g. to switch a feature on
+     */
+    static ConfigurableApplicationContext startApplication(String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--tracking.id.start.range=0",
+                "--tracking.id.end.range=" + Integer.MAX_VALUE,
+                "--tracking.id.block.size=10000",
+                "--tracking.id.block.low.water.mark=2000"));
+        args.addAll(List.of(properties));
+        return new SpringApplicationBuilder(TrackingGenApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Inserts {@code count} synthetic rows spread over every lane, {@link #CUSTOMERS} customers and {@link #DAYS} days.
+     */
+    static void load(ConfigurableApplicationContext context, int count) {
+        TrackingNumberStore store = context.getBean(TrackingNumberStore.class);
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        Random random = new Random(42);
+        int chunk = 10_000;
+        for (int from = 0; from < count; from += chunk) {
+            List<TrackingNumber> rows = new ArrayList<>(chunk);
+            for (int i = from; i < Math.min(from + chunk, count); i++) {
+                rows.add(row(i, random));
+            }
+            transactionTemplate.executeWithoutResult(status -> store.persistAll(rows));
+        }
+    }
+
+    static TrackingNumber row(int index, Random random) {
+        Country[] countries = Country.values();
+        int customer = random.nextInt(CUSTOMERS);
+        Timestamp createdAt = Timestamp.from(NOW.minus(random.nextInt(DAYS), ChronoUnit.DAYS)
+                .plusMillis(random.nextInt(86_400_000)));
+        return TrackingNumber.builder()
+                .withTrackingId(String.format("BM%014d", index))
+                .withOriginCountryId(countries[random.nextInt(countries.length)])
+                .withDestinationCountryId(countries[random.nextInt(countries.length)])
+                .withWeight(100 * (1 + random.nextInt(50)))
+                .withCreatedAt(createdAt)
+                .withCustomerId(customerId(customer))
+                .withCustomerName("Customer " + customer)
+                .withCustomerSlug("customer-" + customer)
+                .build();
+    }
+
+    static UUID customerId(int customer) {
+        return new UUID(0x5eed_0000_0000_0000L, customer);
+    }
+
+    static TrackingNumberRequest request(Random random) {
+        Country[] countries = Country.values();
+        int customer = random.nextInt(CUSTOMERS);
+        return new TrackingNumberRequest(
+                countries[random.nextInt(countries.length)].name(),
+                countries[random.nextInt(countries.length)].name(),
+                Integer.toString(1 + random.nextInt(50)),
+                customerId(customer).toString(),
+                "Customer " + customer);
+    }
+}
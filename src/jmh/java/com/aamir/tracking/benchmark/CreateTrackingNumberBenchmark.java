@@ -0,0 +1,86 @@
+package com.aamir.tracking.benchmark;
+
+import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberBulkResult;
+import com.aamir.tracking.service.TrackingNumberService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end create against H2. Both benchmarks report rows per second: {@code single} goes through
+ * {@code createNextTrackingNumber} and {@code save}, {@code bulk} inserts a manifest through the JDBC batch path.
+ * {@code store} switches the tracking numbers to the segment log in a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CreateTrackingNumberBenchmark {
+
+    private static final int MANIFEST_SIZE = 1000;
+
+    @Param({"jpa", "log"})
+    public String store;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private TrackingNumberService service;
+    private List<TrackingNumberRequest> requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tracking-store");
+        context = BenchmarkData.startApplication("--tracking.store.type=" + store,
+                "--tracking.store.log.dir=" + directory);
+        service = context.getBean(TrackingNumberService.class);
+        Random random = new Random(7);
+        requests = new ArrayList<>(MANIFEST_SIZE);
+        for (int i = 0; i < MANIFEST_SIZE; i++) {
+            requests.add(BenchmarkData.request(random));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public TrackingNumber single() {
+        next = (next + 1) % MANIFEST_SIZE;
+        return service.createNextTrackingNumber(requests.get(next));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MANIFEST_SIZE)
+    public TrackingNumberBulkResult bulk() {
+        return service.createTrackingNumbers(requests);
+    }
+}
@@ -0,0 +1,101 @@
+package com.aamir.tracking.benchmark;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.service.TrackingNumberService;
+import com.aamir.tracking.service.impl.TrackingNumberIndex;
+import com.aamir.tracking.util.Country;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code filterTrackingNumbers} latency for every filter on its own plus the common lane and day combination,
+ * over 100k and 1M rows, from the database and from the in-memory index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class FilterBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"origin", "origin_destination", "weight", "created_at", "customer_id", "customer_name", "customer_slug",
+            "origin_destination_created_at"})
+    public String filter;
+
+    @Param({"false", "true"})
+    public boolean index;
+
+    private ConfigurableApplicationContext context;
+    private TrackingNumberService service;
+
+    private Country origin;
+    private Country destination;
+    private String weight;
+    private String createdAt;
+    private String customerId;
+    private String customerName;
+    private String customerSlug;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.startApplication("--tracking.index.enabled=" + index);
+        service = context.getBean(TrackingNumberService.class);
+        BenchmarkData.load(context, rows);
+        if (index) {
+            // the rows are inserted behind the service's back, read them in again
+            context.getBean(TrackingNumberIndex.class).rebuild();
+        }
+
+        String day = LocalDate.ofInstant(BenchmarkData.NOW, ZoneId.systemDefault()).minusDays(30).toString();
+        switch (filter) {
+            case "origin" -> origin = Country.MY;
+            case "origin_destination" -> {
+                origin = Country.MY;
+                destination = Country.SG;
+            }
+            case "weight" -> weight = "1.5";
+            case "created_at" -> createdAt = day;
+            case "customer_id" -> customerId = BenchmarkData.customerId(4242).toString();
+            case "customer_name" -> customerName = "mer 424";
+            case "customer_slug" -> customerSlug = "customer-4242";
+            case "origin_destination_created_at" -> {
+                origin = Country.MY;
+                destination = Country.SG;
+                createdAt = day;
+            }
+            default -> throw new IllegalArgumentException("Unknown filter " + filter);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TrackingNumber> filter() {
+        return service.filterTrackingNumbers(origin, destination, weight, createdAt, customerId, customerName,
+                customerSlug);
+    }
+}
@@ -0,0 +1,79 @@
+package com.aamir.tracking.benchmark;
+
+import com.aamir.tracking.controller.TrackingNumberJsonWriter;
+import com.aamir.tracking.controller.dto.response.TrackingNumberResponse;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.service.impl.TrackingNumberCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning an entity into a response: the {@code from} mapping alone, the mapping plus Jackson
+ * serialization, and the JSON writer of the list endpoints rendering a row and serving it from its cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TrackingNumber[] rows = new TrackingNumber[ROWS];
+    private TrackingNumberJsonWriter jsonWriter;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(TrackingNumberCache.RESPONSE_JSON, Caffeine.newBuilder().build());
+        jsonWriter = new TrackingNumberJsonWriter(cacheManager);
+        Random random = new Random(3);
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = BenchmarkData.row(i, random);
+        }
+    }
+
+    @Benchmark
+    public TrackingNumberResponse from() {
+        return TrackingNumberResponse.from(nextRow());
+    }
+
+    @Benchmark
+    public byte[] fromAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(TrackingNumberResponse.from(nextRow()));
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return jsonWriter.encode(nextRow());
+    }
+
+    @Benchmark
+    public byte[] cachedJson() {
+        return jsonWriter.toJson(nextRow());
+    }
+
+    private TrackingNumber nextRow() {
+        next = (next + 1) & (ROWS - 1);
+        return rows[next];
+    }
+}
@@ -0,0 +1,139 @@
+package com.aamir.tracking.benchmark;
+
+import com.aamir.tracking.service.impl.InMemorySequenceBlockAllocator;
+import com.aamir.tracking.service.impl.LaneSequencer;
+import com.aamir.tracking.service.impl.TrackingNumberServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracking ID generation throughput at 1/4/16/64 threads. The {@code sharedLane} benchmarks all draw from the
+ * default lane like {@code /next-tracking-number}; the {@code ownLane} benchmarks give every thread its own
+ * origin/destination lane, which is the uncontended case the padded lane slots are built for. The
+ * {@code snowflake} benchmarks issue time-ordered IDs, whose per-millisecond sequence caps a node at
+ * {@code 2^sequence.bits} IDs per millisecond.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SequenceGenerationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        TrackingNumberServiceImpl service;
+        TrackingNumberServiceImpl snowflakeService;
+        LaneSequencer sequencer;
+        final AtomicInteger nextLane = new AtomicInteger();
+
+        // a fresh sequence per iteration keeps long runs inside the configured range
+        @Setup(Level.Iteration)
+        public void setUp() {
+            service = BenchmarkData.sequenceOnlyService();
+            snowflakeService = BenchmarkData.snowflakeService();
+            sequencer = new LaneSequencer("benchmark", new InMemorySequenceBlockAllocator(), 0, Long.MAX_VALUE,
+                    10_000, 2_000);
+            nextLane.set(0);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            service.shutdown();
+            snowflakeService.shutdown();
+            sequencer.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lane {
+
+        int lane;
+
+        @Setup(Level.Iteration)
+        public void setUp(Shared shared) {
+            lane = shared.nextLane.getAndIncrement() % LaneSequencer.DEFAULT_LANE;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String sharedLane01(Shared shared) {
+        return shared.service.getNextTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sharedLane04(Shared shared) {
+        return shared.service.getNextTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String sharedLane16(Shared shared) {
+        return shared.service.getNextTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String sharedLane64(Shared shared) {
+        return shared.service.getNextTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long ownLane01(Shared shared, Lane lane) {
+        return shared.sequencer.next(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long ownLane04(Shared shared, Lane lane) {
+        return shared.sequencer.next(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long ownLane16(Shared shared, Lane lane) {
+        return shared.sequencer.next(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long ownLane64(Shared shared, Lane lane) {
+        return shared.sequencer.next(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String snowflake01(Shared shared) {
+        return shared.snowflakeService.getNextTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String snowflake04(Shared shared) {
+        return shared.snowflakeService.getNextTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String snowflake16(Shared shared) {
+        return shared.snowflakeService.getNextTrackingNumber();
+    }
+}
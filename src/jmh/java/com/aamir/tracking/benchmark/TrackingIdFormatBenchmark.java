@@ -0,0 +1,66 @@
+package com.aamir.tracking.benchmark;
+
+import com.aamir.tracking.util.TrackingIdFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrackingIdFormatter} against the StringBuilder based formatting it replaced. Run with the GC profiler
+ * to compare the bytes allocated per ID.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingIdFormatBenchmark {
+
+    private static final String INSTANCE_ID = "XYZ3";
+    private static final int PADDING = 6;
+
+    private final TrackingIdFormatter formatter = new TrackingIdFormatter(new String[]{"MYSG"}, INSTANCE_ID,
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789", 16, PADDING);
+    private long sequence;
+
+    @Benchmark
+    public String formatter() {
+        return formatter.format(0, nextSequence());
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyFormat("MY", "SG", nextSequence());
+    }
+
+    private long nextSequence() {
+        sequence = (sequence + 1) % 1_000_000;
+        return sequence;
+    }
+
+    // the concatenation and padding implementation of generateSequentialId that TrackingIdFormatter replaced,
+    // including the prefix concatenation done by the caller
+    private static String legacyFormat(String origin, String destination, long sequence) {
+        String prefix = origin + destination;
+        if (prefix.length() > 6) {
+            prefix = prefix.substring(0, 6);
+        }
+        StringBuilder idBuilder = new StringBuilder(prefix.length() + INSTANCE_ID.length() + PADDING);
+        idBuilder.append(prefix);
+        idBuilder.append(INSTANCE_ID);
+        String numberStr = Long.toString(sequence);
+        int zerosToPad = PADDING - numberStr.length();
+        idBuilder.append("0".repeat(Math.max(0, zerosToPad)));
+        idBuilder.append(numberStr);
+        return idBuilder.toString();
+    }
+}
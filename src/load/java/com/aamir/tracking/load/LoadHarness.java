@@ -0,0 +1,210 @@
+package com.aamir.tracking.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load against a running instance: requests are sent on a schedule of {@code rate} arrivals per
+ * second, Poisson by default, whether or not earlier ones were answered, so a slow server sees the queue a real
+ * client population would build up instead of a client that politely waits. Run through the {@code load} profile:
+ * <pre>
+ *   ./mvnw -Pload verify -DskipTests -Dload.args="--rate=500 --duration=2m"
+ * </pre>
+ * Options, given as {@code --name=value}:
+ * <ul>
+ *     <li>{@code url}: the instance, {@code http://localhost:8080}</li>
+ *     <li>{@code rate}: arrivals per second, {@code 200}</li>
+ *     <li>{@code arrivals}: {@code poisson} or {@code uniform} spacing of the arrivals</li>
+ *     <li>{@code duration}, {@code warmup}: measured time and the time before it whose responses are dropped,
+ *     {@code 60s} and {@code 10s}</li>
+ *     <li>{@code mix}: relative shares of the operations, {@code create=40,next=40,filter=15,get_all=5}</li>
+ *     <li>{@code customers}, {@code customer.skew}, {@code lane.skew}: the customer population and the Zipf
+ *     exponents of customers and origin/destination countries, {@code 1000}, {@code 1.1} and {@code 1.0}</li>
+ *     <li>{@code max.in.flight}: outstanding requests beyond which arrivals are skipped and counted,
+ *     {@code 5000}</li>
+ *     <li>{@code timeout}: per request, {@code 30s}</li>
+ *     <li>{@code seed}: of customers and draws, {@code 42}</li>
+ *     <li>{@code report}: the JSON report, {@code target/load-report.json}</li>
+ * </ul>
+ */
+public final class LoadHarness {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("url", "http://localhost:8080"),
+            Map.entry("rate", "200"),
+            Map.entry("arrivals", "poisson"),
+            Map.entry("duration", "60s"),
+            Map.entry("warmup", "10s"),
+            Map.entry("mix", "create=40,next=40,filter=15,get_all=5"),
+            Map.entry("customers", "1000"),
+            Map.entry("customer.skew", "1.1"),
+            Map.entry("lane.skew", "1.0"),
+            Map.entry("max.in.flight", "5000"),
+            Map.entry("timeout", "30s"),
+            Map.entry("seed", "42"),
+            Map.entry("report", "target/load-report.json"));
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        URI baseUri = URI.create(options.get("url"));
+        double rate = Double.parseDouble(options.get("rate"));
+        boolean poisson = "poisson".equals(options.get("arrivals"));
+        Duration duration = DurationStyle.detectAndParse(options.get("duration"));
+        Duration warmup = DurationStyle.detectAndParse(options.get("warmup"));
+        Duration timeout = DurationStyle.detectAndParse(options.get("timeout"));
+        int maxInFlight = Integer.parseInt(options.get("max.in.flight"));
+        long seed = Long.parseLong(options.get("seed"));
+        if (rate <= 0 || duration.isZero() || duration.isNegative() || warmup.isNegative() || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Rate, duration and max.in.flight must be positive");
+        }
+        Workload workload = new Workload(baseUri, timeout, mix(options.get("mix")),
+                Integer.parseInt(options.get("customers")), Double.parseDouble(options.get("lane.skew")),
+                Double.parseDouble(options.get("customer.skew")), seed);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        awaitInstance(client, baseUri, timeout);
+
+        LoadReport report = new LoadReport();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Random random = new Random(seed);
+        String startedAt = Instant.now().toString();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        double offset = 0;
+        System.out.printf(Locale.ROOT, "Sending %.0f requests per second to %s for %s after %s of warmup%n",
+                rate, baseUri, duration, warmup);
+
+        while (true) {
+            // the schedule does not move when the server is slow, late sends keep their intended time
+            offset += poisson ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+            long intended = start + (long) offset;
+            if (intended >= end) {
+                break;
+            }
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Workload.Operation operation = workload.nextOperation(random);
+            HttpRequest request = workload.request(operation, random);
+            boolean measured = intended >= measureFrom;
+            if (!inFlight.tryAcquire()) {
+                if (measured) {
+                    report.recordSkipped(operation);
+                }
+                continue;
+            }
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long now = System.nanoTime();
+                inFlight.release();
+                if (!measured) {
+                    return;
+                }
+                if (failure != null) {
+                    report.recordFailure(operation, intended, now);
+                } else {
+                    report.recordResponse(operation, response.statusCode(), intended, sent, now);
+                }
+            });
+        }
+
+        // requests still outstanding at the end are waited for, they belong to the measured load
+        if (!inFlight.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            System.out.printf("%d requests still outstanding after %s%n",
+                    maxInFlight - inFlight.availablePermits(), timeout);
+        }
+
+        Map<String, Object> config = new LinkedHashMap<>(options);
+        config.put("startedAt", startedAt);
+        Map<String, Object> summary = report.summary(config, duration.toNanos() / 1e9);
+        Path reportFile = Path.of(options.get("report"));
+        LoadReport.write(summary, reportFile);
+        print(summary);
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new TreeMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !DEFAULTS.containsKey(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", expected one of --"
+                        + String.join("=, --", DEFAULTS.keySet()) + "=");
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static Map<Workload.Operation, Integer> mix(String mix) {
+        Map<Workload.Operation, Integer> shares = new EnumMap<>(Workload.Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] operationAndShare = entry.trim().split("=");
+            if (operationAndShare.length != 2) {
+                throw new IllegalArgumentException("Mix entries must look like <operation>=<share>: " + entry);
+            }
+            shares.put(Workload.Operation.valueOf(operationAndShare[0].toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(operationAndShare[1]));
+        }
+        if (shares.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Mix must give at least one operation a positive share");
+        }
+        return shares;
+    }
+
+    private static void awaitInstance(HttpClient client, URI baseUri, Duration timeout) throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(baseUri.resolve("/actuator/health")).timeout(timeout).build();
+        try {
+            client.send(health, HttpResponse.BodyHandlers.discarding());
+        } catch (ConnectException e) {
+            throw new IllegalStateException("No instance is listening on " + baseUri + ", start one first", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Instance on " + baseUri + " did not answer its health check", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> summary) {
+        Map<String, Object> operations = (Map<String, Object>) summary.get("operations");
+        operations.put("total", summary.get("total"));
+        System.out.printf("%-10s %9s %9s %9s %9s %11s %10s %10s %10s%n", "operation", "requests", "ok", "rejected",
+                "errors", "ok/s", "p50 ms", "p99 ms", "max ms");
+        operations.forEach((name, value) -> {
+            Map<String, Object> stats = (Map<String, Object>) value;
+            Map<String, Object> latency = (Map<String, Object>) stats.get("latencyMillis");
+            System.out.printf(Locale.ROOT, "%-10s %9d %9d %9d %9d %11.1f %10.1f %10.1f %10.1f%n", name,
+                    stats.get("requests"), stats.get("ok"), stats.get("rejected"),
+                    (long) stats.get("errors") + (long) stats.get("skipped"), stats.get("throughput"),
+                    latency.getOrDefault("p50", 0.0), latency.getOrDefault("p99", 0.0),
+                    latency.getOrDefault("max", 0.0));
+        });
+        operations.remove("total");
+    }
+}
@@ -0,0 +1,145 @@
+package com.aamir.tracking.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latencies of one run. Every response is recorded twice: from the moment the schedule meant to send
+ * the request, which includes the time it waited behind a slow server and so corrects for coordinated omission,
+ * and from the moment it was actually sent, which is what a closed-loop client would have reported.
+ */
+final class LoadReport {
+
+    // one hour in microseconds at three significant digits
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<Workload.Operation, Stats> operations = new EnumMap<>(Workload.Operation.class);
+
+    LoadReport() {
+        for (Workload.Operation operation : Workload.Operation.values()) {
+            operations.put(operation, new Stats());
+        }
+    }
+
+    void recordResponse(Workload.Operation operation, int status, long intendedNanos, long sentNanos, long nowNanos) {
+        Stats stats = operations.get(operation);
+        if (status >= 200 && status < 300) {
+            stats.ok.increment();
+        } else if (status == 429 || status == 503) {
+            stats.rejected.increment();
+        } else {
+            stats.errors.increment();
+        }
+        stats.corrected.recordValue(Math.min(HIGHEST_LATENCY_MICROS, (nowNanos - intendedNanos) / 1000));
+        stats.uncorrected.recordValue(Math.min(HIGHEST_LATENCY_MICROS, (nowNanos - sentNanos) / 1000));
+    }
+
+    void recordFailure(Workload.Operation operation, long intendedNanos, long nowNanos) {
+        Stats stats = operations.get(operation);
+        stats.errors.increment();
+        stats.corrected.recordValue(Math.min(HIGHEST_LATENCY_MICROS, (nowNanos - intendedNanos) / 1000));
+    }
+
+    /**
+     * Requests the schedule could not send because too many were still outstanding; they count against the
+     * achieved rate but have no latency.
+     */
+    void recordSkipped(Workload.Operation operation) {
+        operations.get(operation).skipped.increment();
+    }
+
+    Map<String, Object> summary(Map<String, Object> config, double measuredSeconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("measuredSeconds", measuredSeconds);
+        Stats total = new Stats();
+        Map<String, Object> perOperation = new LinkedHashMap<>();
+        for (Map.Entry<Workload.Operation, Stats> entry : operations.entrySet()) {
+            Stats stats = entry.getValue();
+            total.add(stats);
+            perOperation.put(entry.getKey().name().toLowerCase(Locale.ROOT), stats.summary(measuredSeconds));
+        }
+        report.put("total", total.summary(measuredSeconds));
+        report.put("operations", perOperation);
+        return report;
+    }
+
+    static void write(Map<String, Object> report, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    private static final class Stats {
+
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final Histogram corrected = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        private final Histogram uncorrected = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+        private void add(Stats other) {
+            ok.add(other.ok.sum());
+            rejected.add(other.rejected.sum());
+            errors.add(other.errors.sum());
+            skipped.add(other.skipped.sum());
+            corrected.add(other.corrected);
+            uncorrected.add(other.uncorrected);
+        }
+
+        private Map<String, Object> summary(double seconds) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            long answered = ok.sum() + rejected.sum() + errors.sum();
+            summary.put("requests", answered + skipped.sum());
+            summary.put("ok", ok.sum());
+            summary.put("rejected", rejected.sum());
+            summary.put("errors", errors.sum());
+            summary.put("skipped", skipped.sum());
+            summary.put("throughput", seconds > 0 ? ok.sum() / seconds : 0);
+            summary.put("latencyMillis", latencies(corrected));
+            summary.put("uncorrectedLatencyMillis", latencies(uncorrected));
+            // the full histogram, so runs can be merged or compared at any percentile later
+            summary.put("histogram", encode(corrected));
+            return summary;
+        }
+
+        private static Map<String, Object> latencies(Histogram histogram) {
+            Map<String, Object> latencies = new LinkedHashMap<>();
+            if (histogram.getTotalCount() == 0) {
+                return latencies;
+            }
+            latencies.put("mean", histogram.getMean() / 1000);
+            for (double percentile : PERCENTILES) {
+                latencies.put("p" + (percentile % 1 == 0 ? String.valueOf((int) percentile)
+                        : String.valueOf(percentile)), histogram.getValueAtPercentile(percentile) / 1000.0);
+            }
+            latencies.put("max", histogram.getMaxValue() / 1000.0);
+            return latencies;
+        }
+
+        private static String encode(Histogram histogram) {
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.aamir.tracking.load;
+
+import com.aamir.tracking.util.Country;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The requests of the replayed workload. Operations are drawn by their share of the mix; lanes and customers follow
+ * Zipf distributions, so a few origin countries and a few large shippers carry most of the traffic as they do in
+ * production, while the long tail still reaches every lane and many cold customers.
+ */
+final class Workload {
+
+    enum Operation {
+        CREATE, NEXT, FILTER, GET_ALL
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Country[] COUNTRIES = Country.values();
+    private static final String[] NAME_WORDS = {"Red", "Blue", "Swift", "Harbor", "Cargo", "Parcel", "Express",
+            "Global", "Freight", "Logistics", "Courier", "Line"};
+
+    private final URI baseUri;
+    private final Duration timeout;
+    private final double[] operationShares;
+    private final ZipfSampler countries;
+    private final ZipfSampler customers;
+    private final UUID[] customerIds;
+    private final String[] customerNames;
+
+    Workload(URI baseUri, Duration timeout, Map<Operation, Integer> mix, int customerCount, double laneSkew,
+             double customerSkew, long seed) {
+        this.baseUri = baseUri;
+        this.timeout = timeout;
+        this.operationShares = new double[OPERATIONS.length];
+        double total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        double cumulative = 0;
+        for (Operation operation : OPERATIONS) {
+            cumulative += mix.getOrDefault(operation, 0) / total;
+            operationShares[operation.ordinal()] = cumulative;
+        }
+        this.countries = new ZipfSampler(COUNTRIES.length, laneSkew);
+        this.customers = new ZipfSampler(customerCount, customerSkew);
+        Random random = new Random(seed);
+        this.customerIds = new UUID[customerCount];
+        this.customerNames = new String[customerCount];
+        for (int i = 0; i < customerCount; i++) {
+            customerIds[i] = new UUID(random.nextLong(), random.nextLong());
+            customerNames[i] = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " "
+                    + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + i;
+        }
+    }
+
+    Operation nextOperation(Random random) {
+        double draw = random.nextDouble();
+        for (Operation operation : OPERATIONS) {
+            if (draw < operationShares[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    HttpRequest request(Operation operation, Random random) {
+        int customer = customers.sample(random);
+        return switch (operation) {
+            case CREATE -> {
+                Country origin = COUNTRIES[countries.sample(random)];
+                Country destination = destination(origin, random);
+                // parcels weigh a few hundred grams to a few kilos, a lognormal around 1.2kg
+                double weight = Math.min(99.0, Math.exp(0.2 + 0.8 * random.nextGaussian()));
+                String body = String.format(Locale.ROOT, "{\"sourceCountry\":\"%s\",\"destinationCountry\":\"%s\","
+                                + "\"weight\":\"%.3f\",\"customerId\":\"%s\",\"customerName\":\"%s\"}",
+                        origin.getCode(), destination.getCode(), weight, customerIds[customer],
+                        customerNames[customer]);
+                yield builder("/create")
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+            case NEXT -> builder("/next-tracking-number")
+                    .header("X-Customer-Id", customerIds[customer].toString())
+                    .GET()
+                    .build();
+            case FILTER -> builder(filterQuery(customer, random)).GET().build();
+            case GET_ALL -> builder("/getAll").GET().build();
+        };
+    }
+
+    // lane lookups and a customer's own shipments are the common dashboard queries
+    private String filterQuery(int customer, Random random) {
+        Country origin = COUNTRIES[countries.sample(random)];
+        return switch (random.nextInt(3)) {
+            case 0 -> "/filter?origin_country_id=" + origin.getCode();
+            case 1 -> "/filter?origin_country_id=" + origin.getCode()
+                    + "&destination_country_id=" + destination(origin, random).getCode();
+            default -> "/filter?customer_id=" + customerIds[customer];
+        };
+    }
+
+    private Country destination(Country origin, Random random) {
+        Country destination;
+        do {
+            destination = COUNTRIES[countries.sample(random)];
+        } while (destination == origin);
+        return destination;
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(timeout);
+    }
+
+    /**
+     * Draws ranks {@code 0..n-1} with probability proportional to {@code 1 / (rank + 1)^skew}, by binary search
+     * over the cumulative weights.
+     */
+    static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, skew);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            double draw = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < draw) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.aamir.tracking.config;
+
+import com.aamir.tracking.service.impl.TrackingNumberCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bounded in-process caches of tracking number lookups. Caffeine evicts with W-TinyLFU, so the few tracking IDs
+ * and customers that are asked for again and again stay cached while one-off lookups pass through. Both caches
+ * record statistics, which actuator publishes as {@code cache.gets} and {@code cache.evictions}. Customer lists are
+ * weighed by their rows, so a few large customers cannot hold an unbounded number of tracking numbers; a list
+ * larger than the whole bound is not kept at all. A third cache holds the rendered JSON of tracking numbers,
+ * weighed by its length in bytes.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    @Value("${tracking.cache.lookup.max.size}")
+    private long lookupMaxSize;
+
+    // tracking numbers held over all cached customer lists, one customer's history can be millions of rows
+    @Value("${tracking.cache.customer.max.rows}")
+    private long customerMaxRows;
+
+    @Value("${tracking.cache.json.max.size}")
+    private DataSize jsonMaxSize;
+
+    // bounds how long another instance's writes can stay invisible here
+    @Value("${tracking.cache.ttl}")
+    private Duration ttl;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(TrackingNumberCache.BY_TRACKING_ID, Caffeine.newBuilder()
+                .maximumSize(lookupMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(TrackingNumberCache.BY_CUSTOMER, Caffeine.newBuilder()
+                .maximumWeight(customerMaxRows)
+                .weigher((Object key, Object trackingNumbers) -> Math.max(1, ((List<?>) trackingNumbers).size()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(TrackingNumberCache.RESPONSE_JSON, Caffeine.newBuilder()
+                .maximumWeight(jsonMaxSize.toBytes())
+                .weigher((Object trackingId, Object json) -> ((byte[]) json).length)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
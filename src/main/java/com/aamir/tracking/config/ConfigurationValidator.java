@@ -1,9 +1,15 @@
 package com.aamir.tracking.config;
 
+import com.aamir.tracking.util.Country;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 
 @Slf4j
 @Component
@@ -27,6 +33,162 @@ public class ConfigurationValidator {
     @Value("${tracking.id.padding}")
     private int padding;
 
+    @Value("${tracking.id.batch.max.size}")
+    private int maxBatchSize;
+
+    @Value("${tracking.bulk.max.size}")
+    private int maxBulkSize;
+
+    @Value("${tracking.bulk.chunk.size}")
+    private int bulkChunkSize;
+
+    @Value("${tracking.page.max.size}")
+    private int maxPageSize;
+
+    @Value("${tracking.export.fetch.size}")
+    private int exportFetchSize;
+
+    @Value("${tracking.cache.lookup.max.size}")
+    private long cacheLookupMaxSize;
+
+    @Value("${tracking.cache.customer.max.rows}")
+    private long cacheCustomerMaxRows;
+
+    @Value("${tracking.cache.json.max.size}")
+    private DataSize cacheJsonMaxSize;
+
+    @Value("${tracking.stats.max.groups}")
+    private int maxStatsGroups;
+
+    @Value("${tracking.stats.rollup.enabled}")
+    private boolean rollupEnabled;
+
+    @Value("${tracking.stats.rollup.window}")
+    private Duration rollupWindow;
+
+    @Value("${tracking.stats.rollup.buckets}")
+    private int rollupBuckets;
+
+    @Value("${tracking.store.type}")
+    private String storeType;
+
+    @Value("${tracking.store.log.segment.size}")
+    private DataSize storeSegmentSize;
+
+    @Value("${tracking.store.log.force.interval}")
+    private Duration storeForceInterval;
+
+    @Value("${tracking.store.log.compaction.interval}")
+    private Duration storeCompactionInterval;
+
+    @Value("${tracking.store.log.compaction.garbage.ratio}")
+    private double storeCompactionGarbageRatio;
+
+    @Value("${tracking.index.enabled}")
+    private boolean indexEnabled;
+
+    @Value("${tracking.index.scan.threads}")
+    private int indexScanThreads;
+
+    @Value("${tracking.index.scan.fetch.size}")
+    private int indexScanFetchSize;
+
+    @Value("${tracking.bloom.enabled}")
+    private boolean bloomEnabled;
+
+    @Value("${tracking.bloom.fpp}")
+    private double bloomFpp;
+
+    @Value("${tracking.bloom.expected.insertions}")
+    private long bloomExpectedInsertions;
+
+    @Value("${tracking.bloom.scan.threads}")
+    private int bloomScanThreads;
+
+    @Value("${tracking.bloom.scan.fetch.size}")
+    private int bloomScanFetchSize;
+
+    @Value("${tracking.bloom.snapshot.interval}")
+    private Duration bloomSnapshotInterval;
+
+    @Value("${tracking.admission.permits}")
+    private int admissionPermits;
+
+    @Value("${tracking.admission.export.permits}")
+    private int admissionExportPermits;
+
+    @Value("${tracking.customer.limit.enabled}")
+    private boolean customerLimitEnabled;
+
+    @Value("${tracking.customer.limit.rate}")
+    private double customerLimitRate;
+
+    @Value("${tracking.customer.limit.burst}")
+    private int customerLimitBurst;
+
+    @Value("${tracking.customer.limit.max.customers}")
+    private long customerLimitMaxCustomers;
+
+    @Value("${tracking.ingest.mode}")
+    private String ingestMode;
+
+    @Value("${tracking.ingest.queue.capacity}")
+    private int ingestQueueCapacity;
+
+    @Value("${tracking.ingest.flush.size}")
+    private int ingestFlushSize;
+
+    @Value("${tracking.ingest.flush.interval}")
+    private Duration ingestFlushInterval;
+
+    @Value("${tracking.ingest.backpressure}")
+    private String ingestBackpressure;
+
+    @Value("${tracking.id.block.size}")
+    private int blockSize;
+
+    @Value("${tracking.id.block.low.water.mark}")
+    private int lowWaterMark;
+
+    @Value("${tracking.id.block.store}")
+    private String blockStore;
+
+    @Value("${tracking.id.lease.slots}")
+    private int leaseSlots;
+
+    @Value("${tracking.id.lease.ttl}")
+    private Duration leaseTtl;
+
+    @Value("${tracking.id.lease.heartbeat}")
+    private Duration leaseHeartbeat;
+
+    @Value("${tracking.id.checkpoint.slots}")
+    private int checkpointSlots;
+
+    @Value("${tracking.id.checkpoint.safety.gap}")
+    private long checkpointSafetyGap;
+
+    @Value("${tracking.id.checkpoint.force.interval}")
+    private Duration checkpointForceInterval;
+
+    @Value("${tracking.id.mode}")
+    private String mode;
+
+    @Value("${tracking.id.snowflake.epoch}")
+    private String snowflakeEpoch;
+
+    @Value("${tracking.id.snowflake.timestamp.bits}")
+    private int snowflakeTimestampBits;
+
+    @Value("${tracking.id.snowflake.instance.bits}")
+    private int snowflakeInstanceBits;
+
+    @Value("${tracking.id.snowflake.sequence.bits}")
+    private int snowflakeSequenceBits;
+
+    @Value("${tracking.id.snowflake.instance}")
+    private long snowflakeInstance;
+
     @PostConstruct
     public void validateConfiguration() {
         log.info("Validating tracking number service configuration");
@@ -43,6 +205,16 @@ public class ConfigurationValidator {
             throw new IllegalStateException("Instance ID must be between 0 and 99");
         }
 
+        for (char c : instanceId.toCharArray()) {
+            if (pattern.indexOf(c) < 0) {
+                throw new IllegalStateException("Instance ID must only use characters of the tracking ID pattern");
+            }
+        }
+
+        if (startRange < 0) {
+            throw new IllegalStateException("Start range must not be negative");
+        }
+
         if (startRange >= endRange) {
             throw new IllegalStateException("Start range must be less than end range");
         }
@@ -51,8 +223,210 @@ public class ConfigurationValidator {
             throw new IllegalStateException("Padding must be greater than 0");
         }
 
+        // two country codes of the lane prefix, the instance ID and the padded sequence number
+        if (4 + instanceId.length() + padding > idLength) {
+            throw new IllegalStateException("Tracking ID length is too short for the instance ID and padding");
+        }
+
+        // a batch is claimed in one piece, a larger one could never be served
+        if (maxBatchSize <= 0 || maxBatchSize > (long) endRange - startRange) {
+            throw new IllegalStateException("Batch max size must be greater than 0 and at most end range minus "
+                    + "start range");
+        }
+
+        if (maxBulkSize <= 0 || bulkChunkSize <= 0) {
+            throw new IllegalStateException("Bulk max size and chunk size must be greater than 0");
+        }
+
+        if (maxPageSize <= 0 || exportFetchSize <= 0) {
+            throw new IllegalStateException("Page max size and export fetch size must be greater than 0");
+        }
+
+        if (maxStatsGroups <= 0) {
+            throw new IllegalStateException("Stats max groups must be greater than 0");
+        }
+
+        if (rollupEnabled && (rollupBuckets <= 0 || rollupWindow.toMillis() < rollupBuckets)) {
+            throw new IllegalStateException("Stats rollup needs at least one bucket and a window of at least one "
+                    + "millisecond per bucket");
+        }
+
+        if ("log".equals(storeType)) {
+            validateLogStore();
+        } else if (!"jpa".equals(storeType)) {
+            throw new IllegalStateException("Store type must be jpa or log");
+        }
+
+        if (indexEnabled && (indexScanThreads <= 0 || indexScanFetchSize <= 0)) {
+            throw new IllegalStateException("Index scan threads and fetch size must be greater than 0");
+        }
+
+        if (bloomEnabled) {
+            validateBloomFilter();
+        }
+
+        if (cacheLookupMaxSize <= 0 || cacheCustomerMaxRows <= 0 || cacheJsonMaxSize.toBytes() <= 0) {
+            throw new IllegalStateException("Cache max sizes must be greater than 0");
+        }
+
+        if (admissionPermits <= 0 || admissionExportPermits <= 0) {
+            throw new IllegalStateException("Admission permits and export permits must be greater than 0");
+        }
+
+        if (customerLimitRate <= 0 || customerLimitBurst <= 0 || customerLimitMaxCustomers <= 0) {
+            throw new IllegalStateException("Customer limit rate, burst and max customers must be greater than 0");
+        }
+
+        // a batch counts once per tracking number, the largest one has to fit the burst of a customer without quota
+        if (customerLimitEnabled && customerLimitBurst < maxBatchSize) {
+            throw new IllegalStateException("Customer limit burst must be at least the batch max size");
+        }
+
+        if ("async".equals(ingestMode)) {
+            validateIngest();
+        } else if (!"sync".equals(ingestMode)) {
+            throw new IllegalStateException("Ingest mode must be sync or async");
+        }
+
+        if (blockSize <= 0) {
+            throw new IllegalStateException("Block size must be greater than 0");
+        }
+
+        if (lowWaterMark < 0 || lowWaterMark >= blockSize) {
+            throw new IllegalStateException("Low water mark must be between 0 and block size");
+        }
+
+        if ("lease".equals(blockStore)) {
+            validateLease();
+        }
+
+        // leased instance IDs are for several writers, the index and the ID filter only see one of them
+        if ("lease".equals(blockStore) && (indexEnabled || bloomEnabled)) {
+            throw new IllegalStateException(
+                    "Filter index and tracking ID filter cannot be enabled with the lease block store");
+        }
+
+        if ("checkpoint".equals(blockStore)) {
+            validateCheckpoint();
+        }
+
+        if ("snowflake".equals(mode)) {
+            validateSnowflake();
+        } else if (!"sequence".equals(mode)) {
+            throw new IllegalStateException("Tracking ID mode must be sequence or snowflake");
+        }
+
         log.info("Tracking number service configuration validated successfully");
     }
 
+    private void validateLease() {
+        if (leaseSlots <= 0) {
+            throw new IllegalStateException("Lease slots must be greater than 0");
+        }
+
+        // the leased slot number replaces the configured instance ID
+        if (4 + String.valueOf(leaseSlots - 1).length() + padding > idLength) {
+            throw new IllegalStateException("Tracking ID length is too short for the leased instance ID and padding");
+        }
+
+        if (leaseHeartbeat.isZero() || leaseHeartbeat.isNegative() || leaseHeartbeat.compareTo(leaseTtl) >= 0) {
+            throw new IllegalStateException("Lease heartbeat must be positive and shorter than the lease ttl");
+        }
+    }
+
+    private void validateCheckpoint() {
+        // one slot for every origin/destination lane and the default sequence
+        int sequences = Country.values().length * Country.values().length + 1;
+        if (checkpointSlots < sequences) {
+            throw new IllegalStateException("Checkpoint slots must be at least " + sequences);
+        }
+
+        // a block larger than the gap would be forced on every reservation
+        if (checkpointSafetyGap < blockSize) {
+            throw new IllegalStateException("Checkpoint safety gap must not be smaller than the block size");
+        }
+
+        // every unclean shutdown skips the gap on every lane, one skip must leave most of the range usable
+        if (checkpointSafetyGap >= (long) endRange - startRange) {
+            throw new IllegalStateException("Checkpoint safety gap must be smaller than end range minus start range");
+        }
+
+        if (checkpointForceInterval.isZero() || checkpointForceInterval.isNegative()) {
+            throw new IllegalStateException("Checkpoint force interval must be positive");
+        }
+    }
+
+    private void validateBloomFilter() {
+        if (bloomFpp <= 0 || bloomFpp >= 1) {
+            throw new IllegalStateException("Bloom filter fpp must be between 0 and 1");
+        }
+
+        if (bloomExpectedInsertions <= 0 || bloomScanThreads <= 0 || bloomScanFetchSize <= 0) {
+            throw new IllegalStateException("Bloom filter expected insertions, scan threads and fetch size must be "
+                    + "greater than 0");
+        }
+
+        if (bloomSnapshotInterval.isZero() || bloomSnapshotInterval.isNegative()) {
+            throw new IllegalStateException("Bloom filter snapshot interval must be positive");
+        }
+    }
+
+    private void validateIngest() {
+        if (ingestQueueCapacity <= 0 || ingestFlushSize <= 0) {
+            throw new IllegalStateException("Ingest queue capacity and flush size must be greater than 0");
+        }
+
+        if (ingestFlushInterval.isZero() || ingestFlushInterval.isNegative()) {
+            throw new IllegalStateException("Ingest flush interval must be positive");
+        }
+
+        if (!"reject".equals(ingestBackpressure) && !"block".equals(ingestBackpressure)) {
+            throw new IllegalStateException("Ingest backpressure must be reject or block");
+        }
+    }
+
+    private void validateLogStore() {
+        // a segment is mapped whole, so it must fit a mapped buffer and still hold a record after its header
+        if (storeSegmentSize.toBytes() < DataSize.ofKilobytes(1).toBytes()
+                || storeSegmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Store segment size must be between 1KB and 2GB");
+        }
+
+        if (storeForceInterval.isNegative()) {
+            throw new IllegalStateException("Store force interval must not be negative");
+        }
+
+        if (storeCompactionInterval.isZero() || storeCompactionInterval.isNegative()) {
+            throw new IllegalStateException("Store compaction interval must be positive");
+        }
+
+        if (storeCompactionGarbageRatio <= 0 || storeCompactionGarbageRatio > 1) {
+            throw new IllegalStateException("Store compaction garbage ratio must be greater than 0 and at most 1");
+        }
+    }
+
+    private void validateSnowflake() {
+        try {
+            Instant.parse(snowflakeEpoch);
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException("Snowflake epoch must be an ISO-8601 instant, e.g. 2025-01-01T00:00:00Z");
+        }
+
+        if (snowflakeTimestampBits <= 0 || snowflakeInstanceBits < 0 || snowflakeSequenceBits <= 0
+                || snowflakeTimestampBits + snowflakeInstanceBits + snowflakeSequenceBits > 63) {
+            throw new IllegalStateException("Snowflake timestamp, instance and sequence bits must add up to at most 63");
+        }
+
+        if (snowflakeInstance < 0 || snowflakeInstance >= 1L << snowflakeInstanceBits) {
+            throw new IllegalStateException("Snowflake instance must fit in the snowflake instance bits");
+        }
+
+        // two country codes of the lane prefix and the packed value in the characters of the pattern
+        int bits = snowflakeTimestampBits + snowflakeInstanceBits + snowflakeSequenceBits;
+        int width = (int) Math.ceil(bits / (Math.log(pattern.chars().distinct().count()) / Math.log(2)));
+        if (4 + width > idLength) {
+            throw new IllegalStateException("Tracking ID length is too short for " + bits + " snowflake bits");
+        }
+    }
 
 }
@@ -1,13 +1,16 @@
 package com.aamir.tracking.config;
 
 import com.aamir.tracking.model.TrackingNumber;
-import com.aamir.tracking.repository.TrackingNumberRepository;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.service.TrackingNumberService;
 import com.aamir.tracking.util.Country;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.time.Instant;
@@ -20,13 +23,39 @@ import java.util.UUID;
 @Slf4j
 public class DatabaseInitializer {
 
-    private final TrackingNumberRepository trackingNumberRepository;
+    private final TrackingNumberStore trackingNumberStore;
+    private final TrackingNumberService trackingNumberService;
+
+    // seed once the application takes traffic instead of during startup
+    @Value("${tracking.seed.background}")
+    private boolean background;
 
     @PostConstruct
-    @Transactional
     void init() {
+        if (!background) {
+            seed();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        if (!background) {
+            return;
+        }
+        Thread seeder = new Thread(() -> {
+            try {
+                seed();
+            } catch (RuntimeException e) {
+                log.error("Could not seed the sample tracking numbers", e);
+            }
+        }, "database-seed");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    void seed() {
         // Check if data already exists
-        if (trackingNumberRepository.count() > 0) {
+        if (trackingNumberStore.count() > 0) {
             // Skip initialization if data already exists
             return;
         }
@@ -86,7 +115,9 @@ public class DatabaseInitializer {
         trackingNumbers.add(tn4);
 
         // Save all tracking numbers
-        trackingNumberRepository.saveAll(trackingNumbers);
+        trackingNumberStore.persistAll(trackingNumbers);
+        // the ID filter and index load concurrently with a background seed and only see rows they scan or are told of
+        trackingNumbers.forEach(trackingNumberService::trackingNumberStored);
 
         log.info("Database initialized with {} tracking number records", trackingNumbers.size());
     }
@@ -2,50 +2,116 @@ package com.aamir.tracking.controller;
 
 
 import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
+import com.aamir.tracking.controller.dto.response.TrackingNumberBulkResponse;
+import com.aamir.tracking.controller.dto.response.TrackingNumberPageResponse;
+import com.aamir.tracking.controller.dto.response.TrackingNumberRangeResponse;
 import com.aamir.tracking.controller.dto.response.TrackingNumberResponse;
+import com.aamir.tracking.controller.dto.response.TrackingNumberStatsResponse;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.service.CustomerThrottledException;
+import com.aamir.tracking.service.IngestQueueFullException;
+import com.aamir.tracking.service.SequenceExhaustedException;
 import com.aamir.tracking.service.TrackingNumberService;
+import com.aamir.tracking.service.impl.CustomerRateLimiter;
 import com.aamir.tracking.util.Country;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController(value = "/v1")
 @RequiredArgsConstructor
 @Slf4j
+// the reactive stack serves its own controller, built with -Preactive
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TrackingNumberController {
 
+    // names the customer an ID is drawn for, so the draw counts against its quota
+    public static final String CUSTOMER_ID_HEADER = "X-Customer-Id";
+    private static final String NDJSON = "application/x-ndjson";
+
     private final TrackingNumberService trackingNumberService;
+    private final TrackingNumberJsonWriter jsonWriter;
+    private final CustomerRateLimiter customerRateLimiter;
 
     @GetMapping(path = "/getAll", produces = "application/json")
-    public ResponseEntity<List<TrackingNumberResponse>> get() {
+    public ResponseEntity<StreamingResponseBody> get() {
         log.info("Getting all tracking numbers");
-        return ResponseEntity.ok(
-                trackingNumberService.getAllTrackingNumbers().stream().map(TrackingNumberResponse::from).toList());
+        return jsonArray(trackingNumberService.getAllTrackingNumbers());
+    }
+
+    @GetMapping(path = "/tracking/{id}", produces = "application/json")
+    public ResponseEntity<byte[]> getById(@PathVariable("id") String trackingId) {
+        log.debug("Getting tracking number {}", trackingId);
+        return trackingNumberService.getTrackingNumber(trackingId)
+                .map(jsonWriter::toJson)
+                .map(json -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping(path = "/next-tracking-number", produces = "application/json")
-    public ResponseEntity<String> getNextId() {
-        log.info("Getting next tracking number");
+    public ResponseEntity<String> getNextId(
+            @RequestHeader(value = CUSTOMER_ID_HEADER, required = false) String customerId) {
+        log.debug("Getting next tracking number");
+        customerRateLimiter.acquire(customerId);
         return ResponseEntity.ok(trackingNumberService.getNextTrackingNumber());
     }
 
+    @GetMapping(path = "/next-tracking-numbers", produces = "application/json")
+    public ResponseEntity<List<String>> getNextIds(
+            @RequestParam(value = "count") int count,
+            @RequestHeader(value = CUSTOMER_ID_HEADER, required = false) String customerId) {
+        customerRateLimiter.acquire(customerId, count);
+        return ResponseEntity.ok(trackingNumberService.getNextTrackingNumbers(count));
+    }
+
+    @GetMapping(path = "/next-tracking-number-range", produces = "application/json")
+    public ResponseEntity<TrackingNumberRangeResponse> getNextIdRange(
+            @RequestParam(value = "count") int count,
+            @RequestHeader(value = CUSTOMER_ID_HEADER, required = false) String customerId) {
+        customerRateLimiter.acquire(customerId, count);
+        return ResponseEntity.ok(
+                TrackingNumberRangeResponse.from(trackingNumberService.getNextTrackingNumberRange(count)));
+    }
+
     @PostMapping(path = "/create", consumes = "application/json")
     public ResponseEntity<TrackingNumberResponse> createNextId(@RequestBody TrackingNumberRequest trackingNumber) {
-        log.info("Creating next tracking number");
+        log.debug("Creating next tracking number");
+        customerRateLimiter.acquire(trackingNumber.getCustomerId());
         return ResponseEntity.ok(
                 TrackingNumberResponse.from(trackingNumberService.createNextTrackingNumber(trackingNumber))
         );
     }
 
+    @PostMapping(path = "/create-bulk", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<TrackingNumberBulkResponse> createBulk(@RequestBody List<TrackingNumberRequest> trackingNumbers) {
+        log.info("Creating {} tracking numbers in bulk", trackingNumbers.size());
+        // a manifest counts once for every customer in it, its size is bounded by tracking.bulk.max.size instead
+        customerRateLimiter.acquireEach(trackingNumbers.stream().map(TrackingNumberRequest::getCustomerId).toList());
+        return ResponseEntity.ok(
+                TrackingNumberBulkResponse.from(trackingNumberService.createTrackingNumbers(trackingNumbers))
+        );
+    }
+
     @GetMapping(path = "/filter", produces = "application/json")
-    public ResponseEntity<List<TrackingNumberResponse>> filter(
+    public ResponseEntity<StreamingResponseBody> filter(
             @RequestParam(value = "origin_country_id", required = false) Country originCountry,
             @RequestParam(value = "destination_country_id", required = false) Country destinationCountry,
             @RequestParam(value = "weight", required = false) String weight,
@@ -55,9 +121,116 @@ public class TrackingNumberController {
             @RequestParam(value = "customer_slug", required = false) String customerSlug
     ) {
         log.info("Filtering tracking numbers");
+        return jsonArray(trackingNumberService.filterTrackingNumbers(originCountry, destinationCountry, weight,
+                createdAt, customerId, customerName, customerSlug));
+    }
+
+    @GetMapping(path = "/filter-page", produces = "application/json")
+    public ResponseEntity<TrackingNumberPageResponse> filterPage(
+            @RequestParam(value = "origin_country_id", required = false) Country originCountry,
+            @RequestParam(value = "destination_country_id", required = false) Country destinationCountry,
+            @RequestParam(value = "weight", required = false) String weight,
+            @RequestParam(value = "created_at", required = false) String createdAt,
+            @RequestParam(value = "customer_id", required = false) String customerId,
+            @RequestParam(value = "customer_name", required = false) String customerName,
+            @RequestParam(value = "customer_slug", required = false) String customerSlug,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        log.info("Filtering a page of {} tracking numbers", limit);
+        return ResponseEntity.ok(TrackingNumberPageResponse.from(
+                trackingNumberService.filterTrackingNumberPage(originCountry, destinationCountry, weight, createdAt,
+                        customerId, customerName, customerSlug, cursor, limit)));
+    }
+
+    @GetMapping(path = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "origin_country_id", required = false) Country originCountry,
+            @RequestParam(value = "destination_country_id", required = false) Country destinationCountry,
+            @RequestParam(value = "weight", required = false) String weight,
+            @RequestParam(value = "created_at", required = false) String createdAt,
+            @RequestParam(value = "customer_id", required = false) String customerId,
+            @RequestParam(value = "customer_name", required = false) String customerName,
+            @RequestParam(value = "customer_slug", required = false) String customerSlug
+    ) {
+        log.info("Exporting tracking numbers");
+        // one JSON object per line, written as the rows are read; exported rows bypass the JSON cache
+        StreamingResponseBody body = out -> trackingNumberService.exportTrackingNumbers(originCountry,
+                destinationCountry, weight, createdAt, customerId, customerName, customerSlug, trackingNumber -> {
+                    try {
+                        out.write(jsonWriter.encode(trackingNumber));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    @GetMapping(path = "/stats", produces = "application/json")
+    public ResponseEntity<List<TrackingNumberStatsResponse>> stats(
+            @RequestParam(value = "group_by") String groupBy,
+            @RequestParam(value = "origin_country_id", required = false) Country originCountry,
+            @RequestParam(value = "destination_country_id", required = false) Country destinationCountry,
+            @RequestParam(value = "weight", required = false) String weight,
+            @RequestParam(value = "created_at", required = false) String createdAt,
+            @RequestParam(value = "customer_id", required = false) String customerId,
+            @RequestParam(value = "customer_name", required = false) String customerName,
+            @RequestParam(value = "customer_slug", required = false) String customerSlug
+    ) {
+        log.info("Aggregating tracking numbers by {}", groupBy);
+        return ResponseEntity.ok(trackingNumberService.aggregateTrackingNumbers(groupBy, originCountry,
+                        destinationCountry, weight, createdAt, customerId, customerName, customerSlug)
+                .stream().map(TrackingNumberStatsResponse::from).toList());
+    }
+
+    @GetMapping(path = "/stats/recent", produces = "application/json")
+    public ResponseEntity<List<TrackingNumberStatsResponse>> recentStats() {
+        log.debug("Getting recent lane stats");
         return ResponseEntity.ok(
-                trackingNumberService.filterTrackingNumbers(originCountry, destinationCountry, weight, createdAt,
-                        customerId, customerName, customerSlug).stream().map(TrackingNumberResponse::from).toList());
+                trackingNumberService.getRecentLaneStats().stream().map(TrackingNumberStatsResponse::from).toList());
+    }
+
+    // the rows are fetched before the response is committed, so query errors still map to an error status
+    private ResponseEntity<StreamingResponseBody> jsonArray(List<TrackingNumber> trackingNumbers) {
+        StreamingResponseBody body = out -> jsonWriter.writeArray(trackingNumbers, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidRequest(IllegalArgumentException e) {
+        log.warn("Rejecting invalid request: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(IngestQueueFullException.class)
+    public ResponseEntity<String> handleFullIngestQueue(IngestQueueFullException e) {
+        log.warn("Rejecting tracking number while the write-behind queue is full: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(CustomerThrottledException.class)
+    public ResponseEntity<String> handleThrottledCustomer(CustomerThrottledException e) {
+        log.debug("Throttling request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(SequenceExhaustedException.class)
+    public ResponseEntity<String> handleExhaustedSequence(SequenceExhaustedException e) {
+        log.error("Cannot issue tracking numbers: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejectedRequest(RejectedExecutionException e) {
+        log.warn("Rejecting request over the admission limit: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
     }
 
 }
@@ -0,0 +1,175 @@
+package com.aamir.tracking.controller;
+
+import com.aamir.tracking.controller.dto.response.TrackingNumberResponse;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.service.impl.TrackingNumberCache;
+import com.aamir.tracking.util.ResponseFormats;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes tracking numbers as the JSON of {@link TrackingNumberResponse} without building the response objects or
+ * going through Jackson data binding.
+ * <p>
+ * A row is rendered once straight into UTF-8 bytes, which are kept in the
+ * {@link TrackingNumberCache#RESPONSE_JSON} cache by tracking ID; tracking numbers are never changed after they are
+ * created, so the bytes stay valid and list endpoints only copy the cached fragments into the response.
+ */
+@Component
+public class TrackingNumberJsonWriter {
+
+    // field names with the separators around them, in the order Jackson writes the response properties
+    private static final String TRACKING_ID = "{\"trackingId\":";
+    private static final String ORIGIN_COUNTRY = ",\"originCountry\":";
+    private static final String DESTINATION_COUNTRY = ",\"destinationCountry\":";
+    private static final String WEIGHT = ",\"weight\":";
+    private static final String CUSTOMER_ID = ",\"customerId\":";
+    private static final String CREATED_AT = ",\"createdAt\":";
+    private static final String CUSTOMER_NAME = ",\"customerName\":";
+    private static final String CUSTOMER_SLUG = ",\"customerSlug\":";
+
+    private final Cache<Object, Object> cache;
+    // rows are rendered into a per-thread buffer and only the finished JSON is copied out
+    private final ThreadLocal<JsonBuffer> scratch = ThreadLocal.withInitial(JsonBuffer::new);
+
+    public TrackingNumberJsonWriter(CacheManager cacheManager) {
+        this.cache = ((CaffeineCache) cacheManager.getCache(TrackingNumberCache.RESPONSE_JSON)).getNativeCache();
+    }
+
+    /**
+     * @return The JSON of the tracking number, rendered on first use and served from the cache afterwards
+     */
+    public byte[] toJson(TrackingNumber trackingNumber) {
+        return (byte[]) cache.get(trackingNumber.getTrackingId(), trackingId -> encode(trackingNumber));
+    }
+
+    /**
+     * Writes the tracking numbers as one JSON array.
+     */
+    public void writeArray(List<TrackingNumber> trackingNumbers, OutputStream out) throws IOException {
+        out.write('[');
+        for (int i = 0; i < trackingNumbers.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(toJson(trackingNumbers.get(i)));
+        }
+        out.write(']');
+    }
+
+    /**
+     * Renders the JSON of a tracking number without consulting the cache, for rows that are read once such as
+     * exports.
+     */
+    public byte[] encode(TrackingNumber trackingNumber) {
+        JsonBuffer json = scratch.get();
+        json.length = 0;
+        json.appendAscii(TRACKING_ID).appendQuoted(trackingNumber.getTrackingId())
+                .appendAscii(ORIGIN_COUNTRY).appendQuoted(trackingNumber.getOriginCountryId().getCode())
+                .appendAscii(DESTINATION_COUNTRY).appendQuoted(trackingNumber.getDestinationCountryId().getCode())
+                .appendAscii(WEIGHT).appendQuoted(ResponseFormats.kilograms(trackingNumber.getWeight()))
+                .appendAscii(CUSTOMER_ID).appendQuoted(trackingNumber.getCustomerId() == null ? null
+                        : trackingNumber.getCustomerId().toString())
+                .appendAscii(CREATED_AT).appendQuoted(ResponseFormats.timestamp(trackingNumber.getCreatedAt()))
+                .appendAscii(CUSTOMER_NAME).appendQuoted(trackingNumber.getCustomerName())
+                .appendAscii(CUSTOMER_SLUG).appendQuoted(trackingNumber.getCustomerSlug())
+                .appendAscii("}");
+        return Arrays.copyOf(json.bytes, json.length);
+    }
+
+    /**
+     * Growable UTF-8 buffer that escapes strings the way Jackson does: quote, backslash and control characters,
+     * with the short forms for the common ones and a six character escape for the rest.
+     */
+    private static final class JsonBuffer {
+
+        private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+        private byte[] bytes = new byte[512];
+        private int length;
+
+        private JsonBuffer appendAscii(String text) {
+            ensure(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                bytes[length++] = (byte) text.charAt(i);
+            }
+            return this;
+        }
+
+        private JsonBuffer appendQuoted(String text) {
+            if (text == null) {
+                return appendAscii("null");
+            }
+            // worst case: every char a six byte escape, plus the quotes
+            ensure(text.length() * 6 + 2);
+            bytes[length++] = '"';
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    appendUtf8(c);
+                } else if (c == '"' || c == '\\') {
+                    appendShortEscape(c);
+                } else if (c >= 0x20) {
+                    bytes[length++] = (byte) c;
+                } else {
+                    appendControl(c);
+                }
+            }
+            bytes[length++] = '"';
+            return this;
+        }
+
+        private void appendControl(char c) {
+            switch (c) {
+                case '\b' -> appendShortEscape('b');
+                case '\t' -> appendShortEscape('t');
+                case '\n' -> appendShortEscape('n');
+                case '\f' -> appendShortEscape('f');
+                case '\r' -> appendShortEscape('r');
+                default -> appendUnicodeEscape(c);
+            }
+        }
+
+        private void appendShortEscape(char c) {
+            bytes[length++] = '\\';
+            bytes[length++] = (byte) c;
+        }
+
+        private void appendUnicodeEscape(char c) {
+            bytes[length++] = '\\';
+            bytes[length++] = 'u';
+            bytes[length++] = HEX[c >> 12];
+            bytes[length++] = HEX[c >> 8 & 0xF];
+            bytes[length++] = HEX[c >> 4 & 0xF];
+            bytes[length++] = HEX[c & 0xF];
+        }
+
+        private void appendUtf8(char c) {
+            if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | c >> 6);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Jackson does not combine surrogate pairs into UTF-8 by default, it escapes both halves
+                appendUnicodeEscape(c);
+            } else {
+                bytes[length++] = (byte) (0xE0 | c >> 12);
+                bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        private void ensure(int additional) {
+            if (length + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+            }
+        }
+    }
+}
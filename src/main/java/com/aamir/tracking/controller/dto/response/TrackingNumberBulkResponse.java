@@ -0,0 +1,38 @@
+package com.aamir.tracking.controller.dto.response;
+
+import com.aamir.tracking.model.TrackingNumberBulkResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+public class TrackingNumberBulkResponse {
+
+    private List<TrackingNumberResponse> created;
+    private List<Failure> failures;
+
+    public static TrackingNumberBulkResponse from(TrackingNumberBulkResult result) {
+        return TrackingNumberBulkResponse.builder()
+                .created(result.getCreated().stream().map(TrackingNumberResponse::from).toList())
+                .failures(result.getFailures().entrySet().stream()
+                        .map(failure -> new Failure(failure.getKey(), failure.getValue()))
+                        .toList())
+                .build();
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class Failure {
+
+        // position of the item in the request
+        private int index;
+        private String reason;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.aamir.tracking.controller.dto.response;
+
+import com.aamir.tracking.model.TrackingNumberPage;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+public class TrackingNumberPageResponse {
+
+    private List<TrackingNumberResponse> items;
+    // pass back as cursor for the following page, null on the last page
+    private String nextCursor;
+
+    public static TrackingNumberPageResponse from(TrackingNumberPage page) {
+        return TrackingNumberPageResponse.builder()
+                .items(page.getItems().stream().map(TrackingNumberResponse::from).toList())
+                .nextCursor(page.getNextCursor() == null ? null : page.getNextCursor().encode())
+                .build();
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.aamir.tracking.controller.dto.response;
+
+import com.aamir.tracking.model.TrackingNumberRange;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+public class TrackingNumberRangeResponse {
+
+    private String prefix;
+    private long first;
+    private long last;
+    private int padding;
+    private int count;
+
+    public static TrackingNumberRangeResponse from(TrackingNumberRange range) {
+        return TrackingNumberRangeResponse.builder()
+                .prefix(range.getPrefix())
+                .first(range.getFirst())
+                .last(range.getLast())
+                .padding(range.getPadding())
+                .count(range.count())
+                .build();
+    }
+
+}
@@ -2,10 +2,10 @@ package com.aamir.tracking.controller.dto.response;
 
 
 import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.util.ResponseFormats;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
-import java.util.Locale;
 
 import java.util.UUID;
 
@@ -28,9 +28,9 @@ public class TrackingNumberResponse {
                 .trackingId(trackingNumber.getTrackingId())
                 .originCountry(trackingNumber.getOriginCountryId().getCode())
                 .destinationCountry(trackingNumber.getDestinationCountryId().getCode())
-                .weight(String.format(Locale.UK, "%.3f", trackingNumber.getWeight() / 1000f))
+                .weight(ResponseFormats.kilograms(trackingNumber.getWeight()))
                 .customerId(trackingNumber.getCustomerId())
-                .createdAt(trackingNumber.getCreatedAt().toString())
+                .createdAt(ResponseFormats.timestamp(trackingNumber.getCreatedAt()))
                 .customerName(trackingNumber.getCustomerName())
                 .customerSlug(trackingNumber.getCustomerSlug())
                 .build();
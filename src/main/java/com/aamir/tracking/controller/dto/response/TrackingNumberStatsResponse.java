@@ -0,0 +1,43 @@
+package com.aamir.tracking.controller.dto.response;
+
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.util.ResponseFormats;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+// only the fields of the grouping key are present
+@Getter
+@Setter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrackingNumberStatsResponse {
+
+    private String originCountry;
+    private String destinationCountry;
+    private String day;
+    private UUID customerId;
+    private String customerName;
+    private long count;
+    // in KGs, like the weight of a tracking number
+    private String totalWeight;
+    private String averageWeight;
+
+    public static TrackingNumberStatsResponse from(TrackingNumberStats stats) {
+        return TrackingNumberStatsResponse.builder()
+                .originCountry(stats.getOriginCountry() == null ? null : stats.getOriginCountry().getCode())
+                .destinationCountry(stats.getDestinationCountry() == null ? null
+                        : stats.getDestinationCountry().getCode())
+                .day(stats.getDay() == null ? null : stats.getDay().toString())
+                .customerId(stats.getCustomerId())
+                .customerName(stats.getCustomerName())
+                .count(stats.getCount())
+                .totalWeight(ResponseFormats.kilograms(stats.getTotalWeight()))
+                .averageWeight(ResponseFormats.kilograms(stats.averageWeight()))
+                .build();
+    }
+
+}
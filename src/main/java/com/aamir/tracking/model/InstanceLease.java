@@ -0,0 +1,45 @@
+package com.aamir.tracking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * Lease of an instance slot. The owning node renews {@code expiresAt} with a heartbeat; once it has passed
+ * any node may take the slot over. Every change goes through the version check, so two nodes never both
+ * believe they won the same slot.
+ */
+@Entity
+@Data
+@Table(name = "instance_lease", schema = "public")
+@Builder(setterPrefix = "with")
+@AllArgsConstructor
+@NoArgsConstructor
+public class InstanceLease {
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    // random ID of the node holding the lease
+    @Column(name = "owner", nullable = false)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private Timestamp expiresAt;
+
+    @Column(name = "renewed_at")
+    private Timestamp renewedAt;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+}
@@ -0,0 +1,41 @@
+package com.aamir.tracking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * High-water mark of a named sequence. Every reserved block moves {@code nextValue} forward,
+ * so values below it have been handed out and are never issued again, even across restarts.
+ */
+@Entity
+@Data
+@Table(name = "sequence_block", schema = "public")
+@Builder(setterPrefix = "with")
+@AllArgsConstructor
+@NoArgsConstructor
+public class SequenceBlock {
+
+    @Id
+    @Column(name = "sequence_name")
+    private String sequenceName;
+
+    // first value that has not been reserved yet
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+}
@@ -0,0 +1,21 @@
+package com.aamir.tracking.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A reserved block of sequence values, {@code start} inclusive and {@code end} exclusive.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SequenceRange {
+
+    private final long start;
+    private final long end;
+
+    public long size() {
+        return end - start;
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +18,13 @@ import java.util.UUID;
 
 @Entity
 @Data
-@Table(name = "tracking_number", schema = "public")
+@Table(name = "tracking_number", schema = "public", indexes = {
+        @Index(name = "idx_tracking_number_lane_created_at",
+                columnList = "origin_country_id, destination_country_id, created_at"),
+        @Index(name = "idx_tracking_number_created_at", columnList = "created_at, tracking_id"),
+        @Index(name = "idx_tracking_number_customer_id", columnList = "customer_id"),
+        @Index(name = "idx_tracking_number_customer_slug", columnList = "customer_slug")
+})
 @Builder(setterPrefix = "with")
 @AllArgsConstructor
 @NoArgsConstructor
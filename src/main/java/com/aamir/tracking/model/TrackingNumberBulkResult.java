@@ -0,0 +1,18 @@
+package com.aamir.tracking.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk create. Failures are keyed by the position of the item in the request.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TrackingNumberBulkResult {
+
+    private final List<TrackingNumber> created;
+    private final Map<Integer, String> failures;
+}
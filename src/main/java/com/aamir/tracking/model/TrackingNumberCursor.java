@@ -0,0 +1,44 @@
+package com.aamir.tracking.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Position of the last tracking number of a page in {@code created_at, tracking_id} order. Clients only
+ * see the encoded form and hand it back unchanged to get the following page.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TrackingNumberCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final Timestamp createdAt;
+    private final String trackingId;
+
+    public static TrackingNumberCursor after(TrackingNumber trackingNumber) {
+        return new TrackingNumberCursor(trackingNumber.getCreatedAt(), trackingNumber.getTrackingId());
+    }
+
+    public String encode() {
+        String position = createdAt.toString() + SEPARATOR + trackingId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static TrackingNumberCursor decode(String cursor) {
+        String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = position.lastIndexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new TrackingNumberCursor(Timestamp.valueOf(position.substring(0, separator)),
+                position.substring(separator + 1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.aamir.tracking.model;
+
+import com.aamir.tracking.util.Country;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Parsed filter criteria for tracking number lookups. A {@code null} field means the criterion was not supplied.
+ */
+@Getter
+@ToString
+@Builder(setterPrefix = "with")
+@Slf4j
+public class TrackingNumberFilter {
+
+    // escapes the wildcards of like patterns, see customerNamePattern
+    public static final char LIKE_ESCAPE = '\\';
+
+    private final Country originCountry;
+    private final Country destinationCountry;
+    // weight in grams
+    private final Integer weight;
+    // day of created_at
+    private final LocalDate createdOn;
+    private final UUID customerId;
+    private final String customerName;
+    private final String customerSlug;
+
+    /**
+     * @return The {@code like} pattern of the customer name criterion: the lower-cased name anywhere in the column,
+     * with {@code %} and {@code _} in it matched literally like the in-memory index and the log store do
+     */
+    public String customerNamePattern() {
+        StringBuilder pattern = new StringBuilder(customerName.length() + 2).append('%');
+        for (char c : customerName.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    /**
+     * Parses the raw filter parameters, empty strings count as not supplied.
+     *
+     * @return The filter, or empty if any parameter is malformed
+     */
+    public static Optional<TrackingNumberFilter> parse(Country originCountry, Country destinationCountry,
+                                                       String weight, String createdAt, String customerId,
+                                                       String customerName, String customerSlug) {
+        // Convert weight from kg to grams if provided
+        Integer weightInGrams = null;
+        if (weight != null && !weight.isEmpty()) {
+            try {
+                weightInGrams = (int) (Float.parseFloat(weight) * 1000F);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid weight format: {}", weight);
+                return Optional.empty();
+            }
+        }
+
+        // Parse the day of created at if provided
+        LocalDate createdOn = null;
+        if (createdAt != null && !createdAt.isEmpty()) {
+            try {
+                // Try to parse as yyyy-MM-dd format
+                if (createdAt.length() == 10) { // Format: yyyy-MM-dd
+                    createdOn = LocalDate.parse(createdAt);
+                } else {
+                    // Try to parse as timestamp, only its day is compared
+                    createdOn = Timestamp.valueOf(createdAt).toLocalDateTime().toLocalDate();
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                log.warn("Invalid createdAt format: {}. Expected format: yyyy-MM-dd or yyyy-MM-dd HH:mm:ss", createdAt);
+                return Optional.empty();
+            }
+        }
+
+        // Parse customer ID to UUID if provided
+        UUID customerUuid = null;
+        if (customerId != null && !customerId.isEmpty()) {
+            try {
+                customerUuid = UUID.fromString(customerId);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid UUID format for customerId: {}", customerId);
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(TrackingNumberFilter.builder()
+                .withOriginCountry(originCountry)
+                .withDestinationCountry(destinationCountry)
+                .withWeight(weightInGrams)
+                .withCreatedOn(createdOn)
+                .withCustomerId(customerUuid)
+                .withCustomerName(customerName == null || customerName.isEmpty() ? null : customerName)
+                .withCustomerSlug(customerSlug == null || customerSlug.isEmpty() ? null : customerSlug)
+                .build());
+    }
+}
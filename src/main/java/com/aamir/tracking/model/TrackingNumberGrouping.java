@@ -0,0 +1,26 @@
+package com.aamir.tracking.model;
+
+import java.util.Locale;
+
+/**
+ * The key tracking number statistics are grouped by.
+ */
+public enum TrackingNumberGrouping {
+
+    // origin and destination country
+    LANE,
+    // day of created_at
+    DAY,
+    CUSTOMER;
+
+    /**
+     * @throws IllegalArgumentException if the value names no grouping
+     */
+    public static TrackingNumberGrouping parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Group by must be one of lane, day or customer");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.aamir.tracking.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of tracking numbers in {@code created_at, tracking_id} order. {@code nextCursor} is null on the
+ * last page.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TrackingNumberPage {
+
+    private final List<TrackingNumber> items;
+    private final TrackingNumberCursor nextCursor;
+}
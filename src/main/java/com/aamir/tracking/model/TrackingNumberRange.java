@@ -0,0 +1,22 @@
+package com.aamir.tracking.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A contiguous run of tracking numbers: {@code prefix} followed by every sequence number from
+ * {@code first} to {@code last} inclusive, zero-padded to {@code padding} digits.
+ */
+@Getter
+@Builder(setterPrefix = "with")
+public class TrackingNumberRange {
+
+    private final String prefix;
+    private final long first;
+    private final long last;
+    private final int padding;
+
+    public int count() {
+        return (int) (last - first + 1);
+    }
+}
@@ -0,0 +1,33 @@
+package com.aamir.tracking.model;
+
+import com.aamir.tracking.util.Country;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Volume of one group of tracking numbers. Only the fields of the grouping key are set, e.g. the countries for
+ * {@link TrackingNumberGrouping#LANE}.
+ */
+@Getter
+@Builder(setterPrefix = "with")
+public class TrackingNumberStats {
+
+    private final Country originCountry;
+    private final Country destinationCountry;
+    private final LocalDate day;
+    private final UUID customerId;
+    private final String customerName;
+    private final long count;
+    // sum of the weights in grams
+    private final long totalWeight;
+
+    /**
+     * @return The average weight in grams, rounded half up
+     */
+    public long averageWeight() {
+        return count == 0 ? 0 : Math.round((double) totalWeight / count);
+    }
+}
@@ -0,0 +1,9 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.InstanceLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InstanceLeaseRepository extends JpaRepository<InstanceLease, Integer> {
+}
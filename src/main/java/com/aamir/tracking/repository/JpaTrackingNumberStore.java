@@ -0,0 +1,82 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps tracking numbers in the relational database through {@link TrackingNumberRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "tracking.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaTrackingNumberStore implements TrackingNumberStore {
+
+    private final TrackingNumberRepository trackingNumberRepository;
+
+    @Override
+    public TrackingNumber save(TrackingNumber trackingNumber) {
+        return trackingNumberRepository.save(trackingNumber);
+    }
+
+    /**
+     * Joins the caller's transaction, so a caller committing in chunks keeps its own boundaries.
+     */
+    @Override
+    @Transactional
+    public void persistAll(List<TrackingNumber> trackingNumbers) {
+        trackingNumberRepository.persistAll(trackingNumbers);
+    }
+
+    @Override
+    public Optional<TrackingNumber> findById(String trackingId) {
+        return trackingNumberRepository.findById(trackingId);
+    }
+
+    @Override
+    public List<TrackingNumber> findAllById(Collection<String> trackingIds) {
+        return trackingNumberRepository.findAllById(trackingIds);
+    }
+
+    @Override
+    public List<TrackingNumber> findAll() {
+        return trackingNumberRepository.findAll();
+    }
+
+    @Override
+    public long count() {
+        return trackingNumberRepository.count();
+    }
+
+    @Override
+    public List<TrackingNumber> findByFilters(TrackingNumberFilter filter) {
+        return trackingNumberRepository.findByFilters(filter);
+    }
+
+    @Override
+    public List<TrackingNumber> findPage(TrackingNumberFilter filter, TrackingNumberCursor after, int limit) {
+        return trackingNumberRepository.findPage(filter, after, limit);
+    }
+
+    @Override
+    public Stream<TrackingNumber> streamByFilters(TrackingNumberFilter filter, int fetchSize) {
+        return trackingNumberRepository.streamByFilters(filter, fetchSize);
+    }
+
+    @Override
+    public List<TrackingNumberStats> aggregate(TrackingNumberFilter filter, TrackingNumberGrouping grouping,
+                                               int limit) {
+        return trackingNumberRepository.aggregate(filter, grouping, limit);
+    }
+}
@@ -0,0 +1,775 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.util.Country;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded, append-only tracking number store for a single node, selected with {@code tracking.store.type=log}.
+ * <p>
+ * Tracking numbers are fixed-width binary records appended to memory-mapped segment files of
+ * {@code tracking.store.log.segment.size} under {@code tracking.store.log.dir}. Storing one is a copy into mapped
+ * memory and an entry in the in-memory index from tracking ID to segment and slot; there is no SQL, no
+ * transaction and no select-before-insert. Lookups read the slot the index points to, filters scan the live
+ * records of every segment, comparing the fixed fields in place and decoding only the candidates.
+ * <p>
+ * Writes reach the page cache at once and survive a crash of the process; they are forced to disk every
+ * {@code tracking.store.log.force.interval}, or with every write if it is zero. Every record carries a checksum:
+ * on start the segments are read back to rebuild the index, and a record torn by a power loss at the end of the
+ * newest segment is dropped together with everything after it. Saving a tracking number again appends a new
+ * record and leaves the old one as garbage; a sealed segment whose share of garbage reaches
+ * {@code tracking.store.log.compaction.garbage.ratio} has its live records copied to the newest segment and is
+ * deleted, checked every {@code tracking.store.log.compaction.interval}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "tracking.store.type", havingValue = "log")
+public class SegmentLogTrackingNumberStore implements TrackingNumberStore {
+
+    private static final int MAGIC = 0x544E4C47;
+    private static final int VERSION = 1;
+    // magic, version, record size and the number of record slots
+    private static final int HEADER_BYTES = 16;
+
+    // record layout, the checksum covers everything after itself
+    private static final int CHECKSUM = 0;
+    private static final int MARKER = 4;
+    private static final int ORIGIN = 5;
+    private static final int DESTINATION = 6;
+    private static final int FLAGS = 7;
+    private static final int WEIGHT = 8;
+    private static final int CREATED_AT = 12;
+    private static final int UPDATED_AT = 24;
+    private static final int CUSTOMER_ID = 36;
+    private static final int TRACKING_ID = 52;
+    private static final int TRACKING_ID_BYTES = 32;
+    private static final int TEXT_BYTES = 128;
+    // names and slugs are a length, -1 for null, followed by up to TEXT_BYTES of UTF-8
+    private static final int CUSTOMER_NAME = TRACKING_ID + 1 + TRACKING_ID_BYTES;
+    private static final int CUSTOMER_SLUG = CUSTOMER_NAME + 2 + TEXT_BYTES;
+    private static final int RECORD_BYTES = 352;
+
+    private static final byte LIVE = 1;
+    private static final int HAS_WEIGHT = 1;
+    private static final int HAS_CREATED_AT = 2;
+    private static final int HAS_UPDATED_AT = 4;
+    private static final int HAS_CUSTOMER_ID = 8;
+
+    private static final Country[] COUNTRIES = Country.values();
+    private static final Comparator<TrackingNumber> CREATED_AT_ORDER = Comparator
+            .comparing(TrackingNumber::getCreatedAt)
+            .thenComparing(TrackingNumber::getTrackingId);
+
+    @Value("${tracking.store.log.dir}")
+    private String directory;
+    @Value("${tracking.store.log.segment.size}")
+    private DataSize segmentSize;
+    @Value("${tracking.store.log.force.interval}")
+    private Duration forceInterval;
+    @Value("${tracking.store.log.compaction.interval}")
+    private Duration compactionInterval;
+    @Value("${tracking.store.log.compaction.garbage.ratio}")
+    private double compactionGarbageRatio;
+
+    // scans share the read lock, appends and compaction take the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    // tracking ID to segment number in the high and slot in the low half
+    private final Map<String, Long> positions = new HashMap<>();
+    private int recordsPerSegment;
+    private Segment active;
+    private ScheduledExecutorService maintenanceExecutor;
+
+    @PostConstruct
+    public void start() {
+        recordsPerSegment = (int) Math.min(Integer.MAX_VALUE, (segmentSize.toBytes() - HEADER_BYTES) / RECORD_BYTES);
+        Path path = Path.of(directory);
+        List<Path> files;
+        try {
+            Files.createDirectories(path);
+            try (Stream<Path> listing = Files.list(path)) {
+                files = listing.filter(file -> file.getFileName().toString().matches("segment-\\d+\\.log"))
+                        .sorted()
+                        .toList();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open tracking number store " + path, e);
+        }
+        for (int i = 0; i < files.size(); i++) {
+            recover(Segment.open(files.get(i)), i == files.size() - 1);
+        }
+        active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+        log.info("Opened tracking number store {}: {} tracking numbers in {} segments", path, positions.size(),
+                segments.size());
+
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tracking-store-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!forceInterval.isZero()) {
+            maintenanceExecutor.scheduleWithFixedDelay(this::forcePeriodically, forceInterval.toMillis(),
+                    forceInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        maintenanceExecutor.scheduleWithFixedDelay(this::compactPeriodically, compactionInterval.toMillis(),
+                compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        maintenanceExecutor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            active.force();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public TrackingNumber save(TrackingNumber trackingNumber) {
+        checkEncodable(trackingNumber);
+        lock.writeLock().lock();
+        try {
+            append(trackingNumber);
+            forceIfRequired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return trackingNumber;
+    }
+
+    @Override
+    public void persistAll(List<TrackingNumber> trackingNumbers) {
+        Set<String> batch = new HashSet<>();
+        for (TrackingNumber trackingNumber : trackingNumbers) {
+            checkEncodable(trackingNumber);
+            if (!batch.add(trackingNumber.getTrackingId())) {
+                throw duplicate(trackingNumber);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            // checked before the first append, so a duplicate stores nothing
+            for (TrackingNumber trackingNumber : trackingNumbers) {
+                if (positions.containsKey(trackingNumber.getTrackingId())) {
+                    throw duplicate(trackingNumber);
+                }
+            }
+            for (TrackingNumber trackingNumber : trackingNumbers) {
+                append(trackingNumber);
+            }
+            forceIfRequired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<TrackingNumber> findById(String trackingId) {
+        lock.readLock().lock();
+        try {
+            Long position = positions.get(trackingId);
+            return position == null ? Optional.empty() : Optional.of(read(position));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<TrackingNumber> findAllById(Collection<String> trackingIds) {
+        lock.readLock().lock();
+        try {
+            List<TrackingNumber> found = new ArrayList<>(trackingIds.size());
+            for (String trackingId : trackingIds) {
+                Long position = positions.get(trackingId);
+                if (position != null) {
+                    found.add(read(position));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<TrackingNumber> findAll() {
+        return findByFilters(TrackingNumberFilter.builder().build());
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return positions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<TrackingNumber> findByFilters(TrackingNumberFilter filter) {
+        List<TrackingNumber> matches = new ArrayList<>();
+        scan(filter, matches::add);
+        return matches;
+    }
+
+    @Override
+    public List<TrackingNumber> findPage(TrackingNumberFilter filter, TrackingNumberCursor after, int limit) {
+        // the first limit rows after the cursor, with the last of them on top
+        PriorityQueue<TrackingNumber> page = new PriorityQueue<>(limit + 1, CREATED_AT_ORDER.reversed());
+        scan(filter, trackingNumber -> {
+            if (after != null && (trackingNumber.getCreatedAt().compareTo(after.getCreatedAt()) < 0
+                    || (trackingNumber.getCreatedAt().equals(after.getCreatedAt())
+                    && trackingNumber.getTrackingId().compareTo(after.getTrackingId()) <= 0))) {
+                return;
+            }
+            page.add(trackingNumber);
+            if (page.size() > limit) {
+                page.poll();
+            }
+        });
+        List<TrackingNumber> rows = new ArrayList<>(page);
+        rows.sort(CREATED_AT_ORDER);
+        return rows;
+    }
+
+    /**
+     * Sorts the matches in memory, unlike the database cursor memory grows with the number of matching rows.
+     */
+    @Override
+    public Stream<TrackingNumber> streamByFilters(TrackingNumberFilter filter, int fetchSize) {
+        List<TrackingNumber> matches = findByFilters(filter);
+        matches.sort(CREATED_AT_ORDER);
+        return matches.stream();
+    }
+
+    @Override
+    public List<TrackingNumberStats> aggregate(TrackingNumberFilter filter, TrackingNumberGrouping grouping,
+                                               int limit) {
+        Map<List<Object>, long[]> totals = new HashMap<>();
+        Map<UUID, String> names = new HashMap<>();
+        scan(filter, trackingNumber -> {
+            List<Object> key = switch (grouping) {
+                case LANE -> List.of(trackingNumber.getOriginCountryId(), trackingNumber.getDestinationCountryId());
+                case DAY -> List.of(trackingNumber.getCreatedAt().toLocalDateTime().toLocalDate());
+                case CUSTOMER -> List.of(trackingNumber.getCustomerId());
+            };
+            long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+            total[0]++;
+            total[1] += trackingNumber.getWeight() == null ? 0 : trackingNumber.getWeight();
+            if (grouping == TrackingNumberGrouping.CUSTOMER && trackingNumber.getCustomerName() != null) {
+                // like greatest(customer_name) of the query
+                names.merge(trackingNumber.getCustomerId(), trackingNumber.getCustomerName(),
+                        (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        });
+
+        List<TrackingNumberStats> stats = new ArrayList<>(totals.size());
+        totals.forEach((key, total) -> {
+            TrackingNumberStats.TrackingNumberStatsBuilder builder = TrackingNumberStats.builder()
+                    .withCount(total[0])
+                    .withTotalWeight(total[1]);
+            switch (grouping) {
+                case LANE -> builder.withOriginCountry((Country) key.get(0))
+                        .withDestinationCountry((Country) key.get(1));
+                case DAY -> builder.withDay((LocalDate) key.get(0));
+                case CUSTOMER -> builder.withCustomerId((UUID) key.get(0))
+                        .withCustomerName(names.get((UUID) key.get(0)));
+            }
+            stats.add(builder.build());
+        });
+        // the database stores countries by name and compares UUIDs as unsigned bytes
+        stats.sort(switch (grouping) {
+            case LANE -> Comparator.comparing((TrackingNumberStats lane) -> lane.getOriginCountry().name())
+                    .thenComparing(lane -> lane.getDestinationCountry().name());
+            case DAY -> Comparator.comparing(TrackingNumberStats::getDay);
+            case CUSTOMER -> Comparator.comparingLong(TrackingNumberStats::getCount).reversed()
+                    .thenComparing(TrackingNumberStats::getCustomerId, SegmentLogTrackingNumberStore::compareUnsigned);
+        });
+        return stats.size() > limit ? List.copyOf(stats.subList(0, limit)) : stats;
+    }
+
+    /**
+     * Rewrites sealed segments with enough garbage and deletes the emptied ones.
+     *
+     * @return The number of segments removed
+     */
+    public int compact() {
+        lock.writeLock().lock();
+        try {
+            List<Segment> candidates = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.garbageRatio() >= compactionGarbageRatio) {
+                    candidates.add(segment);
+                }
+            }
+            for (Segment segment : candidates) {
+                for (int slot = segment.live.nextSetBit(0); slot >= 0; slot = segment.live.nextSetBit(slot + 1)) {
+                    copy(segment, slot);
+                }
+            }
+            if (!candidates.isEmpty()) {
+                // the copies are on disk before the originals are gone
+                active.force();
+            }
+            for (Segment segment : candidates) {
+                segments.remove(segment.number);
+                segment.delete();
+                log.info("Compacted tracking number segment {}", segment.path);
+            }
+            return candidates.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recover(Segment segment, boolean newest) {
+        segments.put(segment.number, segment);
+        for (int slot = 0; slot < segment.capacity; slot++) {
+            int offset = segment.offset(slot);
+            if (segment.buffer.get(offset + MARKER) != LIVE) {
+                break;
+            }
+            if (segment.buffer.getInt(offset + CHECKSUM) != checksum(segment.buffer, offset)) {
+                if (!newest) {
+                    throw new IllegalStateException("Tracking number segment " + segment.path
+                            + " has a damaged record at slot " + slot);
+                }
+                log.warn("Dropping the torn end of tracking number segment {} from slot {}", segment.path, slot);
+                segment.truncate(slot);
+                break;
+            }
+            index(segment, slot, readTrackingId(segment, offset));
+            segment.used = slot + 1;
+        }
+        segment.forced = segment.used;
+    }
+
+    private void append(TrackingNumber trackingNumber) {
+        if (active.used == active.capacity) {
+            active.force();
+            active = roll();
+        }
+        int slot = active.used++;
+        write(active.buffer, active.offset(slot), trackingNumber);
+        index(active, slot, trackingNumber.getTrackingId());
+    }
+
+    private void copy(Segment from, int slot) {
+        if (active.used == active.capacity) {
+            active.force();
+            active = roll();
+        }
+        int target = active.used++;
+        byte[] record = new byte[RECORD_BYTES];
+        from.buffer.get(from.offset(slot), record);
+        active.buffer.put(active.offset(target), record);
+        index(active, target, readTrackingId(from, from.offset(slot)));
+    }
+
+    private void index(Segment segment, int slot, String trackingId) {
+        Long previous = positions.put(trackingId, (long) segment.number << 32 | slot);
+        segment.live.set(slot);
+        segment.liveCount++;
+        if (previous != null) {
+            Segment replaced = segments.get((int) (previous >>> 32));
+            replaced.live.clear((int) (long) previous);
+            replaced.liveCount--;
+        }
+    }
+
+    private Segment roll() {
+        int number = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Segment segment = Segment.create(Path.of(directory).resolve(String.format("segment-%010d.log", number)),
+                number, recordsPerSegment);
+        segments.put(number, segment);
+        return segment;
+    }
+
+    private void scan(TrackingNumberFilter filter, Consumer<TrackingNumber> consumer) {
+        Criteria criteria = new Criteria(filter);
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                MappedByteBuffer buffer = segment.buffer;
+                for (int slot = segment.live.nextSetBit(0); slot >= 0; slot = segment.live.nextSetBit(slot + 1)) {
+                    int offset = segment.offset(slot);
+                    if (criteria.matchesFixedFields(buffer, offset)) {
+                        TrackingNumber trackingNumber = decode(buffer, offset);
+                        if (criteria.matchesName(trackingNumber)) {
+                            consumer.accept(trackingNumber);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private TrackingNumber read(long position) {
+        Segment segment = segments.get((int) (position >>> 32));
+        return decode(segment.buffer, segment.offset((int) position));
+    }
+
+    private void forceIfRequired() {
+        if (forceInterval.isZero()) {
+            active.force();
+        }
+    }
+
+    private void forcePeriodically() {
+        lock.writeLock().lock();
+        try {
+            active.force();
+        } catch (RuntimeException e) {
+            log.warn("Could not force tracking number segment {}: {}", active.path, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactPeriodically() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.warn("Could not compact the tracking number store: {}", e.getMessage());
+        }
+    }
+
+    private static void write(MappedByteBuffer buffer, int offset, TrackingNumber trackingNumber) {
+        int flags = 0;
+        buffer.put(offset + ORIGIN, countryCode(trackingNumber.getOriginCountryId()));
+        buffer.put(offset + DESTINATION, countryCode(trackingNumber.getDestinationCountryId()));
+        if (trackingNumber.getWeight() != null) {
+            flags |= HAS_WEIGHT;
+            buffer.putInt(offset + WEIGHT, trackingNumber.getWeight());
+        }
+        if (trackingNumber.getCreatedAt() != null) {
+            flags |= HAS_CREATED_AT;
+            putTimestamp(buffer, offset + CREATED_AT, trackingNumber.getCreatedAt());
+        }
+        if (trackingNumber.getUpdatedAt() != null) {
+            flags |= HAS_UPDATED_AT;
+            putTimestamp(buffer, offset + UPDATED_AT, trackingNumber.getUpdatedAt());
+        }
+        if (trackingNumber.getCustomerId() != null) {
+            flags |= HAS_CUSTOMER_ID;
+            buffer.putLong(offset + CUSTOMER_ID, trackingNumber.getCustomerId().getMostSignificantBits());
+            buffer.putLong(offset + CUSTOMER_ID + 8, trackingNumber.getCustomerId().getLeastSignificantBits());
+        }
+        buffer.put(offset + FLAGS, (byte) flags);
+        byte[] trackingId = trackingNumber.getTrackingId().getBytes(StandardCharsets.UTF_8);
+        buffer.put(offset + TRACKING_ID, (byte) trackingId.length);
+        buffer.put(offset + TRACKING_ID + 1, trackingId);
+        putText(buffer, offset + CUSTOMER_NAME, trackingNumber.getCustomerName());
+        putText(buffer, offset + CUSTOMER_SLUG, trackingNumber.getCustomerSlug());
+        buffer.put(offset + MARKER, LIVE);
+        buffer.putInt(offset + CHECKSUM, checksum(buffer, offset));
+    }
+
+    private static TrackingNumber decode(MappedByteBuffer buffer, int offset) {
+        int flags = buffer.get(offset + FLAGS);
+        byte[] trackingId = new byte[buffer.get(offset + TRACKING_ID)];
+        buffer.get(offset + TRACKING_ID + 1, trackingId);
+        return TrackingNumber.builder()
+                .withTrackingId(new String(trackingId, StandardCharsets.UTF_8))
+                .withOriginCountryId(country(buffer.get(offset + ORIGIN)))
+                .withDestinationCountryId(country(buffer.get(offset + DESTINATION)))
+                .withWeight((flags & HAS_WEIGHT) == 0 ? null : buffer.getInt(offset + WEIGHT))
+                .withCreatedAt((flags & HAS_CREATED_AT) == 0 ? null : getTimestamp(buffer, offset + CREATED_AT))
+                .withUpdatedAt((flags & HAS_UPDATED_AT) == 0 ? null : getTimestamp(buffer, offset + UPDATED_AT))
+                .withCustomerId((flags & HAS_CUSTOMER_ID) == 0 ? null
+                        : new UUID(buffer.getLong(offset + CUSTOMER_ID), buffer.getLong(offset + CUSTOMER_ID + 8)))
+                .withCustomerName(getText(buffer, offset + CUSTOMER_NAME))
+                .withCustomerSlug(getText(buffer, offset + CUSTOMER_SLUG))
+                .build();
+    }
+
+    private static String readTrackingId(Segment segment, int offset) {
+        byte[] trackingId = new byte[segment.buffer.get(offset + TRACKING_ID)];
+        segment.buffer.get(offset + TRACKING_ID + 1, trackingId);
+        return new String(trackingId, StandardCharsets.UTF_8);
+    }
+
+    private static void checkEncodable(TrackingNumber trackingNumber) {
+        if (trackingNumber.getTrackingId() == null) {
+            throw new DataIntegrityViolationException("Tracking number has no tracking ID");
+        }
+        checkLength(trackingNumber, "tracking ID", trackingNumber.getTrackingId(), TRACKING_ID_BYTES);
+        checkLength(trackingNumber, "customer name", trackingNumber.getCustomerName(), TEXT_BYTES);
+        checkLength(trackingNumber, "customer slug", trackingNumber.getCustomerSlug(), TEXT_BYTES);
+    }
+
+    private static void checkLength(TrackingNumber trackingNumber, String field, String value, int maxBytes) {
+        if (value != null && value.getBytes(StandardCharsets.UTF_8).length > maxBytes) {
+            throw new DataIntegrityViolationException("The " + field + " of tracking number "
+                    + trackingNumber.getTrackingId() + " is longer than " + maxBytes + " bytes");
+        }
+    }
+
+    private static DuplicateKeyException duplicate(TrackingNumber trackingNumber) {
+        return new DuplicateKeyException("Tracking number " + trackingNumber.getTrackingId() + " is already stored");
+    }
+
+    private static byte countryCode(Country country) {
+        return (byte) (country == null ? 0 : country.ordinal() + 1);
+    }
+
+    private static Country country(byte code) {
+        return code == 0 ? null : COUNTRIES[code - 1];
+    }
+
+    private static void putTimestamp(MappedByteBuffer buffer, int offset, Timestamp timestamp) {
+        buffer.putLong(offset, timestamp.getTime());
+        buffer.putInt(offset + 8, timestamp.getNanos());
+    }
+
+    private static Timestamp getTimestamp(MappedByteBuffer buffer, int offset) {
+        Timestamp timestamp = new Timestamp(buffer.getLong(offset));
+        timestamp.setNanos(buffer.getInt(offset + 8));
+        return timestamp;
+    }
+
+    private static void putText(MappedByteBuffer buffer, int offset, String text) {
+        if (text == null) {
+            buffer.putShort(offset, (short) -1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort(offset, (short) bytes.length);
+        buffer.put(offset + 2, bytes);
+    }
+
+    private static String getText(MappedByteBuffer buffer, int offset) {
+        short length = buffer.getShort(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + MARKER, RECORD_BYTES - MARKER));
+        return (int) crc.getValue();
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        int most = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return most != 0 ? most : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * The filter in the form of the record fields, compared in mapped memory before a record is decoded.
+     */
+    private static final class Criteria {
+
+        private final byte origin;
+        private final byte destination;
+        private final Integer weight;
+        // created at as epoch millis, the day is [from, to)
+        private final long createdFrom;
+        private final long createdTo;
+        private final UUID customerId;
+        // lower-cased like the query's lower(customer_name) like %name%
+        private final String customerName;
+        private final String customerSlug;
+
+        private Criteria(TrackingNumberFilter filter) {
+            origin = filter.getOriginCountry() == null ? -1 : countryCode(filter.getOriginCountry());
+            destination = filter.getDestinationCountry() == null ? -1 : countryCode(filter.getDestinationCountry());
+            weight = filter.getWeight();
+            createdFrom = filter.getCreatedOn() == null ? Long.MIN_VALUE
+                    : Timestamp.valueOf(filter.getCreatedOn().atStartOfDay()).getTime();
+            createdTo = filter.getCreatedOn() == null ? Long.MAX_VALUE
+                    : Timestamp.valueOf(filter.getCreatedOn().plusDays(1).atStartOfDay()).getTime();
+            customerId = filter.getCustomerId();
+            customerName = filter.getCustomerName() == null ? null
+                    : filter.getCustomerName().toLowerCase(Locale.ROOT);
+            customerSlug = filter.getCustomerSlug();
+        }
+
+        private boolean matchesFixedFields(MappedByteBuffer buffer, int offset) {
+            int flags = buffer.get(offset + FLAGS);
+            if (origin >= 0 && buffer.get(offset + ORIGIN) != origin) {
+                return false;
+            }
+            if (destination >= 0 && buffer.get(offset + DESTINATION) != destination) {
+                return false;
+            }
+            if (weight != null && ((flags & HAS_WEIGHT) == 0 || buffer.getInt(offset + WEIGHT) != weight)) {
+                return false;
+            }
+            if (createdFrom != Long.MIN_VALUE) {
+                long createdAt = buffer.getLong(offset + CREATED_AT);
+                if ((flags & HAS_CREATED_AT) == 0 || createdAt < createdFrom || createdAt >= createdTo) {
+                    return false;
+                }
+            }
+            if (customerId != null && ((flags & HAS_CUSTOMER_ID) == 0
+                    || buffer.getLong(offset + CUSTOMER_ID) != customerId.getMostSignificantBits()
+                    || buffer.getLong(offset + CUSTOMER_ID + 8) != customerId.getLeastSignificantBits())) {
+                return false;
+            }
+            return customerSlug == null || customerSlug.equals(getText(buffer, offset + CUSTOMER_SLUG));
+        }
+
+        private boolean matchesName(TrackingNumber trackingNumber) {
+            return customerName == null || (trackingNumber.getCustomerName() != null
+                    && trackingNumber.getCustomerName().toLowerCase(Locale.ROOT).contains(customerName));
+        }
+    }
+
+    /**
+     * One segment file, mapped as a whole; slots at or after {@code used} are zero.
+     */
+    private static final class Segment {
+
+        private final Path path;
+        private final int number;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final BitSet live = new BitSet();
+        private int liveCount;
+        private int used;
+        // slots up to here are forced to disk
+        private int forced;
+
+        private Segment(Path path, int number, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        private static Segment create(Path path, int number, int capacity) {
+            try {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_BYTES + (long) capacity * RECORD_BYTES);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, RECORD_BYTES);
+                buffer.putInt(12, capacity);
+                buffer.force(0, HEADER_BYTES);
+                return new Segment(path, number, channel, buffer, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create tracking number segment " + path, e);
+            }
+        }
+
+        private static Segment open(Path path) {
+            String name = path.getFileName().toString();
+            int number = Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+            try {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || buffer.getInt(8) != RECORD_BYTES) {
+                    throw new IllegalStateException("Tracking number segment " + path + " is not a version "
+                            + VERSION + " segment of " + RECORD_BYTES + " byte records");
+                }
+                // segments keep the capacity they were created with
+                return new Segment(path, number, channel, buffer, buffer.getInt(12));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open tracking number segment " + path, e);
+            }
+        }
+
+        private int offset(int slot) {
+            return HEADER_BYTES + slot * RECORD_BYTES;
+        }
+
+        private double garbageRatio() {
+            return used == 0 ? 0 : 1 - (double) liveCount / used;
+        }
+
+        private void force() {
+            if (used > forced) {
+                buffer.force(offset(forced), (used - forced) * RECORD_BYTES);
+                forced = used;
+            }
+        }
+
+        private void truncate(int slot) {
+            byte[] zeros = new byte[RECORD_BYTES];
+            for (int dropped = slot; dropped < capacity; dropped++) {
+                buffer.put(offset(dropped), zeros);
+            }
+            buffer.force();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close tracking number segment {}: {}", path, e.getMessage());
+            }
+        }
+
+        private void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete compacted tracking number segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
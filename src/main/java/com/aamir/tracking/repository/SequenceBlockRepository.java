@@ -0,0 +1,19 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.SequenceBlock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SequenceBlockRepository extends JpaRepository<SequenceBlock, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SequenceBlock s WHERE s.sequenceName = :sequenceName")
+    Optional<SequenceBlock> findForUpdate(@Param("sequenceName") String sequenceName);
+}
@@ -0,0 +1,16 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+
+import java.util.List;
+
+public interface TrackingNumberBatchRepository {
+
+    /**
+     * Inserts new tracking numbers with {@code persist}, skipping the select-before-insert that
+     * {@code save} performs for assigned IDs. The persistence context is flushed and cleared every
+     * {@code hibernate.jdbc.batch_size} rows so the inserts go out as JDBC batches.
+     * Must be called inside a transaction.
+     */
+    void persistAll(List<TrackingNumber> trackingNumbers);
+}
@@ -0,0 +1,30 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+
+public class TrackingNumberBatchRepositoryImpl implements TrackingNumberBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    @Override
+    public void persistAll(List<TrackingNumber> trackingNumbers) {
+        for (int i = 0; i < trackingNumbers.size(); i++) {
+            entityManager.persist(trackingNumbers.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
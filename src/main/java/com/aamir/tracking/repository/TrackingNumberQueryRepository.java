@@ -0,0 +1,35 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberStats;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface TrackingNumberQueryRepository {
+
+    /**
+     * Seeks past {@code after} instead of skipping an offset, so every page costs the same whatever its depth.
+     *
+     * @param after Position of the last row of the previous page, null for the first page
+     * @return Up to {@code limit} tracking numbers matching the filter, ordered by created at and tracking ID
+     */
+    List<TrackingNumber> findPage(TrackingNumberFilter filter, TrackingNumberCursor after, int limit);
+
+    /**
+     * Streams every tracking number matching the filter in created at and tracking ID order. Rows are read
+     * from the cursor {@code fetchSize} at a time and detached once handed out, so memory stays flat however
+     * many rows match. Must be consumed and closed inside a transaction.
+     */
+    Stream<TrackingNumber> streamByFilters(TrackingNumberFilter filter, int fetchSize);
+
+    /**
+     * Counts and sums the weights of the matching tracking numbers with one {@code GROUP BY} in the database.
+     *
+     * @return Up to {@code limit} groups, lanes and days in key order, customers with the most tracking numbers first
+     */
+    List<TrackingNumberStats> aggregate(TrackingNumberFilter filter, TrackingNumberGrouping grouping, int limit);
+}
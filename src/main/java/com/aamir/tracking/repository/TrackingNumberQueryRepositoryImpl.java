@@ -0,0 +1,124 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.util.Country;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.JpaExpression;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class TrackingNumberQueryRepositoryImpl implements TrackingNumberQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TrackingNumber> findPage(TrackingNumberFilter filter, TrackingNumberCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TrackingNumber> query = cb.createQuery(TrackingNumber.class);
+        Root<TrackingNumber> root = query.from(TrackingNumber.class);
+        Predicate predicate = TrackingNumberSpecifications.matching(filter).toPredicate(root, query, cb);
+        if (after != null) {
+            // (created_at, tracking_id) > (:createdAt, :trackingId)
+            predicate = cb.and(predicate, cb.or(
+                    cb.greaterThan(root.get("createdAt"), after.getCreatedAt()),
+                    cb.and(cb.equal(root.get("createdAt"), after.getCreatedAt()),
+                            cb.greaterThan(root.get("trackingId"), after.getTrackingId()))));
+        }
+        query.where(predicate).orderBy(cb.asc(root.get("createdAt")), cb.asc(root.get("trackingId")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<TrackingNumber> streamByFilters(TrackingNumberFilter filter, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TrackingNumber> query = cb.createQuery(TrackingNumber.class);
+        Root<TrackingNumber> root = query.from(TrackingNumber.class);
+        query.where(TrackingNumberSpecifications.matching(filter).toPredicate(root, query, cb))
+                .orderBy(cb.asc(root.get("createdAt")), cb.asc(root.get("trackingId")));
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                // nothing is lazily loaded, so rows can leave the persistence context straight away
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    public List<TrackingNumberStats> aggregate(TrackingNumberFilter filter, TrackingNumberGrouping grouping,
+                                               int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<TrackingNumber> root = query.from(TrackingNumber.class);
+        List<Expression<?>> keys = switch (grouping) {
+            case LANE -> List.of(root.get("originCountryId"), root.get("destinationCountryId"));
+            // cast(created_at as date), JPA's as() would only change the Java type
+            case DAY -> List.of(((JpaExpression<Timestamp>) root.<Timestamp>get("createdAt")).cast(LocalDate.class));
+            case CUSTOMER -> List.of(root.get("customerId"));
+        };
+        Expression<Long> count = cb.count(root);
+        List<Selection<?>> selections = new ArrayList<>(keys);
+        if (grouping == TrackingNumberGrouping.CUSTOMER) {
+            // the name is not part of the key, a renamed customer still counts as one
+            selections.add(cb.greatest(root.<String>get("customerName")));
+        }
+        selections.add(count);
+        selections.add(cb.sumAsLong(root.get("weight")));
+
+        query.multiselect(selections)
+                .where(TrackingNumberSpecifications.matching(filter).toPredicate(root, query, cb))
+                .groupBy(keys);
+        if (grouping == TrackingNumberGrouping.CUSTOMER) {
+            query.orderBy(cb.desc(count), cb.asc(keys.get(0)));
+        } else {
+            query.orderBy(keys.stream().map(cb::asc).toList());
+        }
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(tuple -> toStats(grouping, tuple))
+                .toList();
+    }
+
+    private static TrackingNumberStats toStats(TrackingNumberGrouping grouping, Tuple tuple) {
+        TrackingNumberStats.TrackingNumberStatsBuilder stats = TrackingNumberStats.builder();
+        int column = 0;
+        switch (grouping) {
+            case LANE -> stats.withOriginCountry(tuple.get(column++, Country.class))
+                    .withDestinationCountry(tuple.get(column++, Country.class));
+            case DAY -> stats.withDay(toLocalDate(tuple.get(column++)));
+            case CUSTOMER -> stats.withCustomerId(tuple.get(column++, UUID.class))
+                    .withCustomerName(tuple.get(column++, String.class));
+        }
+        Long totalWeight = tuple.get(column + 1, Long.class);
+        return stats.withCount(tuple.get(column, Long.class))
+                .withTotalWeight(totalWeight == null ? 0 : totalWeight)
+                .build();
+    }
+
+    private static LocalDate toLocalDate(Object day) {
+        return day instanceof Date date ? date.toLocalDate() : (LocalDate) day;
+    }
+}
@@ -0,0 +1,53 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds tracking number queries that only contain the predicates actually supplied, so every combination of
+ * filters gets its own plan and the indexed columns are compared directly.
+ */
+public final class TrackingNumberSpecifications {
+
+    private TrackingNumberSpecifications() {
+    }
+
+    public static Specification<TrackingNumber> matching(TrackingNumberFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getOriginCountry() != null) {
+                predicates.add(cb.equal(root.get("originCountryId"), filter.getOriginCountry()));
+            }
+            if (filter.getDestinationCountry() != null) {
+                predicates.add(cb.equal(root.get("destinationCountryId"), filter.getDestinationCountry()));
+            }
+            if (filter.getWeight() != null) {
+                predicates.add(cb.equal(root.get("weight"), filter.getWeight()));
+            }
+            if (filter.getCreatedOn() != null) {
+                // half-open [day, day + 1) range instead of formatting the column
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"),
+                        Timestamp.valueOf(filter.getCreatedOn().atStartOfDay())));
+                predicates.add(cb.lessThan(root.get("createdAt"),
+                        Timestamp.valueOf(filter.getCreatedOn().plusDays(1).atStartOfDay())));
+            }
+            if (filter.getCustomerId() != null) {
+                predicates.add(cb.equal(root.get("customerId"), filter.getCustomerId()));
+            }
+            if (filter.getCustomerName() != null) {
+                predicates.add(cb.like(cb.lower(root.get("customerName")), filter.customerNamePattern(),
+                        TrackingNumberFilter.LIKE_ESCAPE));
+            }
+            if (filter.getCustomerSlug() != null) {
+                predicates.add(cb.equal(root.get("customerSlug"), filter.getCustomerSlug()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Where tracking numbers are kept. The services only talk to this interface; {@code tracking.store.type} selects
+ * the implementation, {@code jpa} for the relational database behind {@link TrackingNumberRepository} or
+ * {@code log} for the embedded {@link SegmentLogTrackingNumberStore}.
+ */
+public interface TrackingNumberStore {
+
+    /**
+     * Stores a new tracking number or replaces the stored one with the same tracking ID.
+     */
+    TrackingNumber save(TrackingNumber trackingNumber);
+
+    /**
+     * Inserts new tracking numbers, all or none of them.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if a tracking ID is already stored
+     */
+    void persistAll(List<TrackingNumber> trackingNumbers);
+
+    Optional<TrackingNumber> findById(String trackingId);
+
+    /**
+     * @return The stored tracking numbers among the IDs, in no particular order
+     */
+    List<TrackingNumber> findAllById(Collection<String> trackingIds);
+
+    List<TrackingNumber> findAll();
+
+    long count();
+
+    /**
+     * @return Every tracking number matching the filter, in no particular order
+     */
+    List<TrackingNumber> findByFilters(TrackingNumberFilter filter);
+
+    /**
+     * @param after Position of the last row of the previous page, null for the first page
+     * @return Up to {@code limit} tracking numbers matching the filter, ordered by created at and tracking ID
+     */
+    List<TrackingNumber> findPage(TrackingNumberFilter filter, TrackingNumberCursor after, int limit);
+
+    /**
+     * Streams every tracking number matching the filter in created at and tracking ID order. The stream must be
+     * closed, and consumed inside a transaction for the {@code jpa} store.
+     */
+    Stream<TrackingNumber> streamByFilters(TrackingNumberFilter filter, int fetchSize);
+
+    /**
+     * @return Up to {@code limit} groups, lanes and days in key order, customers with the most tracking numbers first
+     */
+    List<TrackingNumberStats> aggregate(TrackingNumberFilter filter, TrackingNumberGrouping grouping, int limit);
+}
@@ -0,0 +1,28 @@
+package com.aamir.tracking.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a customer has used up its request quota. The caller is told when its next request would be
+ * admitted rather than that the service is unavailable.
+ */
+@Getter
+public class CustomerThrottledException extends RejectedExecutionException {
+
+    private final Duration retryAfter;
+
+    public CustomerThrottledException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return The wait in whole seconds for a Retry-After header, rounded up so the retry is admitted
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,14 @@
+package com.aamir.tracking.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a new tracking number cannot be queued for the write-behind writer because the queue is full.
+ * Unlike other rejections the caller is told to slow down rather than that the service is unavailable.
+ */
+public class IngestQueueFullException extends RejectedExecutionException {
+
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
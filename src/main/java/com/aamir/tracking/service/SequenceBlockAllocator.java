@@ -0,0 +1,29 @@
+package com.aamir.tracking.service;
+
+import com.aamir.tracking.model.SequenceRange;
+
+public interface SequenceBlockAllocator {
+
+    /**
+     * Reserves the next block of values for a sequence. Blocks returned for the same sequence
+     * never overlap and always start at or above the end of the previous one.
+     *
+     * @param sequenceName The sequence to reserve from
+     * @param startRange   The lowest value the sequence may hand out
+     * @param endRange     The exclusive upper bound of the sequence
+     * @param blockSize    The least number of values to reserve, capped at {@code endRange}; an allocator
+     *                     may reserve more
+     * @return The reserved range
+     * @throws SequenceExhaustedException if the sequence has reached {@code endRange}
+     */
+    SequenceRange allocate(String sequenceName, long startRange, long endRange, int blockSize);
+
+    /**
+     * @param configuredInstanceId The instance ID from {@code tracking.id.instance.id}
+     * @return The instance ID tracking IDs are issued under, the configured one unless the allocator
+     * assigns instance IDs itself
+     */
+    default String instanceId(String configuredInstanceId) {
+        return configuredInstanceId;
+    }
+}
@@ -0,0 +1,12 @@
+package com.aamir.tracking.service;
+
+/**
+ * Thrown when a sequence has handed out the last value of its range. It stays exhausted until the range is moved,
+ * so callers are told the service cannot issue IDs rather than that their request was wrong.
+ */
+public class SequenceExhaustedException extends IllegalStateException {
+
+    public SequenceExhaustedException(String message) {
+        super(message);
+    }
+}
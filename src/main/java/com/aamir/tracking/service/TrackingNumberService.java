@@ -3,21 +3,82 @@ package com.aamir.tracking.service;
 
 import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
 import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberBulkResult;
+import com.aamir.tracking.model.TrackingNumberPage;
+import com.aamir.tracking.model.TrackingNumberRange;
+import com.aamir.tracking.model.TrackingNumberStats;
 import com.aamir.tracking.util.Country;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 
 public interface TrackingNumberService {
 
     String getNextTrackingNumber();
 
+    List<String> getNextTrackingNumbers(int count);
+
+    TrackingNumberRange getNextTrackingNumberRange(int count);
+
     List<TrackingNumber> getAllTrackingNumbers();
 
+    /**
+     * @return The tracking number with the ID, served from the cache when it was looked up recently
+     */
+    Optional<TrackingNumber> getTrackingNumber(String trackingId);
+
     TrackingNumber createNextTrackingNumber(TrackingNumberRequest request);
 
+    /**
+     * Builds the tracking number of a request with the next ID of its lane, without storing it. Callers storing it
+     * themselves report it through {@link #trackingNumberStored(TrackingNumber)}.
+     */
+    TrackingNumber newTrackingNumber(TrackingNumberRequest request);
+
+    /**
+     * Makes a tracking number stored outside this service visible to the lookup cache, the recent stats and the
+     * filter index.
+     */
+    void trackingNumberStored(TrackingNumber trackingNumber);
+
+    TrackingNumberBulkResult createTrackingNumbers(List<TrackingNumberRequest> requests);
+
     List<TrackingNumber> filterTrackingNumbers(Country originCountry, Country destinationCountry, String weight,
                                                String createdAt, String customerId, String customerName,
                                                String customerSlug);
+
+    /**
+     * @param cursor The next cursor of the previous page, null or empty for the first page
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is out of bounds
+     */
+    TrackingNumberPage filterTrackingNumberPage(Country originCountry, Country destinationCountry, String weight,
+                                                String createdAt, String customerId, String customerName,
+                                                String customerSlug, String cursor, int limit);
+
+    /**
+     * Hands every matching tracking number to the consumer in created at and tracking ID order without
+     * collecting them first.
+     */
+    void exportTrackingNumbers(Country originCountry, Country destinationCountry, String weight, String createdAt,
+                               String customerId, String customerName, String customerSlug,
+                               Consumer<TrackingNumber> consumer);
+
+    /**
+     * Counts the matching tracking numbers and sums their weights per lane, day of creation or customer.
+     *
+     * @param groupBy {@code lane}, {@code day} or {@code customer}
+     * @throws IllegalArgumentException if the grouping is unknown
+     */
+    List<TrackingNumberStats> aggregateTrackingNumbers(String groupBy, Country originCountry,
+                                                       Country destinationCountry, String weight, String createdAt,
+                                                       String customerId, String customerName, String customerSlug);
+
+    /**
+     * @return Per-lane volumes of the tracking numbers this instance created within the rollup window
+     * @throws IllegalArgumentException if the rollup is disabled
+     */
+    List<TrackingNumberStats> getRecentLaneStats();
 }
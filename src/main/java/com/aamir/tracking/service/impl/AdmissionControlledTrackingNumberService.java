@@ -0,0 +1,168 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberBulkResult;
+import com.aamir.tracking.model.TrackingNumberPage;
+import com.aamir.tracking.model.TrackingNumberRange;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.service.TrackingNumberService;
+import com.aamir.tracking.util.Country;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Admission limit in front of {@link TrackingNumberServiceImpl} when requests run on virtual threads, that is
+ * with {@code spring.threads.virtual.enabled=true} on Java 21; on older runtimes the property is ignored and so is
+ * this limit. Virtual threads take away the request thread pool that used to bound concurrency, so every call
+ * first takes a permit and callers that cannot get one within the timeout are rejected instead of queueing on the
+ * connection pool. Streaming exports hold their permit for as long as the client reads, minutes for a large one, so
+ * they take it from a small pool of their own and cannot starve {@code /create}.
+ */
+@Service
+@Primary
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class AdmissionControlledTrackingNumberService implements TrackingNumberService {
+
+    private final TrackingNumberService delegate;
+    private final Semaphore permits;
+    private final Semaphore exportPermits;
+    private final long timeoutMillis;
+
+    public AdmissionControlledTrackingNumberService(
+            @Qualifier("trackingNumberServiceImpl") TrackingNumberService delegate,
+            @Value("${tracking.admission.permits}") int permits,
+            @Value("${tracking.admission.export.permits}") int exportPermits,
+            @Value("${tracking.admission.timeout.ms}") long timeoutMillis) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(permits, true);
+        this.exportPermits = new Semaphore(exportPermits, true);
+        this.timeoutMillis = timeoutMillis;
+        log.info("Admitting at most {} concurrent tracking number calls and {} exports", permits, exportPermits);
+    }
+
+    @Override
+    public String getNextTrackingNumber() {
+        return admit(delegate::getNextTrackingNumber);
+    }
+
+    @Override
+    public List<String> getNextTrackingNumbers(int count) {
+        return admit(() -> delegate.getNextTrackingNumbers(count));
+    }
+
+    @Override
+    public TrackingNumberRange getNextTrackingNumberRange(int count) {
+        return admit(() -> delegate.getNextTrackingNumberRange(count));
+    }
+
+    @Override
+    public List<TrackingNumber> getAllTrackingNumbers() {
+        return admit(delegate::getAllTrackingNumbers);
+    }
+
+    @Override
+    public Optional<TrackingNumber> getTrackingNumber(String trackingId) {
+        return admit(() -> delegate.getTrackingNumber(trackingId));
+    }
+
+    @Override
+    public TrackingNumber createNextTrackingNumber(TrackingNumberRequest request) {
+        return admit(() -> delegate.createNextTrackingNumber(request));
+    }
+
+    @Override
+    public TrackingNumber newTrackingNumber(TrackingNumberRequest request) {
+        return admit(() -> delegate.newTrackingNumber(request));
+    }
+
+    @Override
+    public void trackingNumberStored(TrackingNumber trackingNumber) {
+        delegate.trackingNumberStored(trackingNumber);
+    }
+
+    @Override
+    public TrackingNumberBulkResult createTrackingNumbers(List<TrackingNumberRequest> requests) {
+        return admit(() -> delegate.createTrackingNumbers(requests));
+    }
+
+    @Override
+    public List<TrackingNumber> filterTrackingNumbers(Country originCountry, Country destinationCountry, String weight,
+                                                     String createdAt, String customerId, String customerName,
+                                                     String customerSlug) {
+        return admit(() -> delegate.filterTrackingNumbers(originCountry, destinationCountry, weight, createdAt,
+                customerId, customerName, customerSlug));
+    }
+
+    @Override
+    public TrackingNumberPage filterTrackingNumberPage(Country originCountry, Country destinationCountry,
+                                                       String weight, String createdAt, String customerId,
+                                                       String customerName, String customerSlug, String cursor,
+                                                       int limit) {
+        return admit(() -> delegate.filterTrackingNumberPage(originCountry, destinationCountry, weight, createdAt,
+                customerId, customerName, customerSlug, cursor, limit));
+    }
+
+    @Override
+    public void exportTrackingNumbers(Country originCountry, Country destinationCountry, String weight,
+                                      String createdAt, String customerId, String customerName, String customerSlug,
+                                      Consumer<TrackingNumber> consumer) {
+        admit(exportPermits, () -> {
+            delegate.exportTrackingNumbers(originCountry, destinationCountry, weight, createdAt, customerId,
+                    customerName, customerSlug, consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public List<TrackingNumberStats> aggregateTrackingNumbers(String groupBy, Country originCountry,
+                                                              Country destinationCountry, String weight,
+                                                              String createdAt, String customerId,
+                                                              String customerName, String customerSlug) {
+        return admit(() -> delegate.aggregateTrackingNumbers(groupBy, originCountry, destinationCountry, weight,
+                createdAt, customerId, customerName, customerSlug));
+    }
+
+    @Override
+    public List<TrackingNumberStats> getRecentLaneStats() {
+        // served from memory, nothing to protect
+        return delegate.getRecentLaneStats();
+    }
+
+    /**
+     * @throws RejectedExecutionException if no permit became available within the timeout
+     */
+    private <T> T admit(Supplier<T> call) {
+        return admit(permits, call);
+    }
+
+    private <T> T admit(Semaphore permits, Supplier<T> call) {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Too many concurrent requests, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for admission", e);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
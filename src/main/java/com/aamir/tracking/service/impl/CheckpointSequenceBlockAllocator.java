@@ -0,0 +1,266 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.SequenceRange;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the sequence high-water marks in a small memory-mapped checkpoint file instead of the database, so a
+ * restart resumes every lane without a query and reserving a block costs a write to mapped memory.
+ * <p>
+ * Every sequence owns a slot holding its name and two checksummed copies of its mark, written alternately, so
+ * a write torn by a crash always leaves the previous copy intact. Writes reach the page cache at once and
+ * survive a crash of the process; they are forced to disk every {@code tracking.id.checkpoint.force.interval}
+ * and whenever the values reserved since the last force would exceed {@code tracking.id.checkpoint.safety.gap}.
+ * A file that was not closed cleanly may therefore lag behind by at most the gap, and on boot every mark is
+ * moved forward by it, so values handed out before a power loss are never issued again.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "tracking.id.block.store", havingValue = "checkpoint")
+public class CheckpointSequenceBlockAllocator implements SequenceBlockAllocator {
+
+    private static final int MAGIC = 0x544E4350;
+    private static final int VERSION = 1;
+    // magic, version, slot count and the clean shutdown flag
+    private static final int HEADER_BYTES = 16;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int NAME_BYTES = 16;
+    // a mark and the checksum of slot, name, copy and mark
+    private static final int COPY_BYTES = 12;
+    private static final int SLOT_BYTES = NAME_BYTES + 2 * COPY_BYTES;
+
+    @Value("${tracking.id.checkpoint.file}")
+    private String file;
+    // number of sequences the file can hold, fixed when the file is created
+    @Value("${tracking.id.checkpoint.slots}")
+    private int slots;
+    @Value("${tracking.id.checkpoint.safety.gap}")
+    private long safetyGap;
+    @Value("${tracking.id.checkpoint.force.interval}")
+    private Duration forceInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Slot> slotsByName = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    // values reserved since the last force, at most the safety gap
+    private long unforced;
+    private ScheduledExecutorService forceExecutor;
+
+    @PostConstruct
+    public void start() {
+        Path path = Path.of(file);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            boolean created = !Files.exists(path);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) slots * SLOT_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map sequence checkpoint " + path, e);
+        }
+        if (buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, slots);
+            buffer.putInt(CLEAN_OFFSET, 1);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != slots) {
+            throw new IllegalStateException("Sequence checkpoint " + path + " is not a version " + VERSION
+                    + " checkpoint with " + slots + " slots");
+        }
+        restore(path);
+
+        forceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sequence-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        forceExecutor.scheduleAtFixedRate(this::forcePeriodically, forceInterval.toMillis(), forceInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        forceExecutor.shutdownNow();
+        lock.lock();
+        try {
+            buffer.force();
+            // the marks on disk are exact, the next start needs no safety gap
+            buffer.putInt(CLEAN_OFFSET, 1);
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close sequence checkpoint {}: {}", file, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SequenceRange allocate(String sequenceName, long startRange, long endRange, int blockSize) {
+        lock.lock();
+        try {
+            Slot slot = slotsByName.get(sequenceName);
+            if (slot == null) {
+                slot = assign(sequenceName, startRange);
+            }
+            long start = Math.max(slot.mark, startRange);
+            if (start >= endRange) {
+                throw new SequenceExhaustedException("Tracking number sequence exhausted: reached end of range");
+            }
+            long end = Math.min(start + blockSize, endRange);
+            write(slot, end);
+            unforced += end - start;
+            if (unforced > safetyGap) {
+                force();
+            }
+            log.debug("Reserved sequence block {} [{}, {})", sequenceName, start, end);
+            return new SequenceRange(start, end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void restore(Path path) {
+        boolean clean = buffer.getInt(CLEAN_OFFSET) == 1;
+        for (int index = 0; index < slots; index++) {
+            String name = readName(index);
+            if (name.isEmpty()) {
+                continue;
+            }
+            long mark = -1;
+            for (int copy = 0; copy < 2; copy++) {
+                int offset = copyOffset(index, copy);
+                long value = buffer.getLong(offset);
+                if (buffer.getInt(offset + 8) == checksum(index, name, copy, value)) {
+                    mark = Math.max(mark, value);
+                }
+            }
+            if (mark < 0) {
+                throw new IllegalStateException("Sequence checkpoint " + path + " has no intact mark for " + name);
+            }
+            Slot slot = new Slot(index, name);
+            slotsByName.put(name, slot);
+            write(slot, clean ? mark : mark + safetyGap);
+        }
+        if (!clean && !slotsByName.isEmpty()) {
+            log.warn("Sequence checkpoint {} was not closed cleanly, resuming {} sequences {} values ahead", path,
+                    slotsByName.size(), safetyGap);
+        }
+        buffer.putInt(CLEAN_OFFSET, 0);
+        buffer.force();
+        log.info("Restored {} sequences from checkpoint {}", slotsByName.size(), path);
+    }
+
+    /**
+     * Gives a new sequence the next free slot. The slot is forced at once: a name lost in a power failure
+     * would restart the sequence from its start range.
+     */
+    private Slot assign(String sequenceName, long startRange) {
+        byte[] name = sequenceName.getBytes(StandardCharsets.US_ASCII);
+        if (name.length > NAME_BYTES) {
+            throw new IllegalStateException("Sequence name " + sequenceName + " is longer than " + NAME_BYTES
+                    + " characters");
+        }
+        if (slotsByName.size() == slots) {
+            throw new IllegalStateException("Sequence checkpoint " + file + " has no free slot for " + sequenceName);
+        }
+        Slot slot = new Slot(slotsByName.size(), sequenceName);
+        buffer.put(slot.index * SLOT_BYTES + HEADER_BYTES, name);
+        write(slot, startRange);
+        write(slot, startRange);
+        force();
+        slotsByName.put(sequenceName, slot);
+        return slot;
+    }
+
+    private void write(Slot slot, long mark) {
+        int copy = slot.writes++ & 1;
+        int offset = copyOffset(slot.index, copy);
+        buffer.putLong(offset, mark);
+        buffer.putInt(offset + 8, checksum(slot.index, slot.name, copy, mark));
+        slot.mark = mark;
+    }
+
+    private void forcePeriodically() {
+        lock.lock();
+        try {
+            if (unforced > 0) {
+                force();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not force sequence checkpoint {}: {}", file, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void force() {
+        buffer.force();
+        unforced = 0;
+    }
+
+    private String readName(int index) {
+        byte[] name = new byte[NAME_BYTES];
+        buffer.get(HEADER_BYTES + index * SLOT_BYTES, name);
+        int length = 0;
+        while (length < NAME_BYTES && name[length] != 0) {
+            length++;
+        }
+        return new String(name, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static int copyOffset(int index, int copy) {
+        return HEADER_BYTES + index * SLOT_BYTES + NAME_BYTES + copy * COPY_BYTES;
+    }
+
+    private static int checksum(int index, String name, int copy, long mark) {
+        CRC32 crc = new CRC32();
+        crc.update(index);
+        crc.update(name.getBytes(StandardCharsets.US_ASCII));
+        crc.update(copy);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (mark >>> shift));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static final class Slot {
+
+        private final int index;
+        private final String name;
+        private long mark;
+        private int writes;
+
+        private Slot(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.service.CustomerThrottledException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per customer in front of ID generation, so one customer cannot use up the range or the
+ * database for everyone else. Every customer may send {@code burst} requests at once and {@code rate} per second
+ * after that, a request for several tracking numbers counts once per number. Customers listed under
+ * {@code tracking.customer.limit.quotas} get their own rate and burst, and requests that name no customer share the
+ * {@value #ANONYMOUS} bucket.
+ * <p>
+ * A bucket is a single timestamp, the time at which it would be full again, moved forward with compare-and-set
+ * (the generic cell rate algorithm), so admitting a request takes no lock. Buckets live in a Caffeine cache
+ * bounded by {@code tracking.customer.limit.max.customers}; a bucket idle for long enough to refill is dropped,
+ * as recreating it full changes nothing.
+ */
+@Component
+@Slf4j
+public class CustomerRateLimiter {
+
+    public static final String ANONYMOUS = "anonymous";
+    // customers without a quota of their own share one set of meters, a tag per customer would not stay bounded
+    private static final String OTHER = "other";
+
+    private final boolean enabled;
+    private final LongSupplier clock;
+    private final Quota defaultQuota;
+    private final Map<String, Quota> quotas = new HashMap<>();
+    private final Cache<String, Bucket> buckets;
+
+    @Autowired
+    public CustomerRateLimiter(MeterRegistry registry,
+                               @Value("${tracking.customer.limit.enabled}") boolean enabled,
+                               @Value("${tracking.customer.limit.rate}") double rate,
+                               @Value("${tracking.customer.limit.burst}") int burst,
+                               @Value("${tracking.customer.limit.max.customers}") long maxCustomers,
+                               @Value("${tracking.customer.limit.quotas}") String quotas) {
+        this(registry, enabled, rate, burst, maxCustomers, quotas, System::nanoTime);
+    }
+
+    CustomerRateLimiter(MeterRegistry registry, boolean enabled, double rate, int burst, long maxCustomers,
+                        String quotas, LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        this.defaultQuota = new Quota(registry, OTHER, rate, burst);
+        long refill = defaultQuota.toleranceNanos;
+        for (String entry : quotas.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] customerAndQuota = entry.trim().split("=");
+            String[] rateAndBurst = customerAndQuota.length == 2 ? customerAndQuota[1].split("/") : new String[0];
+            if (rateAndBurst.length != 2) {
+                throw new IllegalStateException("Customer quotas must look like <customer>=<rate>/<burst>: " + entry);
+            }
+            try {
+                Quota quota = new Quota(registry, customerAndQuota[0], Double.parseDouble(rateAndBurst[0]),
+                        Integer.parseInt(rateAndBurst[1]));
+                this.quotas.put(customerAndQuota[0], quota);
+                refill = Math.max(refill, quota.toleranceNanos);
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Customer quotas must look like <customer>=<rate>/<burst>: " + entry);
+            }
+        }
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxCustomers)
+                .expireAfterAccess(refill, TimeUnit.NANOSECONDS)
+                .ticker(clock::getAsLong)
+                .build();
+        Gauge.builder("tracking.customer.buckets", buckets, Cache::estimatedSize)
+                .description("Customers with a request bucket held in memory")
+                .register(registry);
+        if (enabled) {
+            log.info("Limiting customers to {} requests per second with bursts of {}, {} customers with own quotas",
+                    rate, burst, this.quotas.size());
+        }
+    }
+
+    /**
+     * Takes one request from the customer's bucket.
+     *
+     * @param customerId The customer the request is made for, {@code null} for requests that name none
+     * @throws CustomerThrottledException if the bucket is empty, with the time until it holds a request again
+     */
+    public void acquire(String customerId) {
+        acquire(customerId, 1);
+    }
+
+    /**
+     * Takes {@code permits} requests from the customer's bucket at once, or none of them.
+     *
+     * @param customerId The customer the requests are made for, {@code null} for requests that name none
+     * @throws IllegalArgumentException   if the customer's burst is smaller than {@code permits}, so they could never
+     *                                    be taken
+     * @throws CustomerThrottledException if the bucket holds fewer than {@code permits}, with the time until it holds
+     *                                    them
+     */
+    public void acquire(String customerId, int permits) {
+        if (!enabled) {
+            return;
+        }
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Requests to take must be greater than 0");
+        }
+        String customer = customerOf(customerId);
+        Bucket bucket = buckets.get(customer, this::newBucket);
+        if (permits > bucket.quota.burst) {
+            throw new IllegalArgumentException("Cannot take " + permits + " requests at once, customer " + customer
+                    + " may send at most " + bucket.quota.burst);
+        }
+        long wait = bucket.take(clock.getAsLong(), permits);
+        if (wait > 0) {
+            throw throttled(customer, bucket, wait);
+        }
+        bucket.quota.admitted.increment();
+    }
+
+    /**
+     * Takes one request from the bucket of every customer named, a customer named several times counts once. Either
+     * every bucket is charged or, if one of them is empty, none is.
+     *
+     * @param customerIds The customers of the request, {@code null} for parts that name none
+     * @throws CustomerThrottledException if a bucket is empty, with the time until it holds a request again
+     */
+    public void acquireEach(Collection<String> customerIds) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> customers = new LinkedHashSet<>();
+        for (String customerId : customerIds) {
+            customers.add(customerOf(customerId));
+        }
+        List<Bucket> charged = new ArrayList<>(customers.size());
+        for (String customer : customers) {
+            Bucket bucket = buckets.get(customer, this::newBucket);
+            long wait = bucket.take(clock.getAsLong(), 1);
+            if (wait > 0) {
+                charged.forEach(Bucket::giveBack);
+                throw throttled(customer, bucket, wait);
+            }
+            charged.add(bucket);
+        }
+        charged.forEach(bucket -> bucket.quota.admitted.increment());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long trackedCustomers() {
+        return buckets.estimatedSize();
+    }
+
+    /**
+     * @return The customers held in memory that were throttled most often, most throttled first
+     */
+    public List<ThrottledCustomer> mostThrottled(int limit) {
+        return buckets.asMap().entrySet().stream()
+                .filter(entry -> entry.getValue().throttled.sum() > 0)
+                .map(entry -> new ThrottledCustomer(entry.getKey(), entry.getValue().throttled.sum(),
+                        entry.getValue().quota.rate, entry.getValue().quota.burst))
+                .sorted(Comparator.comparingLong(ThrottledCustomer::throttled).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static String customerOf(String customerId) {
+        return customerId == null || customerId.isBlank() ? ANONYMOUS : customerId;
+    }
+
+    private static CustomerThrottledException throttled(String customer, Bucket bucket, long wait) {
+        bucket.throttled.increment();
+        bucket.quota.throttled.increment();
+        return new CustomerThrottledException("Request quota of customer " + customer + " exceeded",
+                Duration.ofNanos(wait));
+    }
+
+    private Bucket newBucket(String customer) {
+        return new Bucket(quotas.getOrDefault(customer, defaultQuota), clock.getAsLong());
+    }
+
+    public record ThrottledCustomer(String customerId, long throttled, double rate, int burst) {
+    }
+
+    private static final class Quota {
+
+        private final double rate;
+        private final int burst;
+        // time one request takes to come back into the bucket
+        private final long intervalNanos;
+        // how far the bucket may run ahead of the clock, a full burst
+        private final long toleranceNanos;
+        private final Counter admitted;
+        private final Counter throttled;
+
+        private Quota(MeterRegistry registry, String customer, double rate, int burst) {
+            if (rate <= 0 || burst <= 0) {
+                throw new IllegalStateException("Customer rate and burst must be greater than 0");
+            }
+            this.rate = rate;
+            this.burst = burst;
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            this.toleranceNanos = intervalNanos * burst;
+            this.admitted = requests(registry, customer, "admitted");
+            this.throttled = requests(registry, customer, "throttled");
+        }
+
+        private static Counter requests(MeterRegistry registry, String customer, String outcome) {
+            return Counter.builder("tracking.customer.requests")
+                    .description("Requests counted against customer quotas")
+                    .tag("customer", customer)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+
+    private static final class Bucket {
+
+        private final Quota quota;
+        // the time at which the bucket is full again, never behind the clock once a request was taken
+        private final AtomicLong fullAt;
+        private final LongAdder throttled = new LongAdder();
+
+        private Bucket(Quota quota, long now) {
+            this.quota = quota;
+            this.fullAt = new AtomicLong(now);
+        }
+
+        /**
+         * @return 0 if the requests were taken, otherwise the nanoseconds until they can be
+         */
+        private long take(long now, int permits) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + quota.intervalNanos * permits;
+                long over = next - now - quota.toleranceNanos;
+                if (over > 0) {
+                    return over;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        // returns a request taken for a call that was throttled elsewhere; a bucket that refilled meanwhile only
+        // runs behind the clock, which take treats as full
+        private void giveBack() {
+            fullAt.addAndGet(-quota.intervalNanos);
+        }
+    }
+}
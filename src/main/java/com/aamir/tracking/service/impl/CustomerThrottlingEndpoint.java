@@ -0,0 +1,34 @@
+package com.aamir.tracking.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/throttling}: the customers held by {@link CustomerRateLimiter} that were throttled most often.
+ * Totals per quota are published as the {@code tracking.customer.requests} meter.
+ */
+@Component
+@Endpoint(id = "throttling")
+@RequiredArgsConstructor
+public class CustomerThrottlingEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final CustomerRateLimiter customerRateLimiter;
+
+    @ReadOperation
+    public Map<String, Object> throttling(@Nullable Integer limit) {
+        Map<String, Object> throttling = new LinkedHashMap<>();
+        throttling.put("enabled", customerRateLimiter.isEnabled());
+        throttling.put("customers", customerRateLimiter.trackedCustomers());
+        throttling.put("mostThrottled",
+                customerRateLimiter.mostThrottled(limit == null || limit <= 0 ? DEFAULT_LIMIT : limit));
+        return throttling;
+    }
+}
@@ -0,0 +1,52 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.SequenceBlock;
+import com.aamir.tracking.model.SequenceRange;
+import com.aamir.tracking.repository.SequenceBlockRepository;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Reserves sequence blocks with a single locked update of the {@code sequence_block} row, so the
+ * database is touched once per block instead of once per tracking number.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "tracking.id.block.store", havingValue = "database", matchIfMissing = true)
+public class DatabaseSequenceBlockAllocator implements SequenceBlockAllocator {
+
+    private final SequenceBlockRepository sequenceBlockRepository;
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public SequenceRange allocate(String sequenceName, long startRange, long endRange, int blockSize) {
+        SequenceBlock block = sequenceBlockRepository.findForUpdate(sequenceName)
+                .orElseGet(() -> SequenceBlock.builder()
+                        .withSequenceName(sequenceName)
+                        .withNextValue(startRange)
+                        .build());
+
+        long start = Math.max(block.getNextValue(), startRange);
+        if (start >= endRange) {
+            throw new SequenceExhaustedException("Tracking number sequence exhausted: reached end of range");
+        }
+        long end = Math.min(start + blockSize, endRange);
+
+        block.setNextValue(end);
+        block.setUpdatedAt(Timestamp.from(Instant.now()));
+        sequenceBlockRepository.saveAndFlush(block);
+
+        log.info("Reserved sequence block {} [{}, {})", sequenceName, start, end);
+        return new SequenceRange(start, end);
+    }
+}
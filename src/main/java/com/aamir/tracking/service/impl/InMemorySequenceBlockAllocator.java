@@ -0,0 +1,36 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.SequenceRange;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the sequence high-water marks in memory only. Values restart from the start range on
+ * every boot, so this is meant for tests and throwaway environments.
+ */
+@Service
+@ConditionalOnProperty(name = "tracking.id.block.store", havingValue = "memory")
+public class InMemorySequenceBlockAllocator implements SequenceBlockAllocator {
+
+    private final Map<String, Long> nextValues = new ConcurrentHashMap<>();
+
+    @Override
+    public SequenceRange allocate(String sequenceName, long startRange, long endRange, int blockSize) {
+        long[] reserved = new long[2];
+        nextValues.compute(sequenceName, (name, next) -> {
+            long start = Math.max(next == null ? startRange : next, startRange);
+            if (start >= endRange) {
+                throw new SequenceExhaustedException("Tracking number sequence exhausted: reached end of range");
+            }
+            reserved[0] = start;
+            reserved[1] = Math.min(start + blockSize, endRange);
+            return reserved[1];
+        });
+        return new SequenceRange(reserved[0], reserved[1]);
+    }
+}
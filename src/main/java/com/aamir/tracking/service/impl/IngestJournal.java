@@ -0,0 +1,350 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.util.Country;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of tracking numbers that were acknowledged but not yet stored in the database.
+ * <p>
+ * Records are written to numbered segment files as {@code length, CRC32, payload}; a torn record at the end of a
+ * segment after a crash fails its checksum and ends the replay of that segment. {@link #append} returns once the
+ * record is on disk: concurrent appenders share one {@code force} (group commit), so the cost of an fsync is
+ * spread over every record written while the previous one ran. A segment is deleted once it has been rolled over
+ * and all of its records were reported {@link #flushed}.
+ */
+@Slf4j
+public class IngestJournal implements AutoCloseable {
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final List<Path> recovered = new ArrayList<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private Segment current;
+    private long nextSegment;
+    // bytes appended over all segments, and how many of them are known to be on disk
+    private volatile long written;
+    private volatile long synced;
+
+    /**
+     * @param directory    Directory of the segment files, created if missing
+     * @param segmentBytes Size at which the current segment is rolled over
+     * @param fsync        Whether appends wait until the record is forced to disk
+     */
+    public IngestJournal(Path directory, long segmentBytes, boolean fsync) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(directory);
+            for (Path segment : segments()) {
+                nextSegment = Math.max(nextSegment, sequenceOf(segment) + 1);
+            }
+            current = openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open ingest journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads every record left by an earlier run. The segments stay on disk until {@link #discardRecovered}.
+     */
+    public List<TrackingNumber> recover() {
+        List<TrackingNumber> records = new ArrayList<>();
+        try {
+            for (Path segment : segments()) {
+                if (segment.equals(current.path)) {
+                    continue;
+                }
+                recovered.add(segment);
+                readSegment(segment, records);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read ingest journal in " + directory, e);
+        }
+        return records;
+    }
+
+    /**
+     * Deletes the segments read by {@link #recover} once their records are stored.
+     */
+    public void discardRecovered() {
+        for (Path segment : recovered) {
+            delete(segment);
+        }
+        recovered.clear();
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @return The segment holding the record, to be passed to {@link #flushed} once the record is stored
+     * @throws UncheckedIOException if the record could not be written
+     */
+    public Segment append(TrackingNumber trackingNumber) {
+        ByteBuffer record = encode(trackingNumber);
+        Segment segment;
+        long offset;
+        appendLock.lock();
+        try {
+            if (current.bytes > 0 && current.bytes + record.remaining() > segmentBytes) {
+                rollOver();
+            }
+            segment = current;
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                segment.channel.write(record);
+            }
+            segment.bytes += length;
+            segment.appended.incrementAndGet();
+            offset = written + length;
+            written = offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to ingest journal " + current.path, e);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(offset);
+        return segment;
+    }
+
+    /**
+     * Records that {@code count} records of the segment are stored in the database.
+     */
+    public void flushed(Segment segment, int count) {
+        segment.flushed.addAndGet(count);
+        segment.deleteIfDone();
+    }
+
+    private void awaitDurable(long offset) {
+        if (!fsync || synced >= offset) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // whoever forced while this thread waited may already have covered its record
+            if (synced >= offset) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            appendLock.lock();
+            try {
+                channel = current.channel;
+                target = written;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // the segment was rolled over, forced and already deleted, target did not go past it
+            }
+            synced = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync ingest journal " + directory, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void rollOver() throws IOException {
+        Segment sealed = current;
+        if (fsync) {
+            sealed.channel.force(false);
+        }
+        current = openSegment();
+        synced = Math.max(synced, written);
+        sealed.seal();
+    }
+
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(PREFIX + String.format("%020d", nextSegment++) + SUFFIX);
+        return new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static void readSegment(Path segment, List<TrackingNumber> records) throws IOException {
+        try (InputStream file = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                long checksum = in.readInt() & 0xFFFFFFFFL;
+                byte[] payload = new byte[Math.max(0, length)];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    log.warn("Ignoring torn record at the end of ingest journal {}", segment);
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (length <= 0 || crc.getValue() != checksum) {
+                    log.warn("Ignoring corrupt record in ingest journal {} and everything after it", segment);
+                    return;
+                }
+                records.add(decode(payload));
+            }
+        }
+    }
+
+    private static ByteBuffer encode(TrackingNumber trackingNumber) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeUTF(trackingNumber.getTrackingId());
+            out.writeUTF(trackingNumber.getOriginCountryId().name());
+            out.writeUTF(trackingNumber.getDestinationCountryId().name());
+            out.writeInt(trackingNumber.getWeight());
+            out.writeLong(trackingNumber.getCreatedAt().getTime());
+            out.writeInt(trackingNumber.getCreatedAt().getNanos());
+            out.writeLong(trackingNumber.getCustomerId().getMostSignificantBits());
+            out.writeLong(trackingNumber.getCustomerId().getLeastSignificantBits());
+            out.writeUTF(trackingNumber.getCustomerName());
+            out.writeUTF(trackingNumber.getCustomerSlug());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, record.limit() - 8);
+        record.putInt(0, record.limit() - 8);
+        record.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private static TrackingNumber decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String trackingId = in.readUTF();
+        Country origin = Country.valueOf(in.readUTF());
+        Country destination = Country.valueOf(in.readUTF());
+        int weight = in.readInt();
+        Timestamp createdAt = new Timestamp(in.readLong());
+        createdAt.setNanos(in.readInt());
+        UUID customerId = new UUID(in.readLong(), in.readLong());
+        return TrackingNumber.builder()
+                .withTrackingId(trackingId)
+                .withOriginCountryId(origin)
+                .withDestinationCountryId(destination)
+                .withWeight(weight)
+                .withCreatedAt(createdAt)
+                .withCustomerId(customerId)
+                .withCustomerName(in.readUTF())
+                .withCustomerSlug(in.readUTF())
+                .build();
+    }
+
+    private static void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            log.warn("Could not delete ingest journal segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the current segment; it is deleted if every record in it was stored, otherwise it is replayed at
+     * the next start.
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            current.seal();
+            current.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * One segment file with the number of records appended to it and stored from it.
+     */
+    public static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong appended = new AtomicLong();
+        private final AtomicLong flushed = new AtomicLong();
+        private final AtomicBoolean deleted = new AtomicBoolean();
+        // only touched under the append lock
+        private long bytes;
+        private volatile boolean sealed;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        private void seal() {
+            sealed = true;
+            deleteIfDone();
+        }
+
+        // sealing and the last flush can race, each checks after its own update so one of them deletes
+        private void deleteIfDone() {
+            if (sealed && flushed.get() == appended.get() && deleted.compareAndSet(false, true)) {
+                close();
+                delete(path);
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close ingest journal segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.SequenceRange;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import com.aamir.tracking.util.Country;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out sequence values for every origin/destination lane from blocks reserved through a
+ * {@link SequenceBlockAllocator}. Each lane owns an independent sequence over the same
+ * {@code startRange..endRange} space, so lanes never contend with each other.
+ * <p>
+ * The cursor and limit of a lane share one padded slot of an {@link AtomicLongArray}, indexed by the
+ * ordinals of the two countries, with a full cache line pair between slots to avoid false sharing.
+ * Values are served from memory with a compare-and-set on the lane cursor; once a block drops to the
+ * low-water mark the next block is reserved in the background, so callers only wait on the allocator
+ * when the prefetch could not keep up.
+ */
+@Slf4j
+public class LaneSequencer implements AutoCloseable {
+
+    private static final int COUNTRIES = Country.values().length;
+    // slot used for IDs that are not tied to a lane, e.g. /next-tracking-number
+    public static final int DEFAULT_LANE = COUNTRIES * COUNTRIES;
+    public static final int LANES = DEFAULT_LANE + 1;
+
+    // longs per slot: 16 * 8 bytes keeps adjacent slots two cache lines apart
+    private static final int STRIDE = 16;
+    private static final int CURSOR = 0;
+    private static final int LIMIT = 1;
+
+    private final SequenceBlockAllocator allocator;
+    private final long startRange;
+    private final long endRange;
+    private final int blockSize;
+    private final int lowWaterMark;
+
+    // per lane: next value to hand out (never moves past the limit) and the exclusive end of the
+    // reserved values (only written under the lane lock)
+    private final AtomicLongArray slots = new AtomicLongArray(LANES * STRIDE);
+    private final String[] sequenceNames = new String[LANES];
+    private final ReentrantLock[] refillLocks = new ReentrantLock[LANES];
+    // 1 once the allocator has no more blocks for the lane; written under the lane lock, read by health checks
+    private final AtomicIntegerArray exhausted = new AtomicIntegerArray(LANES);
+    private final AtomicReferenceArray<CompletableFuture<SequenceRange>> prefetched =
+            new AtomicReferenceArray<>(LANES);
+    private final ExecutorService prefetchExecutor;
+
+    public LaneSequencer(String defaultSequenceName, SequenceBlockAllocator allocator, long startRange,
+                         long endRange, int blockSize, int lowWaterMark) {
+        this.allocator = allocator;
+        this.startRange = startRange;
+        this.endRange = endRange;
+        this.blockSize = blockSize;
+        this.lowWaterMark = lowWaterMark;
+        for (int lane = 0; lane < DEFAULT_LANE; lane++) {
+            sequenceNames[lane] = laneCode(lane);
+        }
+        sequenceNames[DEFAULT_LANE] = defaultSequenceName;
+        for (int lane = 0; lane < LANES; lane++) {
+            refillLocks[lane] = new ReentrantLock();
+        }
+        this.prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sequence-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static int laneIndex(Country origin, Country destination) {
+        return origin.ordinal() * COUNTRIES + destination.ordinal();
+    }
+
+    /**
+     * @return The origin and destination country codes of a lane, e.g. {@code MYSG}
+     */
+    public static String laneCode(int lane) {
+        Country[] countries = Country.values();
+        return countries[lane / COUNTRIES].getCode() + countries[lane % COUNTRIES].getCode();
+    }
+
+    public long next(int lane) {
+        return reserve(lane, 1);
+    }
+
+    /**
+     * Claims {@code count} consecutive values of a lane.
+     *
+     * @return The first claimed value
+     * @throws IllegalArgumentException   if fewer than {@code count} values are left on the lane, which stays
+     *                                    usable for smaller requests
+     * @throws SequenceExhaustedException if the lane has no values left
+     */
+    public long reserve(int lane, int count) {
+        int base = lane * STRIDE;
+        // checked before any block is reserved for it, a request that can never be served must not use up the range
+        long left = endRange - Math.max(slots.get(base + CURSOR), startRange);
+        if (count > left && left > 0) {
+            throw tooLargeException(lane, count, left);
+        }
+        while (true) {
+            // read the limit first, a refill publishes the cursor before the limit
+            long currentLimit = slots.get(base + LIMIT);
+            long current = slots.get(base + CURSOR);
+            long next = current + count;
+            if (next > currentLimit) {
+                refill(lane, count);
+                continue;
+            }
+            if (slots.compareAndSet(base + CURSOR, current, next)) {
+                if (currentLimit - next <= lowWaterMark && currentLimit - current > lowWaterMark) {
+                    prefetch(lane);
+                }
+                return current;
+            }
+        }
+    }
+
+    /**
+     * @return The values this instance can still hand out on the lane before its range is exhausted
+     */
+    public long remaining(int lane) {
+        int base = lane * STRIDE;
+        long cursor = slots.get(base + CURSOR);
+        if (exhausted.get(lane) == 1) {
+            // only what is left of the last block
+            return slots.get(base + LIMIT) - cursor;
+        }
+        return Math.min(capacity(), endRange - cursor);
+    }
+
+    public boolean isExhausted(int lane) {
+        return exhausted.get(lane) == 1;
+    }
+
+    /**
+     * @return The number of values every lane counts through, {@code endRange - startRange}
+     */
+    public long capacity() {
+        return endRange - startRange;
+    }
+
+    private void refill(int lane, int count) {
+        int base = lane * STRIDE;
+        refillLocks[lane].lock();
+        try {
+            while (slots.get(base + CURSOR) + count > slots.get(base + LIMIT)) {
+                if (exhausted.get(lane) == 1) {
+                    throw exhaustedException(lane);
+                }
+                long limit = slots.get(base + LIMIT);
+                if (limit == endRange) {
+                    // the last block is already held, the allocator has nothing more to give
+                    throw outOfValues(lane, count, limit - slots.get(base + CURSOR));
+                }
+                SequenceRange range;
+                try {
+                    range = nextRange(lane, count, limit);
+                } catch (SequenceExhaustedException e) {
+                    throw outOfValues(lane, count, limit - slots.get(base + CURSOR));
+                }
+                if (range.getStart() < limit) {
+                    throw new IllegalStateException("Sequence block " + range + " for " + sequenceNames[lane]
+                            + " overlaps values that were already reserved");
+                }
+                if (range.getStart() != limit) {
+                    // whatever is left of the current block is abandoned rather than reissued
+                    slots.set(base + CURSOR, range.getStart());
+                }
+                slots.set(base + LIMIT, range.getEnd());
+            }
+        } finally {
+            refillLocks[lane].unlock();
+        }
+    }
+
+    private SequenceRange nextRange(int lane, int count, long limit) {
+        CompletableFuture<SequenceRange> pending = prefetched.getAndSet(lane, null);
+        if (pending != null) {
+            try {
+                SequenceRange range = pending.join();
+                if (range.getStart() >= limit) {
+                    return range;
+                }
+                // the prefetch was published after a synchronous reservation that got a later block,
+                // its values were never handed out and are skipped
+                log.debug("Dropping prefetched sequence block {} for {} below limit {}", range, sequenceNames[lane],
+                        limit);
+            } catch (CompletionException e) {
+                log.warn("Prefetch of sequence block {} failed, reserving synchronously: {}", sequenceNames[lane],
+                        e.getCause().getMessage());
+            }
+        }
+        return allocator.allocate(sequenceNames[lane], startRange, endRange, Math.max(blockSize, count));
+    }
+
+    private void prefetch(int lane) {
+        CompletableFuture<SequenceRange> future = new CompletableFuture<>();
+        if (!prefetched.compareAndSet(lane, null, future)) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    future.complete(allocator.allocate(sequenceNames[lane], startRange, endRange, blockSize));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Marks the lane exhausted once nothing is left of its last block; a request larger than what is left only
+     * fails itself.
+     */
+    private RuntimeException outOfValues(int lane, int count, long left) {
+        if (left > 0) {
+            return tooLargeException(lane, count, left);
+        }
+        // later calls on this lane fail fast instead of asking the allocator again
+        exhausted.set(lane, 1);
+        log.warn("Tracking number sequence for lane {} exhausted", sequenceNames[lane]);
+        return exhaustedException(lane);
+    }
+
+    private IllegalArgumentException tooLargeException(int lane, int count, long left) {
+        return new IllegalArgumentException("Cannot reserve " + count + " tracking numbers, only " + left
+                + " are left for lane " + sequenceNames[lane]);
+    }
+
+    private SequenceExhaustedException exhaustedException(int lane) {
+        return new SequenceExhaustedException(
+                "Tracking number sequence exhausted for lane " + sequenceNames[lane] + ": reached end of range");
+    }
+
+    @Override
+    public void close() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "LaneSequencer[lanes=" + LANES + ", range=[" + startRange + ", " + endRange + "), default cursor="
+                + slots.get(DEFAULT_LANE * STRIDE + CURSOR) + "]";
+    }
+}
@@ -0,0 +1,291 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.InstanceLease;
+import com.aamir.tracking.model.SequenceBlock;
+import com.aamir.tracking.model.SequenceRange;
+import com.aamir.tracking.repository.InstanceLeaseRepository;
+import com.aamir.tracking.repository.SequenceBlockRepository;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates nodes sharing one database without per-node configuration. At startup the node leases a free
+ * instance slot from {@code instance_lease}, which becomes its instance ID, and keeps the lease alive with a
+ * heartbeat. Slots whose lease has expired belong to dead nodes and are taken over by the next node that
+ * starts.
+ * <p>
+ * Segments are reserved from the {@code sequence_block} rows of the slot with optimistic locking, so a node
+ * only ever touches its own rows and a node that took over a slot continues after the last segment of the
+ * previous owner. Segments double while they are used up faster than the target interval and halve while
+ * they last much longer, so busy lanes go to the database less often without idle lanes leaving large gaps.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "tracking.id.block.store", havingValue = "lease")
+public class LeasedSequenceBlockAllocator implements SequenceBlockAllocator {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final InstanceLeaseRepository instanceLeaseRepository;
+    private final SequenceBlockRepository sequenceBlockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<String, SegmentSize> segmentSizes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService heartbeatExecutor;
+
+    private volatile int slot = -1;
+    private volatile boolean lost;
+    // local end of the lease, segments are only reserved before it even if the heartbeat is stuck
+    private volatile long leaseDeadlineNanos;
+
+    // number of instance slots, the width of the largest slot number is the instance ID length
+    @Value("${tracking.id.lease.slots}")
+    private int slots;
+    @Value("${tracking.id.lease.ttl}")
+    private Duration ttl;
+    @Value("${tracking.id.lease.heartbeat}")
+    private Duration heartbeat;
+    // how long a segment should last at the current issue rate
+    @Value("${tracking.id.lease.segment.target.interval}")
+    private Duration segmentTargetInterval;
+    @Value("${tracking.id.lease.segment.max.size}")
+    private int maxSegmentSize;
+
+    public LeasedSequenceBlockAllocator(InstanceLeaseRepository instanceLeaseRepository,
+                                        SequenceBlockRepository sequenceBlockRepository,
+                                        PlatformTransactionManager transactionManager) {
+        this.instanceLeaseRepository = instanceLeaseRepository;
+        this.sequenceBlockRepository = sequenceBlockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        claimSlot();
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleAtFixedRate(this::renew, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // a renewal still running would bump the lease version and make the release fail
+        heartbeatExecutor.shutdown();
+        try {
+            if (!heartbeatExecutor.awaitTermination(heartbeat.toMillis(), TimeUnit.MILLISECONDS)) {
+                heartbeatExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        release();
+    }
+
+    @Override
+    public String instanceId(String configuredInstanceId) {
+        return instanceId(slot, slots);
+    }
+
+    /**
+     * @return The slot number zero-padded to the width of the largest slot
+     */
+    public static String instanceId(int slot, int slots) {
+        int width = String.valueOf(slots - 1).length();
+        return String.format("%0" + width + "d", slot);
+    }
+
+    public boolean holdsLease() {
+        return !lost && System.nanoTime() - leaseDeadlineNanos < 0;
+    }
+
+    /**
+     * @throws IllegalStateException if another node has taken the slot over
+     * @throws TransientDataAccessResourceException if the lease ran out before the heartbeat could renew it
+     */
+    @Override
+    public SequenceRange allocate(String sequenceName, long startRange, long endRange, int blockSize) {
+        String segmentName = instanceId(slot, slots) + ":" + sequenceName;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (lost) {
+                throw new IllegalStateException("Instance slot " + slot + " was taken over by another node");
+            }
+            if (!holdsLease()) {
+                throw new TransientDataAccessResourceException("Lease of instance slot " + slot
+                        + " has expired, waiting for the heartbeat to renew it");
+            }
+            int size = segmentSize(segmentName, blockSize);
+            try {
+                return transactionTemplate.execute(status -> reserve(segmentName, startRange, endRange, size));
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                log.debug("Concurrent update of sequence segment {}, attempt {}", segmentName, attempt);
+            }
+        }
+        throw new TransientDataAccessResourceException("Could not reserve a segment of " + segmentName + " after "
+                + MAX_ATTEMPTS + " attempts");
+    }
+
+    private SequenceRange reserve(String segmentName, long startRange, long endRange, int size) {
+        SequenceBlock block = sequenceBlockRepository.findById(segmentName)
+                .orElseGet(() -> SequenceBlock.builder()
+                        .withSequenceName(segmentName)
+                        .withNextValue(startRange)
+                        .build());
+
+        long start = Math.max(block.getNextValue(), startRange);
+        if (start >= endRange) {
+            throw new SequenceExhaustedException("Tracking number sequence exhausted: reached end of range");
+        }
+        long end = Math.min(start + size, endRange);
+
+        block.setNextValue(end);
+        block.setUpdatedAt(Timestamp.from(Instant.now()));
+        // the version check fails if another node moved the row since it was read
+        sequenceBlockRepository.saveAndFlush(block);
+
+        log.info("Reserved sequence segment {} [{}, {})", segmentName, start, end);
+        return new SequenceRange(start, end);
+    }
+
+    private int segmentSize(String segmentName, int blockSize) {
+        return segmentSizes.computeIfAbsent(segmentName, name -> new SegmentSize(blockSize))
+                .next(blockSize, segmentTargetInterval.toNanos(), maxSegmentSize);
+    }
+
+    private void claimSlot() {
+        for (int candidate = 0; candidate < slots; candidate++) {
+            int current = candidate;
+            long claimStart = System.nanoTime();
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> tryClaim(current)))) {
+                    slot = current;
+                    leaseDeadlineNanos = claimStart + ttl.toNanos();
+                    log.info("Leased instance slot {} as instance ID {}", slot, instanceId(slot, slots));
+                    return;
+                }
+            } catch (DataAccessException e) {
+                log.debug("Another node claimed instance slot {} first", candidate);
+            }
+        }
+        throw new IllegalStateException("No free instance slot among " + slots + " slots");
+    }
+
+    private boolean tryClaim(int candidate) {
+        Instant now = Instant.now();
+        InstanceLease lease = instanceLeaseRepository.findById(candidate).orElse(null);
+        if (lease == null) {
+            lease = InstanceLease.builder().withSlot(candidate).build();
+        } else if (lease.getExpiresAt().toInstant().isAfter(now) && !owner.equals(lease.getOwner())) {
+            return false;
+        } else {
+            log.info("Taking over instance slot {} from {}, its lease expired at {}", candidate, lease.getOwner(),
+                    lease.getExpiresAt());
+        }
+        lease.setOwner(owner);
+        lease.setExpiresAt(Timestamp.from(now.plus(ttl)));
+        lease.setRenewedAt(Timestamp.from(now));
+        instanceLeaseRepository.saveAndFlush(lease);
+        return true;
+    }
+
+    private void renew() {
+        long renewStart = System.nanoTime();
+        try {
+            Boolean held = transactionTemplate.execute(status -> {
+                InstanceLease lease = instanceLeaseRepository.findById(slot).orElse(null);
+                if (lease == null || !owner.equals(lease.getOwner())) {
+                    return false;
+                }
+                Instant now = Instant.now();
+                lease.setExpiresAt(Timestamp.from(now.plus(ttl)));
+                lease.setRenewedAt(Timestamp.from(now));
+                instanceLeaseRepository.saveAndFlush(lease);
+                return true;
+            });
+            if (Boolean.TRUE.equals(held)) {
+                leaseDeadlineNanos = renewStart + ttl.toNanos();
+            } else {
+                lost = true;
+                log.error("Instance slot {} was taken over by another node, no more sequence segments are reserved",
+                        slot);
+                heartbeatExecutor.shutdown();
+            }
+        } catch (RuntimeException e) {
+            // a version conflict means the slot was just taken over, the next heartbeat reads the new owner
+            log.warn("Could not renew the lease of instance slot {}: {}", slot, e.getMessage());
+        }
+    }
+
+    private void release() {
+        if (slot < 0 || lost) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> instanceLeaseRepository.findById(slot)
+                    .filter(lease -> owner.equals(lease.getOwner()))
+                    .ifPresent(lease -> {
+                        lease.setExpiresAt(Timestamp.from(Instant.now()));
+                        instanceLeaseRepository.saveAndFlush(lease);
+                    }));
+            log.info("Released instance slot {}", slot);
+        } catch (RuntimeException e) {
+            log.warn("Could not release instance slot {}, it frees up once the lease expires: {}", slot,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Segment size of one sequence, adapted to how quickly the previous segment was used up.
+     */
+    private static final class SegmentSize {
+
+        private int size;
+        private long lastReservedNanos;
+
+        private SegmentSize(int size) {
+            this.size = size;
+        }
+
+        synchronized int next(int minimum, long targetNanos, int maximum) {
+            long now = System.nanoTime();
+            if (lastReservedNanos != 0) {
+                long elapsed = now - lastReservedNanos;
+                if (elapsed < targetNanos / 2) {
+                    size = (int) Math.min((long) size * 2, maximum);
+                } else if (elapsed > targetNanos * 2) {
+                    size = size / 2;
+                }
+            }
+            size = Math.max(size, minimum);
+            lastReservedNanos = now;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.util.Country;
+import com.aamir.tracking.util.ScalableBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional Bloom filter of every tracking ID, so lookups of IDs that were never issued, mistyped or guessed ones,
+ * are answered without a cache miss and a database query. The filter grows with the table (see
+ * {@link ScalableBloomFilter}), so the false positive rate stays at {@code tracking.bloom.fpp} however many tracking
+ * numbers are stored; a false positive only costs the lookup it would have made anyway.
+ * <p>
+ * Once the application is ready the filter is read from its snapshot file and the tracking numbers created since
+ * the snapshot are added from the store, or, without a usable snapshot, filled by a parallel scan of the table once
+ * per origin country. Lookups go to the store until then. It then follows every tracking number this instance
+ * creates and is written back to the snapshot file periodically and at shutdown. Like {@link TrackingNumberIndex}
+ * it is blind to other instances.
+ */
+@Component
+@Slf4j
+public class TrackingIdFilter {
+
+    private static final Country[] COUNTRIES = Country.values();
+    private static final int SNAPSHOT_MAGIC = 0x54494246;
+    private static final int SNAPSHOT_VERSION = 1;
+    // tracking numbers are added after they are stored, this long after their created at at the latest
+    private static final long CATCH_UP_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TrackingNumberStore trackingNumberStore;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+
+    @Value("${tracking.bloom.enabled}")
+    private boolean enabled;
+    // false positive rate over all tracking IDs, whatever their number
+    @Value("${tracking.bloom.fpp}")
+    private double falsePositiveRate;
+    // tracking IDs the first stage is sized for, every further stage holds twice as many
+    @Value("${tracking.bloom.expected.insertions}")
+    private long expectedInsertions;
+    // origin countries scanned at the same time without a snapshot
+    @Value("${tracking.bloom.scan.threads}")
+    private int scanThreads;
+    @Value("${tracking.bloom.scan.fetch.size}")
+    private int scanFetchSize;
+    @Value("${tracking.bloom.snapshot.file}")
+    private String snapshotFile;
+    @Value("${tracking.bloom.snapshot.interval}")
+    private Duration snapshotInterval;
+
+    private volatile ScalableBloomFilter filter;
+    // false until the filter holds every stored tracking ID, lookups go to the store until then
+    private volatile boolean ready;
+    // tracking IDs created before the filter is loaded or allocated, added once it is
+    private List<String> pending = new ArrayList<>();
+    // guards the pending IDs and snapshot writes
+    private final ReentrantLock lock = new ReentrantLock();
+    private Counter rejected;
+    private Counter passed;
+    private ScheduledExecutorService snapshotExecutor;
+
+    public TrackingIdFilter(TrackingNumberStore trackingNumberStore,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry registry) {
+        this.trackingNumberStore = trackingNumberStore;
+        this.transactionTemplate = transactionTemplate;
+        this.registry = registry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!enabled) {
+            return;
+        }
+        registerMeters();
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                log.error("Could not fill the tracking ID filter, lookups stay on the store", e);
+            }
+        }, "tracking-id-filter-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Adds a tracking ID this instance created.
+     */
+    public void add(String trackingId) {
+        if (!enabled) {
+            return;
+        }
+        ScalableBloomFilter current = filter;
+        if (current == null) {
+            lock.lock();
+            try {
+                current = filter;
+                if (current == null) {
+                    pending.add(trackingId);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        current.add(trackingId);
+    }
+
+    /**
+     * @return true if the tracking ID was certainly never stored, false if it may have been or the filter is not
+     * ready to tell
+     */
+    public boolean definitelyAbsent(String trackingId) {
+        if (!ready) {
+            return false;
+        }
+        if (filter.mightContain(trackingId)) {
+            passed.increment();
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    /**
+     * Writes the filter to the snapshot file, through a temporary file so a crash leaves the previous snapshot.
+     */
+    public void snapshot() {
+        if (!ready) {
+            return;
+        }
+        lock.lock();
+        try {
+            writeSnapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeSnapshot() {
+        Path path = Path.of(snapshotFile);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        // taken before the bits are copied, everything created well before it is in the copy
+        long coveredUntil = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(coveredUntil);
+                filter.writeTo(out);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote tracking ID filter snapshot {} in {} ms", path,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Could not write tracking ID filter snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+        }
+        snapshot();
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        Snapshot snapshot = readSnapshot();
+        if (snapshot != null) {
+            publish(snapshot.filter());
+            long added = catchUp(snapshot.coveredUntil() - CATCH_UP_MARGIN_MILLIS);
+            log.info("Loaded {} tracking IDs from snapshot {} and {} created since in {} ms",
+                    snapshot.filter().count() - added, snapshotFile, added, (System.nanoTime() - start) / 1_000_000);
+        } else {
+            publish(new ScalableBloomFilter(expectedInsertions, falsePositiveRate));
+            scanAll();
+            log.info("Added {} tracking IDs to the filter in {} ms", filter.count(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        ready = true;
+        snapshot();
+
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tracking-id-filter-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleAtFixedRate(this::snapshot, snapshotInterval.toMillis(),
+                snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void publish(ScalableBloomFilter loaded) {
+        lock.lock();
+        try {
+            pending.forEach(loaded::add);
+            pending = null;
+            filter = loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The snapshot, or null if there is none or it was written for another false positive rate or size
+     */
+    private Snapshot readSnapshot() {
+        Path path = Path.of(snapshotFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring tracking ID filter snapshot {}, it is not a version {} snapshot", path,
+                        SNAPSHOT_VERSION);
+                return null;
+            }
+            long coveredUntil = in.readLong();
+            ScalableBloomFilter loaded = ScalableBloomFilter.readFrom(in);
+            if (loaded.getFalsePositiveRate() != falsePositiveRate
+                    || loaded.getInitialCapacity() != expectedInsertions) {
+                log.info("Ignoring tracking ID filter snapshot {}, it was written for other settings", path);
+                return null;
+            }
+            return new Snapshot(loaded, coveredUntil);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Ignoring tracking ID filter snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    // pages through the tracking numbers created from the given time on, some of them may be in the snapshot
+    private long catchUp(long fromMillis) {
+        TrackingNumberFilter all = TrackingNumberFilter.builder().build();
+        TrackingNumberCursor after = new TrackingNumberCursor(new Timestamp(fromMillis), "");
+        long added = 0;
+        while (true) {
+            List<TrackingNumber> page = trackingNumberStore.findPage(all, after, scanFetchSize);
+            for (TrackingNumber trackingNumber : page) {
+                filter.add(trackingNumber.getTrackingId());
+            }
+            added += page.size();
+            if (page.size() < scanFetchSize) {
+                return added;
+            }
+            after = TrackingNumberCursor.after(page.get(page.size() - 1));
+        }
+    }
+
+    private void scanAll() {
+        ExecutorService executor = Executors.newFixedThreadPool(scanThreads, runnable -> {
+            Thread thread = new Thread(runnable, "tracking-id-filter-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> scans = new ArrayList<>(COUNTRIES.length);
+            for (Country origin : COUNTRIES) {
+                scans.add(executor.submit(() -> scan(origin)));
+            }
+            for (Future<?> scan : scans) {
+                scan.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while filling the tracking ID filter", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not scan tracking numbers", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void scan(Country origin) {
+        TrackingNumberFilter byOrigin = TrackingNumberFilter.builder().withOriginCountry(origin).build();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (var trackingNumbers = trackingNumberStore.streamByFilters(byOrigin, scanFetchSize)) {
+                trackingNumbers.forEach(trackingNumber -> filter.add(trackingNumber.getTrackingId()));
+            }
+        });
+    }
+
+    private void registerMeters() {
+        Gauge.builder("tracking.bloom.size", this,
+                        tracking -> tracking.filter == null ? 0 : tracking.filter.sizeInBytes())
+                .description("Memory held by the bit sets of the tracking ID filter")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("tracking.bloom.entries", this,
+                        tracking -> tracking.filter == null ? 0 : tracking.filter.count())
+                .description("Tracking IDs added to the tracking ID filter")
+                .register(registry);
+        Gauge.builder("tracking.bloom.stages", this,
+                        tracking -> tracking.filter == null ? 0 : tracking.filter.stageCount())
+                .description("Bloom filters the tracking ID filter has grown to")
+                .register(registry);
+        Gauge.builder("tracking.bloom.fpp", this,
+                        tracking -> tracking.filter == null ? 0 : tracking.filter.expectedFalsePositiveRate())
+                .description("False positive rate expected for the tracking IDs added so far")
+                .register(registry);
+        rejected = lookupCounter("rejected");
+        passed = lookupCounter("passed");
+    }
+
+    private Counter lookupCounter(String outcome) {
+        return Counter.builder("tracking.bloom.lookups")
+                .description("Tracking ID lookups checked against the filter, rejected ones skip the store")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private record Snapshot(ScalableBloomFilter filter, long coveredUntil) {
+    }
+}
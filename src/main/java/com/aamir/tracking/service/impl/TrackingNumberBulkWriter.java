@@ -0,0 +1,62 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persists large sets of new tracking numbers in chunks, as JDBC batches with the {@code jpa} store. Every
+ * chunk runs in its own transaction; when a chunk fails its rows are retried one by one, so a bad row only
+ * fails itself instead of the whole manifest.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrackingNumberBulkWriter {
+
+    private final TrackingNumberStore trackingNumberStore;
+    private final TransactionTemplate transactionTemplate;
+
+    // rows committed per transaction
+    @Value("${tracking.bulk.chunk.size}")
+    private int chunkSize;
+
+    /**
+     * @param trackingNumbers New tracking numbers with their IDs already assigned
+     * @return The reason for every row that could not be stored, keyed by its position in the list
+     */
+    public Map<Integer, String> write(List<TrackingNumber> trackingNumbers) {
+        Map<Integer, String> failures = new TreeMap<>();
+        for (int from = 0; from < trackingNumbers.size(); from += chunkSize) {
+            List<TrackingNumber> chunk = trackingNumbers.subList(from, Math.min(from + chunkSize,
+                    trackingNumbers.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> trackingNumberStore.persistAll(chunk));
+            } catch (RuntimeException e) {
+                log.warn("Bulk insert of {} tracking numbers failed, retrying row by row: {}", chunk.size(),
+                        e.getMessage());
+                writeOneByOne(chunk, from, failures);
+            }
+        }
+        return failures;
+    }
+
+    private void writeOneByOne(List<TrackingNumber> chunk, int offset, Map<Integer, String> failures) {
+        for (int i = 0; i < chunk.size(); i++) {
+            List<TrackingNumber> row = List.of(chunk.get(i));
+            try {
+                transactionTemplate.executeWithoutResult(status -> trackingNumberStore.persistAll(row));
+            } catch (RuntimeException e) {
+                failures.put(offset + i, "Could not store tracking number " + chunk.get(i).getTrackingId());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-through cache in front of {@link TrackingNumberStore} for the lookups customer-facing pages repeat:
+ * a single tracking number by ID and all tracking numbers of a customer by ID or slug. New tracking numbers are
+ * put into the ID cache and drop the lists of their customer, see {@link #stored}.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrackingNumberCache {
+
+    public static final String BY_TRACKING_ID = "trackingNumbers";
+    public static final String BY_CUSTOMER = "customerTrackingNumbers";
+    // filled by the JSON writer of the list endpoints
+    public static final String RESPONSE_JSON = "trackingNumberJson";
+
+    private final TrackingNumberStore trackingNumberStore;
+
+    /**
+     * @return The tracking number, or null if it does not exist; unknown IDs are not cached
+     */
+    @Cacheable(cacheNames = BY_TRACKING_ID, unless = "#result == null")
+    public TrackingNumber findByTrackingId(String trackingId) {
+        return trackingNumberStore.findById(trackingId).orElse(null);
+    }
+
+    @Cacheable(cacheNames = BY_CUSTOMER, key = "'id:' + #customerId")
+    public List<TrackingNumber> findByCustomerId(UUID customerId) {
+        return List.copyOf(trackingNumberStore.findByFilters(TrackingNumberFilter.builder()
+                .withCustomerId(customerId)
+                .build()));
+    }
+
+    @Cacheable(cacheNames = BY_CUSTOMER, key = "'slug:' + #customerSlug")
+    public List<TrackingNumber> findByCustomerSlug(String customerSlug) {
+        return List.copyOf(trackingNumberStore.findByFilters(TrackingNumberFilter.builder()
+                .withCustomerSlug(customerSlug)
+                .build()));
+    }
+
+    /**
+     * Caches a new or changed tracking number and drops its rendered JSON and the cached lists of its customer.
+     */
+    @Caching(
+            put = @CachePut(cacheNames = BY_TRACKING_ID, key = "#trackingNumber.trackingId"),
+            evict = {
+                    @CacheEvict(cacheNames = BY_CUSTOMER, key = "'id:' + #trackingNumber.customerId"),
+                    @CacheEvict(cacheNames = BY_CUSTOMER, key = "'slug:' + #trackingNumber.customerSlug"),
+                    @CacheEvict(cacheNames = RESPONSE_JSON, key = "#trackingNumber.trackingId")
+            })
+    public TrackingNumber stored(TrackingNumber trackingNumber) {
+        return trackingNumber;
+    }
+}
@@ -0,0 +1,591 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.util.Country;
+import com.aamir.tracking.util.IntList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional in-memory copy of the tracking number table that answers {@code /filter} without a database query.
+ * <p>
+ * Rows are kept column by column in primitive arrays, with customers, names and slugs dictionary-encoded. Origin
+ * and destination countries have one bitmap per country, so a lane filter is the intersection of two bitmaps.
+ * Day, weight, customer and slug have too many distinct values for a bitmap each; they map to the sorted row
+ * numbers holding the value. A filter starts from the shortest of its postings, or the country bitmaps, and checks
+ * the remaining criteria against the columns, so only the matching rows are turned back into tracking numbers.
+ * <p>
+ * Customer names are matched like the database's {@code lower(customer_name) like %name%}. Every distinct name is
+ * lower-cased once when it is first seen and its trigrams, the three character substrings, point to it. A search
+ * takes the rarest trigram of the lower-cased search term and only checks the names that contain it; terms shorter
+ * than a trigram check every distinct name. The rows of the matching names are then filtered like any other
+ * posting.
+ * <p>
+ * The index is filled by a parallel scan of the table once the application is ready and then follows every
+ * tracking number this instance creates. It does not see writes of other instances, so it is only for
+ * deployments with a single writer.
+ */
+@Component
+@Slf4j
+public class TrackingNumberIndex {
+
+    private static final Country[] COUNTRIES = Country.values();
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final int TRIGRAM = 3;
+
+    private final TrackingNumberStore trackingNumberStore;
+    private final TransactionTemplate transactionTemplate;
+    private final TrackingNumberMetrics trackingNumberMetrics;
+
+    @Value("${tracking.index.enabled}")
+    private boolean enabled;
+    // origin countries scanned at the same time while building
+    @Value("${tracking.index.scan.threads}")
+    private int scanThreads;
+    @Value("${tracking.index.scan.fetch.size}")
+    private int scanFetchSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // false until the first scan is complete, filters go to the database until then
+    private volatile boolean ready;
+    // while a scan runs, new tracking numbers wait here so the scan cannot miss or duplicate them
+    private boolean building;
+    private List<TrackingNumber> pending = new ArrayList<>();
+
+    private int rows;
+    private String[] trackingIds;
+    private byte[] origins;
+    private byte[] destinations;
+    private int[] weights;
+    private int[] days;
+    private long[] createdAtMillis;
+    private int[] createdAtNanos;
+    private long[] updatedAtMillis;
+    private int[] updatedAtNanos;
+    private int[] customers;
+    private int[] names;
+    private int[] slugs;
+
+    private Dictionary<UUID> customerIds;
+    private Dictionary<String> customerNames;
+    private Dictionary<String> customerSlugs;
+
+    private BitSet[] byOrigin;
+    private BitSet[] byDestination;
+    private Map<Integer, IntList> byDay;
+    private Map<Integer, IntList> byWeight;
+    // indexed by customer, name and slug code
+    private List<IntList> byCustomer;
+    private List<IntList> byName;
+    private List<IntList> bySlug;
+    // lower-cased names by name code, and the name codes containing each trigram
+    private List<String> foldedNames;
+    private Map<Long, IntList> byTrigram;
+
+    public TrackingNumberIndex(TrackingNumberStore trackingNumberStore,
+                               TransactionTemplate transactionTemplate,
+                               TrackingNumberMetrics trackingNumberMetrics) {
+        this.trackingNumberStore = trackingNumberStore;
+        this.transactionTemplate = transactionTemplate;
+        this.trackingNumberMetrics = trackingNumberMetrics;
+        clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        if (!enabled) {
+            return;
+        }
+        trackingNumberMetrics.bindIndex(this::size);
+        Thread builder = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Could not build the tracking number index, filters stay on the database", e);
+            }
+        }, "tracking-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Drops the index and reads every tracking number again, one origin country per task. Filters go to the
+     * database until it is done; concurrent rebuilds run one after the other.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                clear();
+                building = true;
+                ready = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(scanThreads, runnable -> {
+                Thread thread = new Thread(runnable, "tracking-index-scan");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> scans = new ArrayList<>(COUNTRIES.length);
+                for (Country origin : COUNTRIES) {
+                    scans.add(executor.submit(() -> scan(origin)));
+                }
+                for (Future<?> scan : scans) {
+                    scan.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while building the tracking number index", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not scan tracking numbers", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            lock.writeLock().lock();
+            try {
+                applyPending();
+                building = false;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Indexed {} tracking numbers in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a tracking number this instance created.
+     */
+    public void add(TrackingNumber trackingNumber) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pending.add(trackingNumber);
+            } else {
+                append(trackingNumber);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The matching tracking numbers, or empty if the index cannot answer the filter
+     */
+    public Optional<List<TrackingNumber>> find(TrackingNumberFilter filter) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            return Optional.of(match(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<TrackingNumber> match(TrackingNumberFilter filter) {
+        Criteria criteria = new Criteria(filter);
+        if (criteria.unknownValue) {
+            return List.of();
+        }
+
+        List<TrackingNumber> matches = new ArrayList<>();
+        IntList postings = shortestPostings(criteria);
+        if (criteria.nameCodes != null && (postings == null || criteria.nameRows < postings.size())) {
+            // rows of different names never overlap, so their postings are simply chained
+            for (int name = criteria.nameCodes.nextSetBit(0); name >= 0;
+                 name = criteria.nameCodes.nextSetBit(name + 1)) {
+                IntList rowsOfName = byName.get(name);
+                for (int i = 0; i < rowsOfName.size(); i++) {
+                    int row = rowsOfName.get(i);
+                    if (criteria.matches(row)) {
+                        matches.add(materialize(row));
+                    }
+                }
+            }
+            return matches;
+        }
+        if (postings != null) {
+            for (int i = 0; i < postings.size(); i++) {
+                int row = postings.get(i);
+                if (criteria.matches(row)) {
+                    matches.add(materialize(row));
+                }
+            }
+            return matches;
+        }
+
+        BitSet lane = laneBitmap(filter);
+        if (lane == null) {
+            for (int row = 0; row < rows; row++) {
+                matches.add(materialize(row));
+            }
+            return matches;
+        }
+        for (int row = lane.nextSetBit(0); row >= 0; row = lane.nextSetBit(row + 1)) {
+            matches.add(materialize(row));
+        }
+        return matches;
+    }
+
+    private IntList shortestPostings(Criteria criteria) {
+        IntList shortest = null;
+        for (IntList postings : Arrays.asList(
+                criteria.day == null ? null : byDay.get(criteria.day),
+                criteria.weight == null ? null : byWeight.get(criteria.weight),
+                criteria.customer < 0 ? null : byCustomer.get(criteria.customer),
+                criteria.slug < 0 ? null : bySlug.get(criteria.slug))) {
+            if (postings != null && (shortest == null || postings.size() < shortest.size())) {
+                shortest = postings;
+            }
+        }
+        return shortest;
+    }
+
+    /**
+     * @return The codes of the names containing the search term, ignoring case
+     */
+    private BitSet matchingNames(String customerName) {
+        String term = fold(customerName);
+        BitSet matches = new BitSet(foldedNames.size());
+        if (term.length() < TRIGRAM) {
+            for (int name = 0; name < foldedNames.size(); name++) {
+                if (foldedNames.get(name).contains(term)) {
+                    matches.set(name);
+                }
+            }
+            return matches;
+        }
+
+        // every name containing the term contains all its trigrams, the rarest one leaves the fewest to verify
+        IntList candidates = null;
+        for (int i = 0; i + TRIGRAM <= term.length(); i++) {
+            IntList postings = byTrigram.get(trigram(term, i));
+            if (postings == null) {
+                return matches;
+            }
+            if (candidates == null || postings.size() < candidates.size()) {
+                candidates = postings;
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            int name = candidates.get(i);
+            if (foldedNames.get(name).contains(term)) {
+                matches.set(name);
+            }
+        }
+        return matches;
+    }
+
+    private void indexName(int name, String customerName) {
+        String folded = fold(customerName);
+        foldedNames.add(folded);
+        for (int i = 0; i + TRIGRAM <= folded.length(); i++) {
+            IntList postings = byTrigram.computeIfAbsent(trigram(folded, i), key -> new IntList(2));
+            // a trigram occurring twice in one name is listed once
+            if (postings.size() == 0 || postings.get(postings.size() - 1) != name) {
+                postings.add(name);
+            }
+        }
+    }
+
+    // same folding the database query applies to the search term
+    private static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+
+    private BitSet laneBitmap(TrackingNumberFilter filter) {
+        if (filter.getOriginCountry() != null && filter.getDestinationCountry() != null) {
+            BitSet lane = (BitSet) byOrigin[filter.getOriginCountry().ordinal()].clone();
+            lane.and(byDestination[filter.getDestinationCountry().ordinal()]);
+            return lane;
+        }
+        if (filter.getOriginCountry() != null) {
+            return byOrigin[filter.getOriginCountry().ordinal()];
+        }
+        if (filter.getDestinationCountry() != null) {
+            return byDestination[filter.getDestinationCountry().ordinal()];
+        }
+        return null;
+    }
+
+    private void scan(Country origin) {
+        TrackingNumberFilter filter = TrackingNumberFilter.builder().withOriginCountry(origin).build();
+        List<TrackingNumber> batch = new ArrayList<>(scanFetchSize);
+        transactionTemplate.executeWithoutResult(status -> trackingNumberStore
+                .streamByFilters(filter, scanFetchSize)
+                .forEach(trackingNumber -> {
+                    batch.add(trackingNumber);
+                    if (batch.size() == scanFetchSize) {
+                        appendScanned(batch);
+                        batch.clear();
+                    }
+                }));
+        appendScanned(batch);
+    }
+
+    private void appendScanned(List<TrackingNumber> batch) {
+        lock.writeLock().lock();
+        try {
+            for (TrackingNumber trackingNumber : batch) {
+                append(trackingNumber);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the scan may or may not have read a tracking number created while it ran, those it read are skipped
+    private void applyPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Set<String> scanned = new HashSet<>();
+        Set<String> pendingIds = new HashSet<>();
+        for (TrackingNumber trackingNumber : pending) {
+            pendingIds.add(trackingNumber.getTrackingId());
+        }
+        for (int row = 0; row < rows; row++) {
+            if (pendingIds.contains(trackingIds[row])) {
+                scanned.add(trackingIds[row]);
+            }
+        }
+        for (TrackingNumber trackingNumber : pending) {
+            if (!scanned.contains(trackingNumber.getTrackingId())) {
+                append(trackingNumber);
+            }
+        }
+        pending = new ArrayList<>();
+    }
+
+    private void append(TrackingNumber trackingNumber) {
+        if (rows == trackingIds.length) {
+            grow(rows * 2);
+        }
+        int row = rows++;
+        trackingIds[row] = trackingNumber.getTrackingId();
+        origins[row] = (byte) trackingNumber.getOriginCountryId().ordinal();
+        destinations[row] = (byte) trackingNumber.getDestinationCountryId().ordinal();
+        weights[row] = trackingNumber.getWeight();
+        days[row] = (int) trackingNumber.getCreatedAt().toLocalDateTime().toLocalDate().toEpochDay();
+        createdAtMillis[row] = trackingNumber.getCreatedAt().getTime();
+        createdAtNanos[row] = trackingNumber.getCreatedAt().getNanos();
+        Timestamp updatedAt = trackingNumber.getUpdatedAt();
+        updatedAtMillis[row] = updatedAt == null ? NO_TIMESTAMP : updatedAt.getTime();
+        updatedAtNanos[row] = updatedAt == null ? 0 : updatedAt.getNanos();
+        customers[row] = customerIds.encode(trackingNumber.getCustomerId());
+        names[row] = customerNames.encode(trackingNumber.getCustomerName());
+        if (names[row] == foldedNames.size()) {
+            indexName(names[row], trackingNumber.getCustomerName());
+        }
+        slugs[row] = customerSlugs.encode(trackingNumber.getCustomerSlug());
+
+        byOrigin[origins[row]].set(row);
+        byDestination[destinations[row]].set(row);
+        byDay.computeIfAbsent(days[row], day -> new IntList()).add(row);
+        byWeight.computeIfAbsent(weights[row], weight -> new IntList()).add(row);
+        postings(byCustomer, customers[row]).add(row);
+        postings(byName, names[row]).add(row);
+        postings(bySlug, slugs[row]).add(row);
+    }
+
+    private static IntList postings(List<IntList> byCode, int code) {
+        if (code == byCode.size()) {
+            byCode.add(new IntList());
+        }
+        return byCode.get(code);
+    }
+
+    private TrackingNumber materialize(int row) {
+        return TrackingNumber.builder()
+                .withTrackingId(trackingIds[row])
+                .withOriginCountryId(COUNTRIES[origins[row]])
+                .withDestinationCountryId(COUNTRIES[destinations[row]])
+                .withWeight(weights[row])
+                .withCreatedAt(timestamp(createdAtMillis[row], createdAtNanos[row]))
+                .withUpdatedAt(updatedAtMillis[row] == NO_TIMESTAMP ? null
+                        : timestamp(updatedAtMillis[row], updatedAtNanos[row]))
+                .withCustomerId(customerIds.value(customers[row]))
+                .withCustomerName(customerNames.value(names[row]))
+                .withCustomerSlug(customerSlugs.value(slugs[row]))
+                .build();
+    }
+
+    private static Timestamp timestamp(long millis, int nanos) {
+        Timestamp timestamp = new Timestamp(millis);
+        timestamp.setNanos(nanos);
+        return timestamp;
+    }
+
+    private void clear() {
+        rows = 0;
+        trackingIds = new String[0];
+        grow(1024);
+        customerIds = new Dictionary<>();
+        customerNames = new Dictionary<>();
+        customerSlugs = new Dictionary<>();
+        byOrigin = new BitSet[COUNTRIES.length];
+        byDestination = new BitSet[COUNTRIES.length];
+        for (int country = 0; country < COUNTRIES.length; country++) {
+            byOrigin[country] = new BitSet();
+            byDestination[country] = new BitSet();
+        }
+        byDay = new HashMap<>();
+        byWeight = new HashMap<>();
+        byCustomer = new ArrayList<>();
+        byName = new ArrayList<>();
+        bySlug = new ArrayList<>();
+        foldedNames = new ArrayList<>();
+        byTrigram = new HashMap<>();
+        pending = new ArrayList<>();
+    }
+
+    private void grow(int capacity) {
+        trackingIds = Arrays.copyOf(trackingIds, capacity);
+        origins = origins == null ? new byte[capacity] : Arrays.copyOf(origins, capacity);
+        destinations = destinations == null ? new byte[capacity] : Arrays.copyOf(destinations, capacity);
+        weights = weights == null ? new int[capacity] : Arrays.copyOf(weights, capacity);
+        days = days == null ? new int[capacity] : Arrays.copyOf(days, capacity);
+        createdAtMillis = createdAtMillis == null ? new long[capacity] : Arrays.copyOf(createdAtMillis, capacity);
+        createdAtNanos = createdAtNanos == null ? new int[capacity] : Arrays.copyOf(createdAtNanos, capacity);
+        updatedAtMillis = updatedAtMillis == null ? new long[capacity] : Arrays.copyOf(updatedAtMillis, capacity);
+        updatedAtNanos = updatedAtNanos == null ? new int[capacity] : Arrays.copyOf(updatedAtNanos, capacity);
+        customers = customers == null ? new int[capacity] : Arrays.copyOf(customers, capacity);
+        names = names == null ? new int[capacity] : Arrays.copyOf(names, capacity);
+        slugs = slugs == null ? new int[capacity] : Arrays.copyOf(slugs, capacity);
+    }
+
+    /**
+     * The criteria of a filter translated to column values; a value the index has never seen matches nothing.
+     */
+    private final class Criteria {
+
+        private final int origin;
+        private final int destination;
+        private final Integer weight;
+        private final Integer day;
+        private final int customer;
+        private final int slug;
+        // null without a name filter
+        private final BitSet nameCodes;
+        private final int nameRows;
+        private final boolean unknownValue;
+
+        private Criteria(TrackingNumberFilter filter) {
+            origin = filter.getOriginCountry() == null ? -1 : filter.getOriginCountry().ordinal();
+            destination = filter.getDestinationCountry() == null ? -1 : filter.getDestinationCountry().ordinal();
+            weight = filter.getWeight();
+            day = filter.getCreatedOn() == null ? null : (int) filter.getCreatedOn().toEpochDay();
+            customer = filter.getCustomerId() == null ? -1 : customerIds.find(filter.getCustomerId());
+            slug = filter.getCustomerSlug() == null ? -1 : customerSlugs.find(filter.getCustomerSlug());
+            nameCodes = filter.getCustomerName() == null ? null : matchingNames(filter.getCustomerName());
+            int rowsOfNames = 0;
+            for (int name = nameCodes == null ? -1 : nameCodes.nextSetBit(0); name >= 0;
+                 name = nameCodes.nextSetBit(name + 1)) {
+                rowsOfNames += byName.get(name).size();
+            }
+            nameRows = rowsOfNames;
+            unknownValue = (filter.getCustomerId() != null && customer < 0)
+                    || (filter.getCustomerSlug() != null && slug < 0)
+                    || (weight != null && !byWeight.containsKey(weight))
+                    || (day != null && !byDay.containsKey(day))
+                    || (nameCodes != null && nameCodes.isEmpty());
+        }
+
+        private boolean matches(int row) {
+            return (origin < 0 || origins[row] == origin)
+                    && (destination < 0 || destinations[row] == destination)
+                    && (weight == null || weights[row] == weight)
+                    && (day == null || days[row] == day)
+                    && (customer < 0 || customers[row] == customer)
+                    && (slug < 0 || slugs[row] == slug)
+                    && (nameCodes == null || nameCodes.get(names[row]));
+        }
+    }
+
+    /**
+     * Assigns every distinct value a dense code, so columns hold an int instead of a reference per row.
+     */
+    private static final class Dictionary<T> {
+
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        private int encode(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        private int find(T value) {
+            return codes.getOrDefault(value, -1);
+        }
+
+        private T value(int code) {
+            return values.get(code);
+        }
+    }
+}
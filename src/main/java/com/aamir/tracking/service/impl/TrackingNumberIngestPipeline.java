@@ -0,0 +1,320 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.service.IngestQueueFullException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind storage of single new tracking numbers for {@code tracking.ingest.mode=async}.
+ * <p>
+ * {@link #submit} appends the record to the {@link IngestJournal}, queues it and returns, so the caller only
+ * waits for the local disk. A single writer thread drains the queue in batches of {@code tracking.ingest.flush.size}
+ * through the {@link TrackingNumberBulkWriter}, at the latest every {@code tracking.ingest.flush.interval}. The
+ * queue is a lock-free {@link ConcurrentLinkedQueue} bounded by a semaphore: when it is full, callers are rejected
+ * or wait, depending on {@code tracking.ingest.backpressure}. A record the writer could not store keeps its place
+ * in the queue and its journal segment and is written again after a growing pause, until it is stored; the cache
+ * and filters already serve it, so it must not wait for a restart. Records still unstored at shutdown are replayed
+ * from the journal at the next start, so an acknowledged tracking number is never lost.
+ */
+@Component
+@Slf4j
+public class TrackingNumberIngestPipeline {
+
+    // a batch that failed as a whole, e.g. while the database is down, is retried this many times
+    private static final int WRITE_ATTEMPTS = 3;
+    // longest pause before a record that failed on its own is written again
+    private static final long MAX_RETRY_PAUSE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final TrackingNumberStore trackingNumberStore;
+    private final TrackingNumberBulkWriter trackingNumberBulkWriter;
+    private final TrackingNumberMetrics trackingNumberMetrics;
+
+    // sync: /create stores the record before responding, async: write-behind through this pipeline
+    @Value("${tracking.ingest.mode}")
+    private String mode;
+    @Value("${tracking.ingest.queue.capacity}")
+    private int capacity;
+    @Value("${tracking.ingest.flush.size}")
+    private int flushSize;
+    @Value("${tracking.ingest.flush.interval}")
+    private Duration flushInterval;
+    // reject: answer 429 at once when the queue is full, block: wait up to the offer timeout for room
+    @Value("${tracking.ingest.backpressure}")
+    private String backpressure;
+    @Value("${tracking.ingest.offer.timeout}")
+    private Duration offerTimeout;
+    @Value("${tracking.ingest.shutdown.timeout}")
+    private Duration shutdownTimeout;
+    @Value("${tracking.ingest.journal.dir}")
+    private String journalDirectory;
+    @Value("${tracking.ingest.journal.segment.size}")
+    private DataSize journalSegmentSize;
+    @Value("${tracking.ingest.journal.fsync}")
+    private boolean journalFsync;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    // records that failed on their own, only touched by the writer; they keep their room in the queue
+    private final List<Pending> retries = new ArrayList<>();
+    private Semaphore room;
+    private IngestJournal journal;
+    private Thread writer;
+    private volatile boolean running;
+
+    public TrackingNumberIngestPipeline(TrackingNumberStore trackingNumberStore,
+                                        TrackingNumberBulkWriter trackingNumberBulkWriter,
+                                        TrackingNumberMetrics trackingNumberMetrics) {
+        this.trackingNumberStore = trackingNumberStore;
+        this.trackingNumberBulkWriter = trackingNumberBulkWriter;
+        this.trackingNumberMetrics = trackingNumberMetrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        room = new Semaphore(capacity);
+        journal = new IngestJournal(Path.of(journalDirectory), journalSegmentSize.toBytes(), journalFsync);
+        replay(journal.recover());
+        trackingNumberMetrics.bindIngestQueue(this::queued);
+        running = true;
+        writer = new Thread(this::drain, "ingest-writer");
+        writer.start();
+        log.info("Write-behind ingestion started: queue capacity {}, flush size {}, flush interval {}, journal {}",
+                capacity, flushSize, flushInterval, journalDirectory);
+    }
+
+    public boolean isEnabled() {
+        return "async".equals(mode);
+    }
+
+    /**
+     * Journals and queues a new tracking number for the writer.
+     *
+     * @throws IngestQueueFullException  if the queue stays full, immediately or after the offer timeout
+     * @throws RejectedExecutionException if the pipeline is shutting down
+     */
+    public void submit(TrackingNumber trackingNumber) {
+        if (!running) {
+            throw new RejectedExecutionException("Write-behind ingestion is not running");
+        }
+        acquireRoom();
+        IngestJournal.Segment segment;
+        try {
+            segment = journal.append(trackingNumber);
+        } catch (RuntimeException e) {
+            room.release();
+            throw e;
+        }
+        queue.offer(new Pending(trackingNumber, segment, 0, 0));
+        if (queued() >= flushSize) {
+            // a full batch is waiting, no need for the writer to sit out the interval
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @return Records submitted but not yet stored
+     */
+    public int queued() {
+        return room == null ? 0 : capacity - room.availablePermits();
+    }
+
+    private void acquireRoom() {
+        if ("block".equals(backpressure)) {
+            try {
+                if (room.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (room.tryAcquire()) {
+            return;
+        }
+        throw new IngestQueueFullException("Write-behind queue is full with " + capacity + " tracking numbers");
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(flushSize);
+        while (true) {
+            long deadline = System.nanoTime() + flushInterval.toNanos();
+            if (running) {
+                takeDueRetries(batch);
+            }
+            while (batch.size() < flushSize) {
+                Pending pending = queue.poll();
+                if (pending != null) {
+                    batch.add(pending);
+                    continue;
+                }
+                long wait = deadline - System.nanoTime();
+                // when stopping, whatever is queued is written without waiting for more
+                if (!running || wait <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, wait);
+            }
+            if (batch.isEmpty()) {
+                if (!running && queue.isEmpty()) {
+                    if (!retries.isEmpty()) {
+                        log.warn("{} tracking numbers could not be stored, they are left to the ingest journal",
+                                retries.size());
+                    }
+                    return;
+                }
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<TrackingNumber> rows = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            rows.add(pending.trackingNumber());
+        }
+        long start = System.nanoTime();
+        Map<Integer, String> failures = trackingNumberBulkWriter.write(rows);
+        for (int attempt = 1; attempt < WRITE_ATTEMPTS && failures.size() == rows.size(); attempt++) {
+            log.warn("Write-behind batch of {} tracking numbers failed, retrying", rows.size());
+            LockSupport.parkNanos(flushInterval.toNanos() * attempt);
+            failures = trackingNumberBulkWriter.write(rows);
+        }
+        trackingNumberMetrics.recordWriteBehindSave(System.nanoTime() - start);
+
+        int stored = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            if (failures.containsKey(i)) {
+                // not reported as flushed, so its journal segment is kept until a later attempt stores it
+                Pending retry = pending.failed(System.nanoTime(), flushInterval.toNanos());
+                log.error("Could not store tracking number {}, retrying in {} ms: {}",
+                        pending.trackingNumber().getTrackingId(), (retry.retryAt() - System.nanoTime()) / 1_000_000,
+                        failures.get(i));
+                retries.add(retry);
+            } else {
+                journal.flushed(pending.segment(), 1);
+                stored++;
+            }
+        }
+        room.release(stored);
+    }
+
+    /**
+     * Moves the failed records that are due again into the batch. A write may have failed after the row was
+     * committed, so records already in the database only count as stored.
+     */
+    private void takeDueRetries(List<Pending> batch) {
+        if (retries.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<Pending> due = new ArrayList<>();
+        for (Iterator<Pending> waiting = retries.iterator(); waiting.hasNext() && due.size() < flushSize; ) {
+            Pending retry = waiting.next();
+            if (now - retry.retryAt() >= 0) {
+                due.add(retry);
+                waiting.remove();
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        Set<String> stored = new HashSet<>();
+        try {
+            trackingNumberStore.findAllById(due.stream().map(retry -> retry.trackingNumber().getTrackingId()).toList())
+                    .forEach(trackingNumber -> stored.add(trackingNumber.getTrackingId()));
+        } catch (RuntimeException e) {
+            log.warn("Could not look up tracking numbers to retry, writing them again: {}", e.getMessage());
+        }
+        for (Pending retry : due) {
+            if (stored.contains(retry.trackingNumber().getTrackingId())) {
+                journal.flushed(retry.segment(), 1);
+                room.release();
+            } else {
+                batch.add(retry);
+            }
+        }
+    }
+
+    /**
+     * Stores records a previous run acknowledged but did not store. A crash between storing a batch and
+     * deleting its journal segment replays rows that are already there, those are skipped.
+     */
+    private void replay(List<TrackingNumber> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        log.info("Replaying {} tracking numbers from the ingest journal", records.size());
+        int failed = 0;
+        for (int from = 0; from < records.size(); from += flushSize) {
+            List<TrackingNumber> chunk = records.subList(from, Math.min(from + flushSize, records.size()));
+            Set<String> stored = new HashSet<>();
+            trackingNumberStore.findAllById(chunk.stream().map(TrackingNumber::getTrackingId).toList())
+                    .forEach(trackingNumber -> stored.add(trackingNumber.getTrackingId()));
+            List<TrackingNumber> missing = chunk.stream()
+                    .filter(trackingNumber -> !stored.contains(trackingNumber.getTrackingId()))
+                    .toList();
+            failed += trackingNumberBulkWriter.write(missing).size();
+        }
+        if (failed > 0) {
+            // the segments are kept and replayed again at the next start
+            log.error("Could not replay {} tracking numbers from the ingest journal", failed);
+            return;
+        }
+        journal.discardRecovered();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Write-behind writer did not drain within {}, {} tracking numbers are left to the journal",
+                    shutdownTimeout, queued());
+        }
+        journal.close();
+        log.info("Write-behind ingestion stopped");
+    }
+
+    private record Pending(TrackingNumber trackingNumber, IngestJournal.Segment segment, int failures,
+                           long retryAt) {
+
+        // the pause doubles from the flush interval with every failure of the record
+        private Pending failed(long now, long firstPauseNanos) {
+            long pause = Math.min(MAX_RETRY_PAUSE_NANOS, firstPauseNanos << Math.min(failures, 20));
+            return new Pending(trackingNumber, segment, failures + 1, now + pause);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumberFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the tracking number hot paths: IDs issued per lane, the capacity left in every lane
+ * with the time until it runs out at the recent issue rate, and latency histograms of ID generation, saves
+ * and filter queries.
+ */
+@Component
+public class TrackingNumberMetrics {
+
+    // single IDs take tens of nanoseconds, so only one call in this many is timed to keep the histogram
+    // from dominating the cost of the ID
+    private static final int SINGLE_GENERATION_SAMPLE = 64;
+    // issue rates are measured over windows of this length
+    private static final long RATE_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MeterRegistry registry;
+    private final Counter[] issued = new Counter[LaneSequencer.LANES];
+    private final Timer singleGeneration;
+    private final Timer batchGeneration;
+    private final Timer singleSave;
+    private final Timer bulkSave;
+    private final Timer queuedSave;
+    private final Timer writeBehindSave;
+
+    private final long[] windowStartCount = new long[LaneSequencer.LANES];
+    private final long[] windowStartNanos = new long[LaneSequencer.LANES];
+    private final double[] issueRates = new double[LaneSequencer.LANES];
+
+    private volatile LaneSequencer sequencer;
+    private volatile IntSupplier ingestQueue = () -> 0;
+    private volatile IntSupplier indexRows = () -> 0;
+
+    public TrackingNumberMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        long now = System.nanoTime();
+        for (int lane = 0; lane < LaneSequencer.LANES; lane++) {
+            String laneName = laneName(lane);
+            issued[lane] = Counter.builder("tracking.ids.issued")
+                    .description("Tracking IDs issued")
+                    .tag("lane", laneName)
+                    .register(registry);
+            int gaugeLane = lane;
+            Gauge.builder("tracking.ids.remaining", this, metrics -> metrics.remaining(gaugeLane))
+                    .description("Tracking IDs this instance can still issue before the range is exhausted")
+                    .tag("lane", laneName)
+                    .register(registry);
+            Gauge.builder("tracking.ids.exhaustion.eta", this, metrics -> metrics.secondsToExhaustion(gaugeLane))
+                    .description("Seconds until the range is exhausted at the recent issue rate")
+                    .tag("lane", laneName)
+                    .baseUnit("seconds")
+                    .register(registry);
+            windowStartNanos[lane] = now;
+            issueRates[lane] = Double.NaN;
+        }
+        singleGeneration = generationTimer("single");
+        batchGeneration = generationTimer("batch");
+        singleSave = saveTimer("single");
+        bulkSave = saveTimer("bulk");
+        queuedSave = saveTimer("queued");
+        writeBehindSave = saveTimer("write-behind");
+        Gauge.builder("tracking.ingest.queue.size", this, metrics -> metrics.ingestQueue.getAsInt())
+                .description("Tracking numbers acknowledged but not yet stored by the write-behind writer")
+                .register(registry);
+        Gauge.builder("tracking.index.rows", this, metrics -> metrics.indexRows.getAsInt())
+                .description("Tracking numbers held by the in-memory filter index")
+                .register(registry);
+    }
+
+    /**
+     * Points the capacity gauges at the sequencer the service currently issues from.
+     */
+    public void bind(LaneSequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
+    /**
+     * Points the write-behind queue gauge at the pipeline's count of records not yet stored.
+     */
+    public void bindIngestQueue(IntSupplier queued) {
+        this.ingestQueue = queued;
+    }
+
+    /**
+     * Points the index size gauge at the in-memory filter index.
+     */
+    public void bindIndex(IntSupplier rows) {
+        this.indexRows = rows;
+    }
+
+    /**
+     * @return The start time to pass to {@link #recordSingleGeneration} if this call is sampled, otherwise -1
+     */
+    public long startSingleGeneration() {
+        return ThreadLocalRandom.current().nextInt(SINGLE_GENERATION_SAMPLE) == 0 ? System.nanoTime() : -1;
+    }
+
+    public void recordSingleGeneration(int lane, long start) {
+        issued[lane].increment();
+        if (start >= 0) {
+            singleGeneration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordBatchGeneration(int lane, int count, long nanos) {
+        issued[lane].increment(count);
+        batchGeneration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSave(long nanos) {
+        singleSave.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBulkSave(long nanos) {
+        bulkSave.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time a write-behind caller waited for the journal and the queue.
+     */
+    public void recordQueuedSave(long nanos) {
+        queuedSave.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time the write-behind writer took to store one batch.
+     */
+    public void recordWriteBehindSave(long nanos) {
+        writeBehindSave.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times a filter query, tagged with the filters that were supplied and the kind of query.
+     */
+    public <T> T timeFilter(TrackingNumberFilter filter, String query, Supplier<T> lookup) {
+        return Timer.builder("tracking.number.filter")
+                .description("Latency of filter queries")
+                .tag("filters", suppliedFilters(filter))
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(lookup);
+    }
+
+    public boolean isBound() {
+        return sequencer != null;
+    }
+
+    public long capacity() {
+        return sequencer == null ? 0 : sequencer.capacity();
+    }
+
+    public long remaining(int lane) {
+        LaneSequencer current = sequencer;
+        return current == null ? 0 : current.remaining(lane);
+    }
+
+    public boolean isExhausted(int lane) {
+        LaneSequencer current = sequencer;
+        return current != null && current.isExhausted(lane);
+    }
+
+    /**
+     * @return IDs issued per second on the lane over the last full window, or over the current window until
+     * the first one completes
+     */
+    public synchronized double issueRate(int lane) {
+        long now = System.nanoTime();
+        long count = (long) issued[lane].count();
+        long elapsed = now - windowStartNanos[lane];
+        double windowRate = elapsed == 0 ? 0 : (count - windowStartCount[lane]) * 1e9 / elapsed;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            issueRates[lane] = windowRate;
+            windowStartNanos[lane] = now;
+            windowStartCount[lane] = count;
+        }
+        return Double.isNaN(issueRates[lane]) ? windowRate : issueRates[lane];
+    }
+
+    /**
+     * @return Seconds until the lane runs out at its recent issue rate, infinite while nothing is issued
+     */
+    public double secondsToExhaustion(int lane) {
+        double rate = issueRate(lane);
+        return rate > 0 ? remaining(lane) / rate : Double.POSITIVE_INFINITY;
+    }
+
+    public static String laneName(int lane) {
+        return lane == LaneSequencer.DEFAULT_LANE ? "default" : LaneSequencer.laneCode(lane);
+    }
+
+    private Timer generationTimer(String operation) {
+        return Timer.builder("tracking.id.generation")
+                .description("Time to issue tracking IDs, one call of a batch counts once, single IDs are sampled")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer saveTimer(String mode) {
+        return Timer.builder("tracking.number.save")
+                .description("Time to store new tracking numbers")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String suppliedFilters(TrackingNumberFilter filter) {
+        StringJoiner filters = new StringJoiner(",");
+        if (filter.getOriginCountry() != null) {
+            filters.add("origin_country_id");
+        }
+        if (filter.getDestinationCountry() != null) {
+            filters.add("destination_country_id");
+        }
+        if (filter.getWeight() != null) {
+            filters.add("weight");
+        }
+        if (filter.getCreatedOn() != null) {
+            filters.add("created_at");
+        }
+        if (filter.getCustomerId() != null) {
+            filters.add("customer_id");
+        }
+        if (filter.getCustomerName() != null) {
+            filters.add("customer_name");
+        }
+        if (filter.getCustomerSlug() != null) {
+            filters.add("customer_slug");
+        }
+        return filters.length() == 0 ? "none" : filters.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.aamir.tracking.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the tracking ID range before it runs out: WARN once a lane drops below the configured share of its
+ * range or would be exhausted within the warning period at its recent issue rate, or has handed out its last
+ * value while others still issue IDs. DOWN only once the default lane or every lane is exhausted, as a node whose
+ * other lanes still issue IDs and which still answers lookups should stay in rotation.
+ */
+@Component("trackingNumberRange")
+@RequiredArgsConstructor
+public class TrackingNumberRangeHealthIndicator implements HealthIndicator {
+
+    public static final Status WARN = new Status("WARN", "Tracking ID range is running out");
+
+    private final TrackingNumberMetrics trackingNumberMetrics;
+
+    // share of the range left at which a lane is reported
+    @Value("${tracking.health.remaining.warn.ratio}")
+    private double warnRatio;
+    // time to exhaustion at which a lane is reported
+    @Value("${tracking.health.exhaustion.warn}")
+    private Duration warnBefore;
+
+    @Override
+    public Health health() {
+        if (!trackingNumberMetrics.isBound()) {
+            return Health.unknown().build();
+        }
+        long capacity = trackingNumberMetrics.capacity();
+        List<String> exhausted = new ArrayList<>();
+        List<String> low = new ArrayList<>();
+        int lowestLane = LaneSequencer.DEFAULT_LANE;
+        long lowestRemaining = Long.MAX_VALUE;
+        for (int lane = 0; lane < LaneSequencer.LANES; lane++) {
+            long remaining = trackingNumberMetrics.remaining(lane);
+            if (trackingNumberMetrics.isExhausted(lane) && remaining == 0) {
+                exhausted.add(TrackingNumberMetrics.laneName(lane));
+            } else if (remaining < capacity * warnRatio
+                    || trackingNumberMetrics.secondsToExhaustion(lane) < warnBefore.toSeconds()) {
+                low.add(TrackingNumberMetrics.laneName(lane));
+            }
+            if (remaining < lowestRemaining) {
+                lowestLane = lane;
+                lowestRemaining = remaining;
+            }
+        }
+
+        Health.Builder health;
+        if (exhausted.size() == LaneSequencer.LANES
+                || exhausted.contains(TrackingNumberMetrics.laneName(LaneSequencer.DEFAULT_LANE))) {
+            health = Health.down().withDetail("exhaustedLanes", exhausted);
+        } else if (!exhausted.isEmpty() || !low.isEmpty()) {
+            health = Health.status(WARN);
+            if (!exhausted.isEmpty()) {
+                health.withDetail("exhaustedLanes", exhausted);
+            }
+            if (!low.isEmpty()) {
+                health.withDetail("lowLanes", low);
+            }
+        } else {
+            health = Health.up();
+        }
+        return health
+                .withDetail("capacity", capacity)
+                .withDetail("lowestLane", TrackingNumberMetrics.laneName(lowestLane))
+                .withDetail("lowestRemaining", lowestRemaining)
+                .build();
+    }
+}
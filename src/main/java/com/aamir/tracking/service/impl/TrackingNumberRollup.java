@@ -0,0 +1,137 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.util.Country;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-lane counts and weights of the tracking numbers this instance created within the last
+ * {@code tracking.stats.rollup.window}, kept in memory so dashboards polling recent volumes never reach the
+ * database.
+ * <p>
+ * The window is a ring of equally long buckets, each holding a count and a weight sum per lane. Recording adds to
+ * the bucket of the current time; a bucket is cleared when the ring wraps around to it. Reading sums the buckets
+ * still inside the window, a fixed amount of work however many tracking numbers were created. Only this
+ * instance's writes are counted, and the oldest bucket drops out as a whole, so the window is accurate to one
+ * bucket.
+ */
+@Component
+public class TrackingNumberRollup {
+
+    private static final Country[] COUNTRIES = Country.values();
+    private static final int LANES = LaneSequencer.DEFAULT_LANE;
+
+    @Value("${tracking.stats.rollup.enabled}")
+    private boolean enabled;
+    @Value("${tracking.stats.rollup.window}")
+    private Duration window;
+    @Value("${tracking.stats.rollup.buckets}")
+    private int bucketCount;
+
+    private final Clock clock;
+    private long bucketMillis;
+    // per bucket: the bucket number (time / bucket length) its values belong to
+    private AtomicLongArray bucketTimes;
+    // per bucket and lane, at bucket * LANES + lane
+    private AtomicLongArray counts;
+    private AtomicLongArray weights;
+    // clearing a bucket for reuse is rare, recording otherwise never blocks
+    private final ReentrantLock rotateLock = new ReentrantLock();
+
+    public TrackingNumberRollup() {
+        this(Clock.systemUTC());
+    }
+
+    TrackingNumberRollup(Clock clock) {
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        bucketMillis = Math.max(1, window.toMillis() / bucketCount);
+        bucketTimes = new AtomicLongArray(bucketCount);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            bucketTimes.set(bucket, -1);
+        }
+        counts = new AtomicLongArray(bucketCount * LANES);
+        weights = new AtomicLongArray(bucketCount * LANES);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(TrackingNumber trackingNumber) {
+        if (!enabled) {
+            return;
+        }
+        long time = clock.millis() / bucketMillis;
+        int bucket = (int) (time % bucketCount);
+        if (bucketTimes.get(bucket) != time) {
+            rotate(bucket, time);
+        }
+        int cell = bucket * LANES
+                + LaneSequencer.laneIndex(trackingNumber.getOriginCountryId(), trackingNumber.getDestinationCountryId());
+        counts.incrementAndGet(cell);
+        weights.addAndGet(cell, trackingNumber.getWeight());
+    }
+
+    /**
+     * @return The count and weight of every lane with tracking numbers inside the window, in lane order
+     */
+    public List<TrackingNumberStats> recentByLane() {
+        long now = clock.millis() / bucketMillis;
+        long[] laneCounts = new long[LANES];
+        long[] laneWeights = new long[LANES];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            long time = bucketTimes.get(bucket);
+            if (time < 0 || now - time >= bucketCount) {
+                continue;
+            }
+            for (int lane = 0; lane < LANES; lane++) {
+                laneCounts[lane] += counts.get(bucket * LANES + lane);
+                laneWeights[lane] += weights.get(bucket * LANES + lane);
+            }
+        }
+
+        List<TrackingNumberStats> stats = new ArrayList<>();
+        for (int lane = 0; lane < LANES; lane++) {
+            if (laneCounts[lane] > 0) {
+                stats.add(TrackingNumberStats.builder()
+                        .withOriginCountry(COUNTRIES[lane / COUNTRIES.length])
+                        .withDestinationCountry(COUNTRIES[lane % COUNTRIES.length])
+                        .withCount(laneCounts[lane])
+                        .withTotalWeight(laneWeights[lane])
+                        .build());
+            }
+        }
+        return stats;
+    }
+
+    private void rotate(int bucket, long time) {
+        rotateLock.lock();
+        try {
+            // another recorder may have cleared it while this one waited
+            if (bucketTimes.get(bucket) >= time) {
+                return;
+            }
+            for (int lane = 0; lane < LANES; lane++) {
+                counts.set(bucket * LANES + lane, 0);
+                weights.set(bucket * LANES + lane, 0);
+            }
+            bucketTimes.set(bucket, time);
+        } finally {
+            rotateLock.unlock();
+        }
+    }
+}
@@ -2,26 +2,60 @@ package com.aamir.tracking.service.impl;
 
 import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
 import com.aamir.tracking.model.TrackingNumber;
-import com.aamir.tracking.repository.TrackingNumberRepository;
+import com.aamir.tracking.model.TrackingNumberBulkResult;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberPage;
+import com.aamir.tracking.model.TrackingNumberRange;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
 import com.aamir.tracking.service.TrackingNumberService;
 import com.aamir.tracking.util.Country;
+import com.aamir.tracking.util.SnowflakeIdGenerator;
+import com.aamir.tracking.util.TrackingIdFormatter;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class TrackingNumberServiceImpl implements TrackingNumberService {
 
-    private final AtomicInteger counter = new AtomicInteger(0);
-    private final TrackingNumberRepository trackingNumberRepository;
+    private static final String SEQUENCE_NAME = "tracking_id";
+
+    private final TrackingNumberStore trackingNumberStore;
+    private final SequenceBlockAllocator sequenceBlockAllocator;
+    private final TrackingNumberBulkWriter trackingNumberBulkWriter;
+    private final TrackingNumberMetrics trackingNumberMetrics;
+    private final TrackingNumberIngestPipeline trackingNumberIngestPipeline;
+    private final TrackingNumberCache trackingNumberCache;
+    private final TrackingNumberRollup trackingNumberRollup;
+    private final TrackingNumberIndex trackingNumberIndex;
+    private final TrackingIdFilter trackingIdFilter;
+    private LaneSequencer counter;
+    private TrackingIdFormatter trackingIdFormatter;
+    // set instead of the counter and formatter in snowflake mode
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    // sequence: lane sequences reserved in blocks, snowflake: time-ordered IDs without a block store
+    @Value("${tracking.id.mode}")
+    private String mode;
     // can be adjusted for characters
     @Value("${tracking.id.pattern}")
     private String pattern;
@@ -37,47 +71,237 @@ public class TrackingNumberServiceImpl implements TrackingNumberService {
     private int endRange;
     @Value("${tracking.id.padding}")
     private int padding;
+    // number of sequence values reserved with one write to the block store
+    @Value("${tracking.id.block.size}")
+    private int blockSize;
+    // remaining values in the current block at which the next block is prefetched
+    @Value("${tracking.id.block.low.water.mark}")
+    private int lowWaterMark;
+    // upper bound for the number of tracking numbers reserved in one batch
+    @Value("${tracking.id.batch.max.size}")
+    private int maxBatchSize;
+    // upper bound for the number of tracking numbers created in one bulk request
+    @Value("${tracking.bulk.max.size}")
+    private int maxBulkSize;
+    // upper bound for the number of tracking numbers in one page
+    @Value("${tracking.page.max.size}")
+    private int maxPageSize;
+    // rows fetched from the database per round trip while exporting
+    @Value("${tracking.export.fetch.size}")
+    private int exportFetchSize;
+    // upper bound for the number of groups returned by one aggregation
+    @Value("${tracking.stats.max.groups}")
+    private int maxStatsGroups;
+    @Value("${tracking.id.snowflake.epoch}")
+    private String snowflakeEpoch;
+    @Value("${tracking.id.snowflake.timestamp.bits}")
+    private int snowflakeTimestampBits;
+    @Value("${tracking.id.snowflake.instance.bits}")
+    private int snowflakeInstanceBits;
+    @Value("${tracking.id.snowflake.sequence.bits}")
+    private int snowflakeSequenceBits;
+    // distinct for every node generating snowflake IDs
+    @Value("${tracking.id.snowflake.instance}")
+    private long snowflakeInstance;
 
-    public TrackingNumberServiceImpl(TrackingNumberRepository trackingNumberRepository) {
-        this.trackingNumberRepository = trackingNumberRepository;
-
+    public TrackingNumberServiceImpl(TrackingNumberStore trackingNumberStore,
+                                     SequenceBlockAllocator sequenceBlockAllocator,
+                                     TrackingNumberBulkWriter trackingNumberBulkWriter,
+                                     TrackingNumberMetrics trackingNumberMetrics,
+                                     TrackingNumberIngestPipeline trackingNumberIngestPipeline,
+                                     TrackingNumberCache trackingNumberCache,
+                                     TrackingNumberRollup trackingNumberRollup,
+                                     TrackingNumberIndex trackingNumberIndex,
+                                     TrackingIdFilter trackingIdFilter) {
+        this.trackingNumberStore = trackingNumberStore;
+        this.sequenceBlockAllocator = sequenceBlockAllocator;
+        this.trackingNumberBulkWriter = trackingNumberBulkWriter;
+        this.trackingNumberMetrics = trackingNumberMetrics;
+        this.trackingNumberIngestPipeline = trackingNumberIngestPipeline;
+        this.trackingNumberCache = trackingNumberCache;
+        this.trackingNumberRollup = trackingNumberRollup;
+        this.trackingNumberIndex = trackingNumberIndex;
+        this.trackingIdFilter = trackingIdFilter;
     }
 
     @PostConstruct
     public void init() {
-        if (counter.get() < startRange) {
-            counter.set(startRange);
-            log.info("counter reset to start range: {}", startRange);
+        if (counter != null) {
+            counter.close();
+        }
+        String[] lanePrefixes = new String[LaneSequencer.LANES];
+        for (int lane = 0; lane < LaneSequencer.DEFAULT_LANE; lane++) {
+            lanePrefixes[lane] = LaneSequencer.laneCode(lane);
+        }
+        lanePrefixes[LaneSequencer.DEFAULT_LANE] = Country.MY.getCode();
+
+        if ("snowflake".equals(mode)) {
+            counter = null;
+            snowflakeIdGenerator = SnowflakeIdGenerator.builder()
+                    .withLanePrefixes(lanePrefixes)
+                    .withPattern(pattern)
+                    .withIdLength(idLength)
+                    .withEpoch(Instant.parse(snowflakeEpoch))
+                    .withTimestampBits(snowflakeTimestampBits)
+                    .withInstanceBits(snowflakeInstanceBits)
+                    .withSequenceBits(snowflakeSequenceBits)
+                    .withInstance(snowflakeInstance)
+                    .build();
+            log.info("snowflake IDs for instance {}, epoch: {}", snowflakeInstance, snowflakeEpoch);
+            return;
+        }
+
+        snowflakeIdGenerator = null;
+        counter = new LaneSequencer(SEQUENCE_NAME, sequenceBlockAllocator, startRange, endRange, blockSize,
+                lowWaterMark);
+        trackingNumberMetrics.bind(counter);
+        // the block store may assign this node its instance ID, e.g. from a leased instance slot
+        trackingIdFormatter = new TrackingIdFormatter(lanePrefixes, sequenceBlockAllocator.instanceId(instanceId),
+                pattern, idLength, padding);
+        log.info("counter reset to start range: {}, block size: {}", startRange, blockSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (counter != null) {
+            counter.close();
         }
     }
 
     @Override
     public String getNextTrackingNumber() {
-        log.info("Generating next tracking number");
-        return generateSequentialId(Country.MY.getCode(), instanceId, startRange, endRange);
+        log.debug("Generating next tracking number");
+        return generateSequentialId(LaneSequencer.DEFAULT_LANE);
     }
 
     @Override
-    public TrackingNumber createNextTrackingNumber(TrackingNumberRequest request) {
-        log.info("Creating next tracking number");
-        float weight = Float.parseFloat(request.getWeight()) * 1000F;
-        TrackingNumber trackingNumber = TrackingNumber.builder()
-                .withTrackingId(generateSequentialId(
-                        Country.valueOf(request.getSourceCountry()).getCode() +
-                                Country.valueOf(request.getDestinationCountry()).getCode(), instanceId, startRange,
-                        endRange))
-                .withOriginCountryId(Country.valueOf(request.getSourceCountry()))
-                .withDestinationCountryId(Country.valueOf(request.getDestinationCountry()))
-                // Convert kg to grams
-                .withWeight((int) weight)
-                .withCreatedAt(Timestamp.from(Instant.now()))
-                .withUpdatedAt(null)
-                .withCustomerId(UUID.fromString(request.getCustomerId()))
-                .withCustomerName(request.getCustomerName())
-                .withCustomerSlug(getCustomerSlug(request.getCustomerName()))
+    public List<String> getNextTrackingNumbers(int count) {
+        long first = reserveBatch(count);
+        List<String> trackingNumbers = new ArrayList<>(count);
+        for (long value = first; value < first + count; value++) {
+            trackingNumbers.add(format(LaneSequencer.DEFAULT_LANE, value));
+        }
+        return trackingNumbers;
+    }
+
+    @Override
+    public TrackingNumberRange getNextTrackingNumberRange(int count) {
+        if (snowflakeIdGenerator != null) {
+            // snowflake IDs are not a prefix followed by a padded number, clients could not render them
+            throw new IllegalArgumentException("Tracking number ranges are not available in snowflake mode");
+        }
+        long first = reserveBatch(count);
+        return TrackingNumberRange.builder()
+                .withPrefix(trackingIdFormatter.prefix(LaneSequencer.DEFAULT_LANE))
+                .withFirst(first)
+                .withLast(first + count - 1)
+                .withPadding(padding)
                 .build();
+    }
 
-        return trackingNumberRepository.save(trackingNumber);
+    @Override
+    public TrackingNumber createNextTrackingNumber(TrackingNumberRequest request) {
+        log.debug("Creating next tracking number");
+        TrackingNumber trackingNumber = newTrackingNumber(request);
+
+        long start = System.nanoTime();
+        if (trackingNumberIngestPipeline.isEnabled()) {
+            // acknowledged once journaled, the database write happens in the background
+            trackingNumberIngestPipeline.submit(trackingNumber);
+            trackingNumberMetrics.recordQueuedSave(System.nanoTime() - start);
+            trackingNumberStored(trackingNumber);
+            return trackingNumber;
+        }
+        TrackingNumber saved = trackingNumberStore.save(trackingNumber);
+        trackingNumberMetrics.recordSave(System.nanoTime() - start);
+        trackingNumberStored(saved);
+        return saved;
+    }
+
+    @Override
+    public TrackingNumber newTrackingNumber(TrackingNumberRequest request) {
+        TrackingNumber trackingNumber = toTrackingNumber(request);
+        trackingNumber.setTrackingId(generateSequentialId(laneOf(trackingNumber)));
+        return trackingNumber;
+    }
+
+    @Override
+    public void trackingNumberStored(TrackingNumber trackingNumber) {
+        trackingNumberCache.stored(trackingNumber);
+        trackingNumberRollup.record(trackingNumber);
+        trackingNumberIndex.add(trackingNumber);
+        trackingIdFilter.add(trackingNumber.getTrackingId());
+    }
+
+    @Override
+    public TrackingNumberBulkResult createTrackingNumbers(List<TrackingNumberRequest> requests) {
+        if (requests.isEmpty() || requests.size() > maxBulkSize) {
+            throw new IllegalArgumentException("Bulk request must contain between 1 and " + maxBulkSize + " items");
+        }
+        log.info("Creating {} tracking numbers", requests.size());
+
+        Map<Integer, String> failures = new TreeMap<>();
+        List<TrackingNumber> accepted = new ArrayList<>(requests.size());
+        List<Integer> positions = new ArrayList<>(requests.size());
+        int[] laneCounts = new int[LaneSequencer.LANES];
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                TrackingNumber trackingNumber = toTrackingNumber(requests.get(i));
+                laneCounts[laneOf(trackingNumber)]++;
+                accepted.add(trackingNumber);
+                positions.add(i);
+            } catch (RuntimeException e) {
+                failures.put(i, "Invalid request: " + e.getMessage());
+            }
+        }
+
+        // One reservation per lane covers every accepted item of that lane
+        long[] nextSequence = new long[LaneSequencer.LANES];
+        // why the items of a lane could not be numbered, the lane ran out or has fewer values left than items
+        String[] laneFailures = new String[LaneSequencer.LANES];
+        for (int lane = 0; lane < LaneSequencer.LANES; lane++) {
+            if (laneCounts[lane] > 0) {
+                try {
+                    long start = System.nanoTime();
+                    nextSequence[lane] = reserve(lane, laneCounts[lane]);
+                    trackingNumberMetrics.recordBatchGeneration(lane, laneCounts[lane], System.nanoTime() - start);
+                } catch (SequenceExhaustedException e) {
+                    laneFailures[lane] = "Tracking number sequence exhausted: reached end of range";
+                } catch (IllegalArgumentException e) {
+                    laneFailures[lane] = e.getMessage();
+                }
+            }
+        }
+
+        List<TrackingNumber> toWrite = new ArrayList<>(accepted.size());
+        List<Integer> writePositions = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            TrackingNumber trackingNumber = accepted.get(i);
+            int lane = laneOf(trackingNumber);
+            if (laneFailures[lane] != null) {
+                failures.put(positions.get(i), laneFailures[lane]);
+                continue;
+            }
+            trackingNumber.setTrackingId(format(lane, nextSequence[lane]++));
+            toWrite.add(trackingNumber);
+            writePositions.add(positions.get(i));
+        }
+
+        long start = System.nanoTime();
+        Map<Integer, String> writeFailures = trackingNumberBulkWriter.write(toWrite);
+        trackingNumberMetrics.recordBulkSave(System.nanoTime() - start);
+        List<TrackingNumber> created = new ArrayList<>(toWrite.size() - writeFailures.size());
+        for (int i = 0; i < toWrite.size(); i++) {
+            String failure = writeFailures.get(i);
+            if (failure == null) {
+                created.add(toWrite.get(i));
+                trackingNumberStored(toWrite.get(i));
+            } else {
+                failures.put(writePositions.get(i), failure);
+            }
+        }
+        log.info("Created {} tracking numbers, {} failed", created.size(), failures.size());
+        return new TrackingNumberBulkResult(created, failures);
     }
 
     @Override
@@ -88,111 +312,178 @@ public class TrackingNumberServiceImpl implements TrackingNumberService {
                         " createdAt: {}, customerId: {}, customerName: {}, customerSlug: {}",
                 originCountry, destinationCountry, weight, createdAt, customerId, customerName, customerSlug);
 
-        // Convert weight from kg to grams if provided
-        Integer weightInGrams = null;
-        if (weight != null && !weight.isEmpty()) {
-            try {
-                weightInGrams = (int) (Float.parseFloat(weight) * 1000F);
-            } catch (NumberFormatException e) {
-                log.warn("Invalid weight format: {}", weight);
-                // Return empty list for invalid weight
-                return List.of();
-            }
+        // Return empty list for invalid criteria
+        return TrackingNumberFilter.parse(originCountry, destinationCountry, weight, createdAt, customerId,
+                        customerName, customerSlug)
+                .map(filter -> trackingNumberMetrics.timeFilter(filter, "list", () -> findByFilters(filter)))
+                .orElse(List.of());
+    }
+
+    @Override
+    public Optional<TrackingNumber> getTrackingNumber(String trackingId) {
+        if (trackingIdFilter.definitelyAbsent(trackingId)) {
+            return Optional.empty();
         }
+        return Optional.ofNullable(trackingNumberCache.findByTrackingId(trackingId));
+    }
 
-        // Parse created at timestamp if provided
-        Timestamp createdAtTimestamp = null;
-        if (createdAt != null && !createdAt.isEmpty()) {
-            try {
-                // Try to parse as yyyy-MM-dd format
-                if (createdAt.length() == 10) { // Format: yyyy-MM-dd
-                    createdAtTimestamp = Timestamp.valueOf(createdAt + " 00:00:00");
-                } else {
-                    // Try to parse as timestamp
-                    createdAtTimestamp = Timestamp.valueOf(createdAt);
-                }
-            } catch (IllegalArgumentException e) {
-                log.warn("Invalid createdAt format: {}. Expected format: yyyy-MM-dd or yyyy-MM-dd HH:mm:ss", createdAt);
-                // Return empty list for invalid date
-                return List.of();
-            }
+    @Override
+    public TrackingNumberPage filterTrackingNumberPage(Country originCountry, Country destinationCountry,
+                                                       String weight, String createdAt, String customerId,
+                                                       String customerName, String customerSlug, String cursor,
+                                                       int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        TrackingNumberCursor after = cursor == null || cursor.isEmpty() ? null : TrackingNumberCursor.decode(cursor);
+        Optional<TrackingNumberFilter> filter = TrackingNumberFilter.parse(originCountry, destinationCountry, weight,
+                createdAt, customerId, customerName, customerSlug);
+        if (filter.isEmpty()) {
+            return new TrackingNumberPage(List.of(), null);
         }
 
-        // Parse customer ID to UUID if provided
-        UUID customerUuid = null;
-        if (customerId != null && !customerId.isEmpty()) {
-            try {
-                customerUuid = UUID.fromString(customerId);
-            } catch (IllegalArgumentException e) {
-                log.warn("Invalid UUID format for customerId: {}", customerId);
-                // Return empty list for invalid UUID
-                return List.of();
-            }
+        // one extra row tells whether another page follows
+        List<TrackingNumber> rows = trackingNumberMetrics.timeFilter(filter.get(), "page",
+                () -> trackingNumberStore.findPage(filter.get(), after, limit + 1));
+        if (rows.size() <= limit) {
+            return new TrackingNumberPage(rows, null);
+        }
+        List<TrackingNumber> items = rows.subList(0, limit);
+        return new TrackingNumberPage(items, TrackingNumberCursor.after(items.get(limit - 1)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportTrackingNumbers(Country originCountry, Country destinationCountry, String weight,
+                                      String createdAt, String customerId, String customerName, String customerSlug,
+                                      Consumer<TrackingNumber> consumer) {
+        log.info("Exporting tracking numbers with criteria - originCountry: {}, destinationCountry: {}, weight: {}," +
+                        " createdAt: {}, customerId: {}, customerName: {}, customerSlug: {}",
+                originCountry, destinationCountry, weight, createdAt, customerId, customerName, customerSlug);
+        Optional<TrackingNumberFilter> filter = TrackingNumberFilter.parse(originCountry, destinationCountry, weight,
+                createdAt, customerId, customerName, customerSlug);
+        if (filter.isEmpty()) {
+            return;
         }
+        try (Stream<TrackingNumber> rows = trackingNumberStore.streamByFilters(filter.get(), exportFetchSize)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<TrackingNumberStats> aggregateTrackingNumbers(String groupBy, Country originCountry,
+                                                              Country destinationCountry, String weight,
+                                                              String createdAt, String customerId,
+                                                              String customerName, String customerSlug) {
+        TrackingNumberGrouping grouping = TrackingNumberGrouping.parse(groupBy);
+        log.info("Aggregating tracking numbers by {} with criteria - originCountry: {}, destinationCountry: {}, " +
+                        "weight: {}, createdAt: {}, customerId: {}, customerName: {}, customerSlug: {}",
+                grouping, originCountry, destinationCountry, weight, createdAt, customerId, customerName,
+                customerSlug);
+        return TrackingNumberFilter.parse(originCountry, destinationCountry, weight, createdAt, customerId,
+                        customerName, customerSlug)
+                .map(filter -> trackingNumberMetrics.timeFilter(filter, "stats",
+                        () -> trackingNumberStore.aggregate(filter, grouping, maxStatsGroups)))
+                .orElse(List.of());
+    }
 
-        // Execute the query with all parameters
-        return trackingNumberRepository.findByFilters(
-                originCountry,
-                destinationCountry,
-                weightInGrams,
-                createdAtTimestamp,
-                customerUuid,
-                customerName,
-                customerSlug
-        );
+    @Override
+    public List<TrackingNumberStats> getRecentLaneStats() {
+        if (!trackingNumberRollup.isEnabled()) {
+            throw new IllegalArgumentException("Recent stats are disabled, set tracking.stats.rollup.enabled");
+        }
+        return trackingNumberRollup.recentByLane();
     }
 
     @Override
     public List<TrackingNumber> getAllTrackingNumbers() {
-        return trackingNumberRepository.findAll();
+        return trackingNumberStore.findAll();
     }
 
     /**
      * Generates a tracking ID with a prefix and a sequential number within a specific range.
      * This implementation ensures uniqueness across multiple application instances by
-     * allocating a specific range to each instance.
+     * allocating a specific range to each instance. Every lane counts through the range on its own
+     * and its IDs start with the country codes of the lane.
      *
-     * @param prefix     The prefix to use (should be uppercase letters)
-     * @param instanceId The ID of this application instance
-     * @param startRange The starting number of the range for this instance
-     * @param endRange   The ending number of the range for this instance
+     * @param lane The lane whose sequence supplies the number, see {@link LaneSequencer#laneIndex}
      * @return A string tracking ID
      */
-    private String generateSequentialId(String prefix, String instanceId, int startRange, int endRange) {
-        // Ensure we don't exceed 16 chars total for the final ID
-        if (prefix.length() > 6) {
-            prefix = prefix.substring(0, 6);
-        }
-
-        // Calculate the next sequence number within the instance's range
-        // This ensures each instance has its own unique set of IDs
-        int currentSequence =
-                counter.getAndUpdate(current -> {
-                    int next = current + 1;
-                    // If we reach the end of our range, throw an exception instead of wrapping
-                    if (next > endRange) {
-                        throw new IllegalStateException("Tracking number sequence exhausted: reached end of range");
-                    }
-                    return Math.max(next, startRange);
-                });
+    private String generateSequentialId(int lane) {
+        // Take the next sequence number of the lane from its reserved block within the instance's range.
+        // The sequencer throws once the lane's range is exhausted instead of wrapping
+        long start = trackingNumberMetrics.startSingleGeneration();
+        String trackingId = format(lane, reserve(lane, 1));
+        trackingNumberMetrics.recordSingleGeneration(lane, start);
+        return trackingId;
+    }
 
+    /**
+     * One claim on the default lane covers the whole batch, so the numbers are contiguous.
+     *
+     * @return The first value of the batch
+     */
+    private long reserveBatch(int count) {
+        if (count < 1 || count > maxBatchSize) {
+            throw new IllegalArgumentException("Count must be between 1 and " + maxBatchSize);
+        }
+        log.debug("Reserving {} tracking numbers", count);
+        long start = System.nanoTime();
+        long first = reserve(LaneSequencer.DEFAULT_LANE, count);
+        trackingNumberMetrics.recordBatchGeneration(LaneSequencer.DEFAULT_LANE, count, System.nanoTime() - start);
+        return first;
+    }
 
-        // Use StringBuilder for better performance
-        StringBuilder idBuilder = new StringBuilder(prefix.length() + instanceId.length() + padding);
-        idBuilder.append(prefix);
-        idBuilder.append(instanceId);
+    /**
+     * Claims {@code count} consecutive values for the lane from the snowflake generator or the lane sequence.
+     */
+    private long reserve(int lane, int count) {
+        return snowflakeIdGenerator != null ? snowflakeIdGenerator.reserve(count) : counter.reserve(lane, count);
+    }
 
-        // Calculate the number to append
-        String numberStr = Integer.toString(currentSequence);
+    private String format(int lane, long value) {
+        return snowflakeIdGenerator != null ? snowflakeIdGenerator.format(lane, value)
+                : trackingIdFormatter.format(lane, value);
+    }
 
-        // Pad with zeros if needed
-        int zerosToPad = padding - numberStr.length();
-        idBuilder.append("0".repeat(Math.max(0, zerosToPad)));
+    /**
+     * Filters are answered by the in-memory index once it is built. Otherwise lists of a single customer, looked up
+     * by customer ID or slug alone, are served from the cache; any other combination of filters goes to the
+     * database.
+     */
+    private List<TrackingNumber> findByFilters(TrackingNumberFilter filter) {
+        Optional<List<TrackingNumber>> indexed = trackingNumberIndex.find(filter);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        boolean customerOnly = filter.getOriginCountry() == null && filter.getDestinationCountry() == null
+                && filter.getWeight() == null && filter.getCreatedOn() == null && filter.getCustomerName() == null;
+        if (customerOnly && filter.getCustomerId() != null && filter.getCustomerSlug() == null) {
+            return trackingNumberCache.findByCustomerId(filter.getCustomerId());
+        }
+        if (customerOnly && filter.getCustomerSlug() != null && filter.getCustomerId() == null) {
+            return trackingNumberCache.findByCustomerSlug(filter.getCustomerSlug());
+        }
+        return trackingNumberStore.findByFilters(filter);
+    }
 
-        // Append the actual number
-        idBuilder.append(numberStr);
+    private TrackingNumber toTrackingNumber(TrackingNumberRequest request) {
+        float weight = Float.parseFloat(request.getWeight()) * 1000F;
+        return TrackingNumber.builder()
+                .withOriginCountryId(Country.valueOf(request.getSourceCountry()))
+                .withDestinationCountryId(Country.valueOf(request.getDestinationCountry()))
+                // Convert kg to grams
+                .withWeight((int) weight)
+                .withCreatedAt(Timestamp.from(Instant.now()))
+                .withUpdatedAt(null)
+                .withCustomerId(UUID.fromString(request.getCustomerId()))
+                .withCustomerName(request.getCustomerName())
+                .withCustomerSlug(getCustomerSlug(request.getCustomerName()))
+                .build();
+    }
 
-        return idBuilder.toString();
+    private int laneOf(TrackingNumber trackingNumber) {
+        return LaneSequencer.laneIndex(trackingNumber.getOriginCountryId(), trackingNumber.getDestinationCountryId());
     }
 
     private String getCustomerSlug(String customerName) {
@@ -0,0 +1,47 @@
+package com.aamir.tracking.util;
+
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+
+/**
+ * Text forms of the tracking number fields that responses render: the weight in kilograms and the creation time.
+ */
+public final class ResponseFormats {
+
+    // same layout as Timestamp.toString(): nanos without trailing zeros, at least one digit
+    private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder()
+            .appendPattern("uuuu-MM-dd HH:mm:ss")
+            .appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, true)
+            .toFormatter();
+
+    private ResponseFormats() {
+    }
+
+    /**
+     * @return The weight in kilograms with exactly three decimals, e.g. {@code 2500} grams as {@code 2.500}
+     */
+    public static String kilograms(long grams) {
+        long value = grams;
+        StringBuilder text = new StringBuilder(16);
+        if (value < 0) {
+            text.append('-');
+            value = -value;
+        }
+        int fraction = (int) (value % 1000);
+        return text.append(value / 1000)
+                .append('.')
+                .append((char) ('0' + fraction / 100))
+                .append((char) ('0' + fraction / 10 % 10))
+                .append((char) ('0' + fraction % 10))
+                .toString();
+    }
+
+    /**
+     * @return The time in the default time zone as {@code yyyy-MM-dd HH:mm:ss.f}, like {@link Timestamp#toString()}
+     */
+    public static String timestamp(Timestamp timestamp) {
+        return TIMESTAMP.format(timestamp.toLocalDateTime());
+    }
+}
@@ -0,0 +1,255 @@
+package com.aamir.tracking.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Set membership with false positives but no false negatives, growing with the number of keys. Keys go into the
+ * newest of a chain of Bloom filters; once it holds the keys it was sized for, a filter twice as large with half
+ * the false positive rate is added, so the rate over all of them stays below the configured one however many keys
+ * arrive. Adds and lookups take no lock, bits are set with compare-and-set; only adding a stage is locked.
+ */
+public class ScalableBloomFilter {
+
+    // every stage holds twice the keys of the previous one at half its false positive rate, the rates sum to
+    // at most the configured one
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+    private static final int MAGIC = 0x53424631;
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile Stage[] stages;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Capacity must be positive and the false positive rate between 0 and 1");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = new Stage[]{new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING))};
+    }
+
+    private ScalableBloomFilter(long initialCapacity, double falsePositiveRate, Stage[] stages) {
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = stages;
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        Stage[] current = stages;
+        Stage stage = current[current.length - 1];
+        stage.put(hash);
+        if (stage.count.incrementAndGet() == stage.capacity) {
+            grow(current.length);
+        }
+    }
+
+    /**
+     * @return false if the key was certainly never added
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * @return Keys added, a key added twice counts twice
+     */
+    public long count() {
+        long count = 0;
+        for (Stage stage : stages) {
+            count += stage.count.get();
+        }
+        return count;
+    }
+
+    public int stageCount() {
+        return stages.length;
+    }
+
+    /**
+     * @return Bytes held by the bit sets of all stages
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += (long) stage.bits.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The false positive rate expected for the keys added so far
+     */
+    public double expectedFalsePositiveRate() {
+        double none = 1;
+        for (Stage stage : stages) {
+            none *= 1 - stage.expectedFalsePositiveRate();
+        }
+        return 1 - none;
+    }
+
+    /**
+     * Writes every stage. Keys added while it runs may or may not be included.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        Stage[] current = stages;
+        out.writeInt(MAGIC);
+        out.writeLong(initialCapacity);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(current.length);
+        for (Stage stage : current) {
+            out.writeLong(stage.capacity);
+            out.writeLong(stage.count.get());
+            out.writeInt(stage.hashes);
+            out.writeInt(stage.bits.length());
+            for (int word = 0; word < stage.bits.length(); word++) {
+                out.writeLong(stage.bits.get(word));
+            }
+        }
+    }
+
+    /**
+     * @throws IOException if the input was not written by {@link #writeTo}
+     */
+    public static ScalableBloomFilter readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a Bloom filter snapshot");
+        }
+        long initialCapacity = in.readLong();
+        double falsePositiveRate = in.readDouble();
+        Stage[] stages = new Stage[in.readInt()];
+        for (int i = 0; i < stages.length; i++) {
+            long capacity = in.readLong();
+            long count = in.readLong();
+            int hashes = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int word = 0; word < words.length; word++) {
+                words[word] = in.readLong();
+            }
+            stages[i] = new Stage(capacity, hashes, new AtomicLongArray(words), count);
+        }
+        return new ScalableBloomFilter(initialCapacity, falsePositiveRate, stages);
+    }
+
+    private void grow(int full) {
+        growLock.lock();
+        try {
+            Stage[] current = stages;
+            if (current.length != full) {
+                return;
+            }
+            Stage[] grown = Arrays.copyOf(current, current.length + 1);
+            Stage last = current[current.length - 1];
+            grown[current.length] = new Stage(last.capacity * GROWTH,
+                    falsePositiveRate * (1 - TIGHTENING) * Math.pow(TIGHTENING, current.length));
+            stages = grown;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    // 64-bit FNV-1a over the characters with the murmur3 finalizer, enough spread for double hashing
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Stage {
+
+        private final long capacity;
+        private final int hashes;
+        private final long bitCount;
+        private final AtomicLongArray bits;
+        private final AtomicLong count;
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this(capacity, hashes(capacity, falsePositiveRate),
+                    new AtomicLongArray(words(capacity, falsePositiveRate)), 0);
+        }
+
+        private Stage(long capacity, int hashes, AtomicLongArray bits, long count) {
+            this.capacity = capacity;
+            this.hashes = hashes;
+            this.bits = bits;
+            this.bitCount = (long) bits.length() * Long.SIZE;
+            this.count = new AtomicLong(count);
+        }
+
+        // m = -n ln p / (ln 2)^2 bits, rounded up to whole words
+        private static int words(long capacity, double falsePositiveRate) {
+            double bits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            long words = (long) Math.ceil(bits / Long.SIZE);
+            if (words > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Bloom filter stage of " + capacity + " keys is too large");
+            }
+            return (int) Math.max(1, words);
+        }
+
+        // k = m / n ln 2
+        private static int hashes(long capacity, double falsePositiveRate) {
+            double bits = (double) words(capacity, falsePositiveRate) * Long.SIZE;
+            return Math.max(1, (int) Math.round(bits / capacity * Math.log(2)));
+        }
+
+        private void put(long hash) {
+            long first = hash;
+            long step = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(first + i * step, bitCount);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                if ((bits.get(word) & mask) == 0) {
+                    bits.getAndAccumulate(word, mask, (current, set) -> current | set);
+                }
+            }
+        }
+
+        private boolean mightContain(long hash) {
+            long first = hash;
+            long step = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(first + i * step, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // (1 - e^(-kn/m))^k
+        private double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashes * count.get() / bitCount), hashes);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.aamir.tracking.util;
+
+import lombok.Builder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered tracking IDs without shared state: milliseconds since the epoch, the instance number and a
+ * per-millisecond sequence packed into one positive 64-bit value, rendered behind the lane prefix in the
+ * characters of the tracking ID pattern.
+ * <p>
+ * The timestamp and sequence of the last issued value live together in one {@link AtomicLong}, so claiming
+ * values is a single compare-and-set. A sequence that runs over its bits carries into the next millisecond,
+ * and a clock that moves backwards keeps counting on from the last timestamp; either way the generator
+ * borrows time from the future instead of repeating a value, and waits once it is more than
+ * {@link #MAX_BORROW_MILLIS} ahead of the clock.
+ * <p>
+ * Digits are the pattern characters in ascending order and rendered at a fixed width, so IDs of a lane sort
+ * lexically by time.
+ */
+public class SnowflakeIdGenerator {
+
+    // how far the generator may run ahead of the clock before it waits for it
+    static final long MAX_BORROW_MILLIS = 1_000;
+
+    private final byte[][] lanePrefixes;
+    private final byte[] digits;
+    private final int width;
+    private final int idLength;
+    private final long epochMillis;
+    private final int sequenceBits;
+    private final long sequenceMask;
+    private final int timestampShift;
+    private final long maxTimestamp;
+    private final long instanceBitsValue;
+    private final LongSupplier clock;
+    // last issued value as timestamp << sequenceBits | sequence
+    private final AtomicLong state = new AtomicLong();
+    private final ThreadLocal<byte[]> scratch;
+
+    /**
+     * @param lanePrefixes  Country prefix of every lane, indexed like the lane sequencer
+     * @param pattern       The characters a tracking ID may contain
+     * @param idLength      The maximum length of a tracking ID
+     * @param epoch         Start of the timestamp
+     * @param timestampBits Bits of the millisecond timestamp
+     * @param instanceBits  Bits of the instance number
+     * @param sequenceBits  Bits of the per-millisecond sequence
+     * @param instance      The number of this application instance
+     * @param clock         Source of the current time in epoch milliseconds, the system clock if null
+     * @throws IllegalStateException if the layout exceeds 63 bits, the instance does not fit its bits or an ID
+     *                               would not fit the length
+     */
+    @Builder(setterPrefix = "with")
+    public SnowflakeIdGenerator(String[] lanePrefixes, String pattern, int idLength, Instant epoch,
+                                int timestampBits, int instanceBits, int sequenceBits, long instance,
+                                LongSupplier clock) {
+        if (timestampBits <= 0 || instanceBits < 0 || sequenceBits <= 0
+                || timestampBits + instanceBits + sequenceBits > 63) {
+            throw new IllegalStateException("Snowflake layout must use positive timestamp and sequence bits and at "
+                    + "most 63 bits in total");
+        }
+        if (instance < 0 || instance >= 1L << instanceBits) {
+            throw new IllegalStateException("Snowflake instance " + instance + " does not fit in " + instanceBits
+                    + " bits");
+        }
+        this.digits = pattern.chars().distinct().sorted()
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                .toString().getBytes(StandardCharsets.ISO_8859_1);
+        if (digits.length < 2) {
+            throw new IllegalStateException("Tracking ID pattern must contain at least two characters");
+        }
+        this.width = width(timestampBits + instanceBits + sequenceBits, digits.length);
+        this.idLength = idLength;
+        this.lanePrefixes = new byte[lanePrefixes.length][];
+        for (int lane = 0; lane < lanePrefixes.length; lane++) {
+            if (lanePrefixes[lane].length() + width > idLength) {
+                throw new IllegalStateException("Snowflake ID of " + width + " characters behind prefix "
+                        + lanePrefixes[lane] + " exceeds the tracking ID length of " + idLength);
+            }
+            this.lanePrefixes[lane] = lanePrefixes[lane].getBytes(StandardCharsets.ISO_8859_1);
+        }
+        this.epochMillis = epoch.toEpochMilli();
+        this.sequenceBits = sequenceBits;
+        this.sequenceMask = (1L << sequenceBits) - 1;
+        this.timestampShift = instanceBits + sequenceBits;
+        this.maxTimestamp = (1L << timestampBits) - 1;
+        this.instanceBitsValue = instance << sequenceBits;
+        this.clock = clock != null ? clock : System::currentTimeMillis;
+        this.scratch = ThreadLocal.withInitial(() -> new byte[idLength]);
+    }
+
+    public String next(int lane) {
+        return format(lane, reserve(1));
+    }
+
+    /**
+     * Claims {@code count} consecutive values; pass each of {@code first .. first + count - 1} to
+     * {@link #format}.
+     *
+     * @return The first claimed value
+     * @throws IllegalStateException once the timestamp has run out of bits
+     */
+    public long reserve(int count) {
+        while (true) {
+            long now = clock.getAsLong() - epochMillis;
+            long last = state.get();
+            long lastMillis = last >>> sequenceBits;
+            if (lastMillis - now > MAX_BORROW_MILLIS) {
+                // far ahead of the clock, after a large step back or a long overload: let it catch up
+                LockSupport.parkNanos(100_000);
+                continue;
+            }
+            long first = now > lastMillis ? now << sequenceBits : last + 1;
+            long end = first + count - 1;
+            if (end >>> sequenceBits > maxTimestamp) {
+                throw new IllegalStateException("Snowflake timestamp ran out of bits, the epoch must be moved");
+            }
+            if (state.compareAndSet(last, end)) {
+                return first;
+            }
+        }
+    }
+
+    public String format(int lane, long value) {
+        long id = (value >>> sequenceBits) << timestampShift | instanceBitsValue | (value & sequenceMask);
+        byte[] prefix = lanePrefixes[lane];
+        byte[] buffer = scratch.get();
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        int radix = digits.length;
+        for (int position = prefix.length + width - 1; position >= prefix.length; position--) {
+            buffer[position] = digits[(int) (id % radix)];
+            id /= radix;
+        }
+        return new String(buffer, 0, prefix.length + width, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return The number of characters every ID takes behind its prefix
+     */
+    public int width() {
+        return width;
+    }
+
+    private static int width(int bits, int radix) {
+        long max = bits == 63 ? Long.MAX_VALUE : (1L << bits) - 1;
+        int width = 1;
+        while (max >= radix) {
+            max /= radix;
+            width++;
+        }
+        return width;
+    }
+}
@@ -0,0 +1,97 @@
+package com.aamir.tracking.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders tracking IDs as lane prefix + instance ID + zero-padded sequence number.
+ * <p>
+ * The prefix and instance ID of every lane are encoded once up front. Formatting copies them into a
+ * per-thread scratch buffer, writes the digits right to left behind them and builds the String from
+ * that buffer, so the String is the only allocation per ID.
+ */
+public class TrackingIdFormatter {
+
+    // Ensure we don't exceed 16 chars total for the final ID
+    private static final int MAX_PREFIX_LENGTH = 6;
+
+    private final byte[][] lanePrefixes;
+    private final int padding;
+    private final int idLength;
+    private final ThreadLocal<byte[]> scratch;
+
+    /**
+     * @param lanePrefixes Country prefix of every lane, indexed like the lane sequencer
+     * @param instanceId   The ID of this application instance
+     * @param pattern      The characters a tracking ID may contain
+     * @param idLength     The maximum length of a tracking ID
+     * @param padding      The minimum number of digits of the sequence number
+     * @throws IllegalStateException if a prefix uses characters outside the pattern or cannot fit the length
+     */
+    public TrackingIdFormatter(String[] lanePrefixes, String instanceId, String pattern, int idLength, int padding) {
+        for (char digit = '0'; digit <= '9'; digit++) {
+            if (pattern.indexOf(digit) < 0) {
+                throw new IllegalStateException("Tracking ID pattern must contain the digits 0-9");
+            }
+        }
+        this.padding = padding;
+        this.idLength = idLength;
+        this.lanePrefixes = new byte[lanePrefixes.length][];
+        for (int lane = 0; lane < lanePrefixes.length; lane++) {
+            String prefix = lanePrefixes[lane];
+            if (prefix.length() > MAX_PREFIX_LENGTH) {
+                prefix = prefix.substring(0, MAX_PREFIX_LENGTH);
+            }
+            String fixed = prefix + instanceId;
+            for (int i = 0; i < fixed.length(); i++) {
+                if (pattern.indexOf(fixed.charAt(i)) < 0) {
+                    throw new IllegalStateException("Tracking ID prefix " + fixed + " contains characters outside "
+                            + "the tracking ID pattern");
+                }
+            }
+            if (fixed.length() + padding > idLength) {
+                throw new IllegalStateException("Tracking ID prefix " + fixed + " with " + padding
+                        + " digits exceeds the tracking ID length of " + idLength);
+            }
+            this.lanePrefixes[lane] = fixed.getBytes(StandardCharsets.ISO_8859_1);
+        }
+        this.scratch = ThreadLocal.withInitial(() -> new byte[idLength]);
+    }
+
+    /**
+     * @return The prefix and instance ID every tracking ID of the lane starts with
+     */
+    public String prefix(int lane) {
+        return new String(lanePrefixes[lane], StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @throws IllegalStateException if the sequence number has so many digits the ID would exceed the length
+     */
+    public String format(int lane, long sequence) {
+        byte[] prefix = lanePrefixes[lane];
+        int length = prefix.length + Math.max(digits(sequence), padding);
+        if (length > idLength) {
+            throw new IllegalStateException("Tracking ID for sequence " + sequence + " exceeds the tracking ID "
+                    + "length of " + idLength);
+        }
+
+        byte[] buffer = scratch.get();
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        // digits right to left, the remaining positions become the zero padding
+        long remaining = sequence;
+        for (int position = length - 1; position >= prefix.length; position--) {
+            buffer[position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
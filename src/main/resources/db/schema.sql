@@ -0,0 +1,44 @@
+-- Schema of the tracking number entities, run by the fast-startup profile in place of Hibernate's DDL generation.
+-- Keep it in step with the entities in com.aamir.tracking.model; FastStartupProfileTest validates it against them.
+
+create table if not exists public.instance_lease (
+    slot integer not null,
+    expires_at timestamp(6) not null,
+    renewed_at timestamp(6),
+    version bigint,
+    owner varchar(255) not null,
+    primary key (slot)
+);
+
+create table if not exists public.sequence_block (
+    next_value bigint not null,
+    updated_at timestamp(6),
+    version bigint,
+    sequence_name varchar(255) not null,
+    primary key (sequence_name)
+);
+
+create table if not exists public.tracking_number (
+    weight integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    customer_id uuid,
+    customer_name varchar(255),
+    customer_slug varchar(255),
+    tracking_id varchar(255) not null,
+    destination_country_id enum ('BR','CN','ID','IN','MY','SG','TH','US','VN'),
+    origin_country_id enum ('BR','CN','ID','IN','MY','SG','TH','US','VN'),
+    primary key (tracking_id)
+);
+
+create index if not exists public.idx_tracking_number_lane_created_at
+    on public.tracking_number (origin_country_id, destination_country_id, created_at);
+
+create index if not exists public.idx_tracking_number_created_at
+    on public.tracking_number (created_at, tracking_id);
+
+create index if not exists public.idx_tracking_number_customer_id
+    on public.tracking_number (customer_id);
+
+create index if not exists public.idx_tracking_number_customer_slug
+    on public.tracking_number (customer_slug);
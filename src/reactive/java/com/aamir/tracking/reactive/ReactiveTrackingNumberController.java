@@ -0,0 +1,115 @@
+package com.aamir.tracking.reactive;
+
+import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
+import com.aamir.tracking.controller.dto.response.TrackingNumberResponse;
+import com.aamir.tracking.controller.TrackingNumberController;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.service.CustomerThrottledException;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import com.aamir.tracking.service.TrackingNumberService;
+import com.aamir.tracking.service.impl.CustomerRateLimiter;
+import com.aamir.tracking.util.Country;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux counterpart of {@link com.aamir.tracking.controller.TrackingNumberController} for {@code /getAll},
+ * {@code /next-tracking-number}, {@code /create} and {@code /filter}, active when the application runs as a reactive
+ * web application. Lists are written as the rows arrive from R2DBC, as a JSON array or, when asked for
+ * {@code application/x-ndjson}, one object per line; none of them are collected in memory first.
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTrackingNumberController {
+
+    private final TrackingNumberService trackingNumberService;
+    private final ReactiveTrackingNumberRepository reactiveTrackingNumberRepository;
+    private final CustomerRateLimiter customerRateLimiter;
+
+    @GetMapping(path = "/getAll", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<TrackingNumberResponse> get() {
+        log.info("Getting all tracking numbers");
+        return reactiveTrackingNumberRepository.findAll().map(TrackingNumberResponse::from);
+    }
+
+    // IDs come from blocks reserved in the background, but a call whose lane runs dry waits on the block store, so
+    // issuing runs on the bounded elastic scheduler and never on the event loop
+    @GetMapping(path = "/next-tracking-number", produces = "application/json")
+    public Mono<String> getNextId(
+            @RequestHeader(value = TrackingNumberController.CUSTOMER_ID_HEADER, required = false) String customerId) {
+        log.debug("Getting next tracking number");
+        return Mono.fromSupplier(() -> {
+            customerRateLimiter.acquire(customerId);
+            return trackingNumberService.getNextTrackingNumber();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping(path = "/create", consumes = "application/json")
+    public Mono<TrackingNumberResponse> createNextId(@RequestBody TrackingNumberRequest trackingNumber) {
+        log.debug("Creating next tracking number");
+        return Mono.fromSupplier(() -> {
+                    customerRateLimiter.acquire(trackingNumber.getCustomerId());
+                    return trackingNumberService.newTrackingNumber(trackingNumber);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(reactiveTrackingNumberRepository::insert)
+                .doOnNext(trackingNumberService::trackingNumberStored)
+                .map(TrackingNumberResponse::from);
+    }
+
+    @GetMapping(path = "/filter", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<TrackingNumberResponse> filter(
+            @RequestParam(value = "origin_country_id", required = false) Country originCountry,
+            @RequestParam(value = "destination_country_id", required = false) Country destinationCountry,
+            @RequestParam(value = "weight", required = false) String weight,
+            @RequestParam(value = "created_at", required = false) String createdAt,
+            @RequestParam(value = "customer_id", required = false) String customerId,
+            @RequestParam(value = "customer_name", required = false) String customerName,
+            @RequestParam(value = "customer_slug", required = false) String customerSlug
+    ) {
+        log.info("Filtering tracking numbers");
+        // Return empty list for invalid criteria
+        return TrackingNumberFilter.parse(originCountry, destinationCountry, weight, createdAt, customerId,
+                        customerName, customerSlug)
+                .map(reactiveTrackingNumberRepository::findByFilters)
+                .orElse(Flux.empty())
+                .map(TrackingNumberResponse::from);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidRequest(IllegalArgumentException e) {
+        log.warn("Rejecting invalid request: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(SequenceExhaustedException.class)
+    public ResponseEntity<String> handleExhaustedSequence(SequenceExhaustedException e) {
+        log.error("Cannot issue tracking numbers: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(CustomerThrottledException.class)
+    public ResponseEntity<String> handleThrottledCustomer(CustomerThrottledException e) {
+        log.debug("Throttling request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
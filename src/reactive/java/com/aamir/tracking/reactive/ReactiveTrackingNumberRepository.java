@@ -0,0 +1,141 @@
+package com.aamir.tracking.reactive;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.util.Country;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads and writes the {@code tracking_number} table through R2DBC, next to the JPA store of the servlet stack.
+ * Results are fetched {@code tracking.reactive.fetch.size} rows at a time and only as fast as the subscriber
+ * requests them, so a slow client holds the database cursor back instead of having its rows buffered.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTrackingNumberRepository {
+
+    private static final String COLUMNS = "tracking_id, origin_country_id, destination_country_id, weight, "
+            + "created_at, updated_at, customer_id, customer_name, customer_slug";
+
+    private final DatabaseClient databaseClient;
+
+    @Value("${tracking.reactive.fetch.size}")
+    private int fetchSize;
+    @Value("${tracking.store.type}")
+    private String storeType;
+
+    @PostConstruct
+    public void init() {
+        if (fetchSize <= 0) {
+            throw new IllegalStateException("Reactive fetch size must be greater than 0");
+        }
+        // the segment log lives outside the database R2DBC reads
+        if (!"jpa".equals(storeType)) {
+            throw new IllegalStateException("Reactive endpoints require tracking.store.type=jpa");
+        }
+    }
+
+    public Flux<TrackingNumber> findAll() {
+        return findByFilters(TrackingNumberFilter.builder().build());
+    }
+
+    /**
+     * Same predicates as {@link com.aamir.tracking.repository.TrackingNumberSpecifications}, only the supplied
+     * ones end up in the statement.
+     */
+    public Flux<TrackingNumber> findByFilters(TrackingNumberFilter filter) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (filter.getOriginCountry() != null) {
+            predicates.add("origin_country_id = " + literal(filter.getOriginCountry()));
+        }
+        if (filter.getDestinationCountry() != null) {
+            predicates.add("destination_country_id = " + literal(filter.getDestinationCountry()));
+        }
+        if (filter.getWeight() != null) {
+            predicates.add("weight = :weight");
+            parameters.put("weight", filter.getWeight());
+        }
+        if (filter.getCreatedOn() != null) {
+            // half-open [day, day + 1) range instead of formatting the column
+            predicates.add("created_at >= :createdFrom and created_at < :createdTo");
+            parameters.put("createdFrom", filter.getCreatedOn().atStartOfDay());
+            parameters.put("createdTo", filter.getCreatedOn().plusDays(1).atStartOfDay());
+        }
+        if (filter.getCustomerId() != null) {
+            predicates.add("customer_id = :customerId");
+            parameters.put("customerId", filter.getCustomerId());
+        }
+        if (filter.getCustomerName() != null) {
+            predicates.add("lower(customer_name) like :customerName escape '" + TrackingNumberFilter.LIKE_ESCAPE + "'");
+            parameters.put("customerName", filter.customerNamePattern());
+        }
+        if (filter.getCustomerSlug() != null) {
+            predicates.add("customer_slug = :customerSlug");
+            parameters.put("customerSlug", filter.getCustomerSlug());
+        }
+
+        String sql = "select " + COLUMNS + " from tracking_number"
+                + (predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates));
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)));
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map(ReactiveTrackingNumberRepository::toTrackingNumber).all();
+    }
+
+    public Mono<TrackingNumber> insert(TrackingNumber trackingNumber) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into tracking_number (" + COLUMNS
+                        + ") values (:trackingId, " + literal(trackingNumber.getOriginCountryId()) + ", "
+                        + literal(trackingNumber.getDestinationCountryId()) + ", :weight, :createdAt, :updatedAt,"
+                        + " :customerId, :customerName, :customerSlug)")
+                .bind("trackingId", trackingNumber.getTrackingId())
+                .bind("weight", trackingNumber.getWeight())
+                .bind("createdAt", trackingNumber.getCreatedAt().toLocalDateTime())
+                .bind("customerId", trackingNumber.getCustomerId())
+                .bind("customerName", trackingNumber.getCustomerName())
+                .bind("customerSlug", trackingNumber.getCustomerSlug());
+        spec = trackingNumber.getUpdatedAt() == null ? spec.bindNull("updatedAt", LocalDateTime.class)
+                : spec.bind("updatedAt", trackingNumber.getUpdatedAt().toLocalDateTime());
+        return spec.fetch().rowsUpdated().thenReturn(trackingNumber);
+    }
+
+    // H2 rejects strings bound through R2DBC for its enum columns; enum names are safe to write as literals
+    private static String literal(Country country) {
+        return "'" + country.name() + "'";
+    }
+
+    private static TrackingNumber toTrackingNumber(Readable row) {
+        LocalDateTime createdAt = row.get("created_at", LocalDateTime.class);
+        LocalDateTime updatedAt = row.get("updated_at", LocalDateTime.class);
+        return TrackingNumber.builder()
+                .withTrackingId(row.get("tracking_id", String.class))
+                .withOriginCountryId(Country.valueOf(row.get("origin_country_id", String.class)))
+                .withDestinationCountryId(Country.valueOf(row.get("destination_country_id", String.class)))
+                .withWeight(row.get("weight", Integer.class))
+                .withCreatedAt(createdAt == null ? null : Timestamp.valueOf(createdAt))
+                .withUpdatedAt(updatedAt == null ? null : Timestamp.valueOf(updatedAt))
+                .withCustomerId(row.get("customer_id", UUID.class))
+                .withCustomerName(row.get("customer_name", String.class))
+                .withCustomerSlug(row.get("customer_slug", String.class))
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.aamir.tracking.config;
+
+import com.aamir.tracking.TrackingGenApplication;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastStartupProfileTest {
+
+    @Test
+    void schemaScript_ShouldMatchTheEntitiesAndSeedInTheBackground() throws InterruptedException {
+        // Given
+        SpringApplicationBuilder application = new SpringApplicationBuilder(TrackingGenApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("fast-startup");
+
+        // When
+        // validate fails the start if the script and the entities disagree; it needs the metadata the profile skips
+        try (ConfigurableApplicationContext context = application.run(
+                "--spring.datasource.url=jdbc:h2:mem:fast-startup-" + UUID.randomUUID(),
+                "--spring.jpa.hibernate.ddl-auto=validate",
+                "--spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=true")) {
+            TrackingNumberStore store = context.getBean(TrackingNumberStore.class);
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (store.count() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+
+            // Then
+            assertEquals(4, store.count(), "Sample rows should be inserted after startup");
+        }
+    }
+}
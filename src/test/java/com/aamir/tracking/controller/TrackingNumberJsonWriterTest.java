@@ -0,0 +1,123 @@
+package com.aamir.tracking.controller;
+
+import com.aamir.tracking.controller.dto.response.TrackingNumberResponse;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.service.impl.TrackingNumberCache;
+import com.aamir.tracking.util.Country;
+import com.aamir.tracking.util.ResponseFormats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TrackingNumberJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TrackingNumberJsonWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(TrackingNumberCache.RESPONSE_JSON, Caffeine.newBuilder().build());
+        writer = new TrackingNumberJsonWriter(cacheManager);
+    }
+
+    @Test
+    void toJson_ShouldMatchJacksonOutputOfTheResponse() throws Exception {
+        // Given
+        Timestamp createdAt = Timestamp.valueOf("2025-03-04 05:06:07.08");
+        List<TrackingNumber> trackingNumbers = List.of(
+                trackingNumber("MYSGXYZ3000130", 2500, createdAt, "Acme Logistics", "acme-logistics"),
+                trackingNumber("USCAXYZ3000131", 1, Timestamp.valueOf("2025-12-31 23:59:59"),
+                        "Quote \" back\\slash é€ \u0001\n\t \uD83D\uDCE6", null));
+
+        for (TrackingNumber trackingNumber : trackingNumbers) {
+            // When
+            byte[] json = writer.toJson(trackingNumber);
+
+            // Then
+            assertEquals(new String(objectMapper.writeValueAsBytes(legacyResponse(trackingNumber)),
+                            StandardCharsets.UTF_8), new String(json, StandardCharsets.UTF_8),
+                    "Rendered JSON should equal the data-bound response");
+        }
+    }
+
+    @Test
+    void toJson_ShouldRenderEachTrackingNumberOnce() {
+        // Given
+        TrackingNumber trackingNumber = trackingNumber("MYSGXYZ3000130", 2500,
+                Timestamp.valueOf("2025-03-04 05:06:07"), "Acme Logistics", "acme-logistics");
+
+        // When
+        byte[] first = writer.toJson(trackingNumber);
+        byte[] second = writer.toJson(trackingNumber);
+
+        // Then
+        assertSame(first, second, "Second render should be served from the cache");
+    }
+
+    @Test
+    void writeArray_ShouldJoinRowsIntoJsonArray() throws Exception {
+        // Given
+        Timestamp createdAt = Timestamp.valueOf("2025-03-04 05:06:07");
+        List<TrackingNumber> trackingNumbers = List.of(
+                trackingNumber("MYSGXYZ3000130", 2500, createdAt, "Acme Logistics", "acme-logistics"),
+                trackingNumber("MYSGXYZ3000131", 750, createdAt, "Acme Logistics", "acme-logistics"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        writer.writeArray(trackingNumbers, out);
+
+        // Then
+        assertArrayEquals(objectMapper.writeValueAsBytes(trackingNumbers.stream().map(this::legacyResponse).toList()),
+                out.toByteArray(), "Array should equal the data-bound list response");
+    }
+
+    @Test
+    void kilograms_ShouldMatchFloatFormattingForEveryGramUpTo100Kg() {
+        for (int grams = 0; grams <= 100_000; grams++) {
+            assertEquals(String.format(Locale.UK, "%.3f", grams / 1000f), ResponseFormats.kilograms(grams),
+                    "Weight of " + grams + " grams");
+        }
+    }
+
+    // the mapping as it was before the formats were replaced, kept as the reference
+    private TrackingNumberResponse legacyResponse(TrackingNumber trackingNumber) {
+        return TrackingNumberResponse.builder()
+                .trackingId(trackingNumber.getTrackingId())
+                .originCountry(trackingNumber.getOriginCountryId().getCode())
+                .destinationCountry(trackingNumber.getDestinationCountryId().getCode())
+                .weight(String.format(Locale.UK, "%.3f", trackingNumber.getWeight() / 1000f))
+                .customerId(trackingNumber.getCustomerId())
+                .createdAt(trackingNumber.getCreatedAt().toString())
+                .customerName(trackingNumber.getCustomerName())
+                .customerSlug(trackingNumber.getCustomerSlug())
+                .build();
+    }
+
+    private static TrackingNumber trackingNumber(String trackingId, int weight, Timestamp createdAt,
+                                                 String customerName, String customerSlug) {
+        return TrackingNumber.builder()
+                .withTrackingId(trackingId)
+                .withOriginCountryId(Country.MY)
+                .withDestinationCountryId(Country.SG)
+                .withWeight(weight)
+                .withCreatedAt(createdAt)
+                .withCustomerId(UUID.fromString("de305d54-75b4-431b-adb2-eb6b9e546014"))
+                .withCustomerName(customerName)
+                .withCustomerSlug(customerSlug)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.TrackingGenApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+class JpaTrackingNumberStoreTest extends TrackingNumberStoreContractTest {
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void startApplication() {
+        context = new SpringApplicationBuilder(TrackingGenApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:store-" + UUID.randomUUID(),
+                        "--spring.jpa.show-sql=false",
+                        "--tracking.store.type=jpa");
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        context.close();
+    }
+
+    @Override
+    protected TrackingNumberStore emptyStore() {
+        // drops the sample rows of the initializer and whatever the previous test stored
+        context.getBean(TrackingNumberRepository.class).deleteAllInBatch();
+        return context.getBean(TrackingNumberStore.class);
+    }
+
+    @Override
+    protected <T> T inTransaction(Supplier<T> work) {
+        return context.getBean(TransactionTemplate.class).execute(status -> work.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentLogTrackingNumberStoreTest extends TrackingNumberStoreContractTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<SegmentLogTrackingNumberStore> opened = new ArrayList<>();
+
+    private SegmentLogTrackingNumberStore open(Path location, DataSize segmentSize) {
+        SegmentLogTrackingNumberStore store = new SegmentLogTrackingNumberStore();
+        ReflectionTestUtils.setField(store, "directory", location.toString());
+        ReflectionTestUtils.setField(store, "segmentSize", segmentSize);
+        ReflectionTestUtils.setField(store, "forceInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(store, "compactionInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(store, "compactionGarbageRatio", 0.5);
+        store.start();
+        opened.add(store);
+        return store;
+    }
+
+    // 16KB segments hold 46 records, so the contract runs across several segments
+    @Override
+    protected TrackingNumberStore emptyStore() {
+        return open(directory, DataSize.ofKilobytes(16));
+    }
+
+    @Override
+    protected TrackingNumberStore reopen() {
+        close((SegmentLogTrackingNumberStore) store);
+        return open(directory, DataSize.ofKilobytes(16));
+    }
+
+    private void close(SegmentLogTrackingNumberStore store) {
+        store.stop();
+        opened.remove(store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(SegmentLogTrackingNumberStore::stop);
+    }
+
+    @Test
+    void start_ShouldDropATornRecordAtTheEndOfTheNewestSegment() throws IOException {
+        // Given
+        store.persistAll(List.of(trackingNumber(1), trackingNumber(2), trackingNumber(3)));
+        close((SegmentLogTrackingNumberStore) store);
+        // flips a byte of the third record, as a write cut short by a power loss would leave it
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("segment-0000000001.log").toFile(),
+                "rw")) {
+            file.seek(16 + 2 * 352 + 100);
+            file.write(0x5A);
+        }
+
+        // When
+        SegmentLogTrackingNumberStore restarted = open(directory, DataSize.ofKilobytes(16));
+        restarted.save(trackingNumber(4));
+
+        // Then
+        assertEquals(3, restarted.count(), "Torn record should be dropped and the store stay writable");
+        assertTrue(restarted.findById(trackingId(3)).isEmpty(), "Torn record should not be found");
+        assertTrue(restarted.findById(trackingId(4)).isPresent(), "Record after the tear should be found");
+    }
+
+    @Test
+    void compact_ShouldRemoveReplacedRecordsAndKeepTheLatest() {
+        // Given
+        // 1KB segments hold two records
+        SegmentLogTrackingNumberStore small = open(directory.resolve("small"), DataSize.ofKilobytes(1));
+        for (int i = 0; i < 6; i++) {
+            small.save(trackingNumber(i));
+        }
+        TrackingNumber replaced = trackingNumber(0);
+        replaced.setWeight(9999);
+        small.save(replaced);
+        small.save(trackingNumber(1));
+
+        // When
+        int removed = small.compact();
+
+        // Then
+        assertEquals(1, removed, "Segment holding only replaced records should be removed");
+        close(small);
+        SegmentLogTrackingNumberStore restarted = open(directory.resolve("small"), DataSize.ofKilobytes(1));
+        assertEquals(6, restarted.count(), "Every tracking ID should survive compaction");
+        assertEquals(replaced, restarted.findById(trackingId(0)).orElseThrow(), "Latest version should be kept");
+    }
+}
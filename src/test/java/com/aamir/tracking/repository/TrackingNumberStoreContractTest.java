@@ -0,0 +1,265 @@
+package com.aamir.tracking.repository;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.util.Country;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link TrackingNumberStore} shares, checked against the same rows filtered in memory.
+ */
+abstract class TrackingNumberStoreContractTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 3, 1);
+    private static final Comparator<TrackingNumber> CREATED_AT_ORDER = Comparator
+            .comparing(TrackingNumber::getCreatedAt)
+            .thenComparing(TrackingNumber::getTrackingId);
+
+    private final Random random = new Random(11);
+    protected TrackingNumberStore store;
+
+    /**
+     * @return An empty store
+     */
+    protected abstract TrackingNumberStore emptyStore();
+
+    /**
+     * @return The current store as it is read back after a restart
+     */
+    protected TrackingNumberStore reopen() {
+        return store;
+    }
+
+    protected <T> T inTransaction(Supplier<T> work) {
+        return work.get();
+    }
+
+    @BeforeEach
+    void setUpStore() {
+        store = emptyStore();
+    }
+
+    @Test
+    void findByFilters_ShouldMatchEveryFilterCombination() {
+        // Given
+        List<TrackingNumber> stored = trackingNumbers(500);
+        store.persistAll(stored);
+        store = reopen();
+        TrackingNumber sample = stored.get(321);
+
+        for (int mask = 0; mask < 64; mask++) {
+            TrackingNumberFilter filter = TrackingNumberFilter.builder()
+                    .withOriginCountry((mask & 1) == 0 ? null : sample.getOriginCountryId())
+                    .withWeight((mask & 2) == 0 ? null : sample.getWeight())
+                    .withCreatedOn((mask & 4) == 0 ? null : sample.getCreatedAt().toLocalDateTime().toLocalDate())
+                    .withCustomerId((mask & 8) == 0 ? null : sample.getCustomerId())
+                    .withCustomerSlug((mask & 16) == 0 ? null : sample.getCustomerSlug())
+                    .withCustomerName((mask & 32) == 0 ? null : "OMER 1")
+                    .build();
+
+            // When
+            List<TrackingNumber> found = new ArrayList<>(store.findByFilters(filter));
+            found.sort(CREATED_AT_ORDER);
+
+            // Then
+            assertEquals(bruteForce(stored, filter), found, "Matches for " + filter);
+        }
+        assertEquals(stored.size(), store.count(), "Store should count every tracking number");
+        assertEquals(sample, store.findById(sample.getTrackingId()).orElseThrow(), "Lookup should restore every column");
+    }
+
+    @Test
+    void findByFilters_ShouldMatchLikeWildcardsInNamesLiterally() {
+        // Given
+        List<TrackingNumber> stored = trackingNumbers(6);
+        List<String> names = List.of("A_C Freight", "ABC Freight", "100% Parcel", "1000 Parcel", "Back\\Slash",
+                "Back Slash");
+        for (int i = 0; i < names.size(); i++) {
+            stored.get(i).setCustomerName(names.get(i));
+        }
+        store.persistAll(stored);
+
+        for (String term : List.of("a_c", "0%", "k\\s", "_", "%")) {
+            TrackingNumberFilter filter = TrackingNumberFilter.builder().withCustomerName(term).build();
+
+            // When
+            List<TrackingNumber> found = new ArrayList<>(store.findByFilters(filter));
+            found.sort(CREATED_AT_ORDER);
+
+            // Then
+            assertEquals(bruteForce(stored, filter), found, "Matches for name " + term);
+        }
+    }
+
+    @Test
+    void findPage_ShouldWalkEveryMatchInCreatedAtOrder() {
+        // Given
+        List<TrackingNumber> stored = trackingNumbers(300);
+        store.persistAll(stored);
+        TrackingNumberFilter filter = TrackingNumberFilter.builder()
+                .withOriginCountry(stored.get(0).getOriginCountryId())
+                .build();
+
+        // When
+        List<TrackingNumber> walked = new ArrayList<>();
+        TrackingNumberCursor after = null;
+        List<TrackingNumber> page;
+        do {
+            page = store.findPage(filter, after, 7);
+            walked.addAll(page);
+            if (!page.isEmpty()) {
+                TrackingNumber last = page.get(page.size() - 1);
+                after = new TrackingNumberCursor(last.getCreatedAt(), last.getTrackingId());
+            }
+        } while (page.size() == 7);
+
+        // Then
+        assertEquals(bruteForce(stored, filter), walked, "Pages should list every match once, in order");
+    }
+
+    @Test
+    void streamByFilters_ShouldListMatchesInCreatedAtOrder() {
+        // Given
+        List<TrackingNumber> stored = trackingNumbers(300);
+        store.persistAll(stored);
+        TrackingNumberFilter filter = TrackingNumberFilter.builder()
+                .withWeight(stored.get(0).getWeight())
+                .build();
+
+        // When
+        List<TrackingNumber> streamed = inTransaction(() -> {
+            try (Stream<TrackingNumber> rows = store.streamByFilters(filter, 50)) {
+                return rows.toList();
+            }
+        });
+
+        // Then
+        assertEquals(bruteForce(stored, filter), streamed, "Stream should list every match in order");
+    }
+
+    @Test
+    void aggregate_ShouldOrderGroupsByKeyOrCount() {
+        // Given
+        List<TrackingNumber> stored = trackingNumbers(200);
+        store.persistAll(stored);
+        TrackingNumberFilter all = TrackingNumberFilter.builder().build();
+
+        // When
+        List<TrackingNumberStats> lanes = store.aggregate(all, TrackingNumberGrouping.LANE, 1000);
+        List<TrackingNumberStats> days = store.aggregate(all, TrackingNumberGrouping.DAY, 1000);
+        List<TrackingNumberStats> customers = store.aggregate(all, TrackingNumberGrouping.CUSTOMER, 3);
+
+        // Then
+        assertEquals(stored.size(), lanes.stream().mapToLong(TrackingNumberStats::getCount).sum(),
+                "Lanes should count every tracking number");
+        assertEquals(stored.stream().mapToLong(TrackingNumber::getWeight).sum(),
+                lanes.stream().mapToLong(TrackingNumberStats::getTotalWeight).sum(), "Lanes should add up weights");
+        for (int i = 1; i < lanes.size(); i++) {
+            String previous = lanes.get(i - 1).getOriginCountry().name() + lanes.get(i - 1).getDestinationCountry();
+            String current = lanes.get(i).getOriginCountry().name() + lanes.get(i).getDestinationCountry();
+            assertTrue(previous.compareTo(current) < 0, "Lanes should be ordered by country names");
+        }
+        assertEquals(List.of(FIRST_DAY, FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(2), FIRST_DAY.plusDays(3)),
+                days.stream().map(TrackingNumberStats::getDay).toList(), "Days should be listed in order");
+        assertEquals(3, customers.size(), "Customer groups should be limited");
+        assertTrue(customers.get(0).getCount() >= customers.get(1).getCount()
+                && customers.get(1).getCount() >= customers.get(2).getCount(), "Busiest customers should come first");
+        assertNotNull(customers.get(0).getCustomerName(), "Customer groups should carry the name");
+    }
+
+    @Test
+    void persistAll_ShouldStoreNothingWhenATrackingIdIsTaken() {
+        // Given
+        store.save(trackingNumber(1));
+
+        // When, Then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store.persistAll(List.of(trackingNumber(2), trackingNumber(1))),
+                "Stored tracking ID should be rejected");
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store.persistAll(List.of(trackingNumber(3), trackingNumber(3))),
+                "Repeated tracking ID should be rejected");
+        assertEquals(1, store.count(), "Rejected batches should store nothing");
+    }
+
+    @Test
+    void save_ShouldReplaceTheStoredTrackingNumber() {
+        // Given
+        store.persistAll(List.of(trackingNumber(1), trackingNumber(2)));
+        TrackingNumber updated = trackingNumber(1);
+        updated.setUpdatedAt(Timestamp.valueOf(FIRST_DAY.plusDays(9).atTime(8, 30)));
+
+        // When
+        store.save(updated);
+        store = reopen();
+
+        // Then
+        assertEquals(2, store.count(), "Saving again should not add a tracking number");
+        assertEquals(updated, store.findById(trackingId(1)).orElseThrow(), "Latest version should be found");
+        assertEquals(List.of(trackingId(1)), store.findAllById(List.of(trackingId(1), trackingId(9))).stream()
+                .map(TrackingNumber::getTrackingId).toList(), "Unknown IDs should be skipped");
+    }
+
+    protected static String trackingId(int index) {
+        return String.format("ST%08d", index);
+    }
+
+    protected List<TrackingNumber> trackingNumbers(int count) {
+        List<TrackingNumber> trackingNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            trackingNumbers.add(trackingNumber(i));
+        }
+        return trackingNumbers;
+    }
+
+    protected TrackingNumber trackingNumber(int index) {
+        Country[] countries = Country.values();
+        int customer = random.nextInt(20);
+        // microseconds, the precision of the database column
+        Timestamp createdAt = Timestamp.valueOf(FIRST_DAY.plusDays(random.nextInt(4)).atStartOfDay()
+                .plusNanos(random.nextLong(86_400_000_000L) * 1000));
+        return TrackingNumber.builder()
+                .withTrackingId(trackingId(index))
+                .withOriginCountryId(countries[random.nextInt(3)])
+                .withDestinationCountryId(countries[random.nextInt(countries.length)])
+                .withWeight(500 * (1 + random.nextInt(4)))
+                .withCreatedAt(createdAt)
+                .withCustomerId(new UUID(customer, customer))
+                .withCustomerName("Customer " + customer)
+                .withCustomerSlug("customer-" + customer)
+                .build();
+    }
+
+    private static List<TrackingNumber> bruteForce(List<TrackingNumber> stored, TrackingNumberFilter filter) {
+        return stored.stream()
+                .filter(row -> filter.getOriginCountry() == null
+                        || row.getOriginCountryId() == filter.getOriginCountry())
+                .filter(row -> filter.getWeight() == null || filter.getWeight().equals(row.getWeight()))
+                .filter(row -> filter.getCreatedOn() == null
+                        || row.getCreatedAt().toLocalDateTime().toLocalDate().equals(filter.getCreatedOn()))
+                .filter(row -> filter.getCustomerId() == null || row.getCustomerId().equals(filter.getCustomerId()))
+                .filter(row -> filter.getCustomerSlug() == null
+                        || row.getCustomerSlug().equals(filter.getCustomerSlug()))
+                .filter(row -> filter.getCustomerName() == null
+                        || row.getCustomerName().toLowerCase().contains(filter.getCustomerName().toLowerCase()))
+                .sorted(CREATED_AT_ORDER)
+                .toList();
+    }
+}
@@ -0,0 +1,77 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.service.TrackingNumberService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionControlledTrackingNumberServiceTest {
+
+    @Mock
+    private TrackingNumberService delegate;
+
+    @Test
+    void getNextTrackingNumber_ShouldRejectCallsOverTheLimitAndAdmitOncePermitIsReleased() throws Exception {
+        // Given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getNextTrackingNumber()).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return "MY011000";
+        }).thenReturn("MY011001");
+        AdmissionControlledTrackingNumberService service =
+                new AdmissionControlledTrackingNumberService(delegate, 1, 1, 50);
+
+        // When
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(service::getNextTrackingNumber);
+        assertTrue(entered.await(5, TimeUnit.SECONDS), "First call should be admitted");
+
+        // Then
+        assertThrows(RejectedExecutionException.class, service::getNextTrackingNumber,
+                "Call over the limit should be rejected after the timeout");
+        release.countDown();
+        assertEquals("MY011000", first.get(5, TimeUnit.SECONDS), "Admitted call should complete");
+        assertEquals("MY011001", service.getNextTrackingNumber(), "Released permit should admit the next call");
+    }
+
+    @Test
+    void exportTrackingNumbers_ShouldNotTakePermitsOfOtherCalls() throws Exception {
+        // Given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return null;
+        }).when(delegate).exportTrackingNumbers(any(), any(), any(), any(), any(), any(), any(), any());
+        when(delegate.getNextTrackingNumber()).thenReturn("MY011000");
+        AdmissionControlledTrackingNumberService service =
+                new AdmissionControlledTrackingNumberService(delegate, 1, 1, 50);
+
+        // When
+        CompletableFuture<Void> export = CompletableFuture.runAsync(() -> service.exportTrackingNumbers(
+                null, null, null, null, null, null, null, trackingNumber -> { }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS), "Export should be admitted");
+
+        // Then
+        assertEquals("MY011000", service.getNextTrackingNumber(), "Running export should leave the permit free");
+        assertThrows(RejectedExecutionException.class, () -> service.exportTrackingNumbers(
+                        null, null, null, null, null, null, null, trackingNumber -> { }),
+                "Export over its own limit should be rejected");
+        release.countDown();
+        export.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,107 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.SequenceRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointSequenceBlockAllocatorTest {
+
+    @TempDir
+    Path directory;
+
+    private CheckpointSequenceBlockAllocator allocator() {
+        CheckpointSequenceBlockAllocator allocator = new CheckpointSequenceBlockAllocator();
+        ReflectionTestUtils.setField(allocator, "file", directory.resolve("sequence.checkpoint").toString());
+        ReflectionTestUtils.setField(allocator, "slots", 4);
+        ReflectionTestUtils.setField(allocator, "safetyGap", 1000L);
+        ReflectionTestUtils.setField(allocator, "forceInterval", Duration.ofSeconds(1));
+        allocator.start();
+        return allocator;
+    }
+
+    // leaves the file as a killed process would: the marks are mapped but the clean flag is never set
+    private static void crash(CheckpointSequenceBlockAllocator allocator) {
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(allocator, "forceExecutor")).shutdownNow();
+    }
+
+    @Test
+    void allocate_ShouldResumeExactlyAfterCleanShutdown() {
+        // Given
+        CheckpointSequenceBlockAllocator first = allocator();
+        first.allocate("MYSG", 100, 1_000_000, 50);
+        first.allocate("tracking_id", 100, 1_000_000, 50);
+        first.allocate("MYSG", 100, 1_000_000, 50);
+        first.stop();
+
+        // When
+        CheckpointSequenceBlockAllocator restarted = allocator();
+        SequenceRange lane = restarted.allocate("MYSG", 100, 1_000_000, 50);
+        SequenceRange other = restarted.allocate("tracking_id", 100, 1_000_000, 50);
+        restarted.stop();
+
+        // Then
+        assertEquals(200, lane.getStart(), "Lane should continue after its last block");
+        assertEquals(150, other.getStart(), "Every sequence should keep its own mark");
+    }
+
+    @Test
+    void allocate_ShouldSkipSafetyGapAfterCrash() {
+        // Given
+        CheckpointSequenceBlockAllocator first = allocator();
+        first.allocate("MYSG", 100, 1_000_000, 50);
+        crash(first);
+
+        // When
+        CheckpointSequenceBlockAllocator restarted = allocator();
+        SequenceRange range = restarted.allocate("MYSG", 100, 1_000_000, 50);
+        restarted.stop();
+
+        // Then
+        assertEquals(1150, range.getStart(), "Unclean restart should resume the safety gap after the checkpoint");
+    }
+
+    @Test
+    void start_ShouldFallBackToOtherCopyWhenOneIsTorn() throws IOException {
+        // Given: the mark 200 was written to the second copy, then the write of 250 to the first copy was torn
+        CheckpointSequenceBlockAllocator first = allocator();
+        first.allocate("MYSG", 100, 1_000_000, 50);
+        first.allocate("MYSG", 100, 1_000_000, 50);
+        first.stop();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("sequence.checkpoint").toFile(), "rw")) {
+            // header 16 bytes, slot name 16 bytes, then the first copy
+            file.seek(16 + 16);
+            file.writeLong(250);
+        }
+
+        // When
+        CheckpointSequenceBlockAllocator restarted = allocator();
+        SequenceRange range = restarted.allocate("MYSG", 100, 1_000_000, 50);
+        restarted.stop();
+
+        // Then
+        assertEquals(200, range.getStart(), "Copy with a bad checksum should be ignored");
+    }
+
+    @Test
+    void allocate_ShouldRejectSequenceWithoutFreeSlot() {
+        // Given
+        CheckpointSequenceBlockAllocator allocator = allocator();
+        for (String lane : new String[]{"MYSG", "MYID", "SGMY", "IDMY"}) {
+            allocator.allocate(lane, 0, 100, 10);
+        }
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> allocator.allocate("tracking_id", 0, 100, 10),
+                "A full checkpoint file cannot take another sequence");
+        allocator.stop();
+    }
+}
@@ -0,0 +1,159 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.service.CustomerThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerRateLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    // 10 requests per second in bursts of 3
+    private CustomerRateLimiter limiter(String quotas) {
+        return new CustomerRateLimiter(registry, true, 10, 3, 1000, quotas, clock::get);
+    }
+
+    @Test
+    void acquire_ShouldThrottleACustomerOverItsBurstUntilTheBucketRefills() {
+        // Given
+        CustomerRateLimiter limiter = limiter("");
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("CUSTOMER0000000A");
+        }
+
+        // When
+        CustomerThrottledException e = assertThrows(CustomerThrottledException.class,
+                () -> limiter.acquire("CUSTOMER0000000A"));
+
+        // Then
+        assertEquals(Duration.ofMillis(100), e.getRetryAfter(), "Retry should be due once one request came back");
+        assertEquals(1, e.getRetryAfterSeconds(), "Retry-After should round up to a whole second");
+        assertDoesNotThrow(() -> limiter.acquire("CUSTOMER0000000B"), "Other customers should keep their burst");
+        clock.addAndGet(Duration.ofMillis(100).toNanos());
+        assertDoesNotThrow(() -> limiter.acquire("CUSTOMER0000000A"), "Refilled request should be admitted");
+        assertEquals(1, registry.get("tracking.customer.requests").tag("customer", "other")
+                .tag("outcome", "throttled").counter().count(), "Throttled request should be counted");
+        assertEquals("CUSTOMER0000000A", limiter.mostThrottled(10).get(0).customerId(),
+                "Throttled customer should be reported");
+    }
+
+    @Test
+    void acquire_ShouldApplyOwnQuotasAndShareTheAnonymousBucket() {
+        // Given
+        CustomerRateLimiter limiter = limiter("CUSTOMER0000000A=100/5, anonymous=1/1");
+
+        // When
+        int admitted = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                limiter.acquire("CUSTOMER0000000A");
+                admitted++;
+            } catch (CustomerThrottledException e) {
+                // counted by the meter below
+            }
+        }
+        limiter.acquire(null);
+
+        // Then
+        assertEquals(5, admitted, "Customer should get the burst of its own quota");
+        assertThrows(CustomerThrottledException.class, () -> limiter.acquire(""),
+                "Requests without a customer should share one bucket");
+        assertEquals(5, registry.get("tracking.customer.requests").tag("customer", "CUSTOMER0000000A")
+                .tag("outcome", "throttled").counter().count(), "Customer with a quota should have its own meter");
+    }
+
+    @Test
+    void acquire_ShouldCountEveryTrackingNumberOfABatch() {
+        // Given
+        CustomerRateLimiter limiter = limiter("");
+        limiter.acquire("CUSTOMER0000000A", 2);
+
+        // When
+        CustomerThrottledException e = assertThrows(CustomerThrottledException.class,
+                () -> limiter.acquire("CUSTOMER0000000A", 2));
+
+        // Then
+        assertEquals(Duration.ofMillis(100), e.getRetryAfter(), "Retry should be due once the batch fits again");
+        assertDoesNotThrow(() -> limiter.acquire("CUSTOMER0000000A"), "Throttled batch should take nothing");
+        assertThrows(IllegalArgumentException.class, () -> limiter.acquire("CUSTOMER0000000B", 4),
+                "Batch larger than the burst should be rejected outright");
+        assertThrows(IllegalArgumentException.class, () -> limiter.acquire("CUSTOMER0000000B", 0),
+                "Empty batch should be rejected");
+        assertDoesNotThrow(() -> limiter.acquire("CUSTOMER0000000B", 3), "Rejected batches should take nothing");
+    }
+
+    @Test
+    void acquireEach_ShouldChargeNoCustomerWhenOneIsThrottled() {
+        // Given
+        CustomerRateLimiter limiter = limiter("");
+        limiter.acquire("CUSTOMER0000000B", 3);
+
+        // When
+        assertThrows(CustomerThrottledException.class,
+                () -> limiter.acquireEach(List.of("CUSTOMER0000000A", "CUSTOMER0000000A", "CUSTOMER0000000B")));
+
+        // Then
+        assertDoesNotThrow(() -> limiter.acquire("CUSTOMER0000000A", 3),
+                "Customer before the throttled one should get its request back");
+        assertDoesNotThrow(() -> limiter.acquireEach(List.of("CUSTOMER0000000C", "CUSTOMER0000000C")),
+                "Customer named twice should count once");
+        assertDoesNotThrow(() -> limiter.acquire("CUSTOMER0000000C", 2), "Manifest should take a single request");
+    }
+
+    @Test
+    void acquire_ShouldAdmitExactlyTheBurstUnderConcurrentCalls() throws Exception {
+        // Given
+        CustomerRateLimiter limiter = new CustomerRateLimiter(registry, true, 1, 500, 1000, "", clock::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        List<CompletableFuture<Void>> callers = new ArrayList<>();
+
+        // When
+        for (int thread = 0; thread < 8; thread++) {
+            callers.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        limiter.acquire("CUSTOMER0000000A");
+                        admitted.incrementAndGet();
+                    } catch (CustomerThrottledException e) {
+                        // over the burst
+                    }
+                }
+            }, executor));
+        }
+        start.countDown();
+        CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).get();
+        executor.shutdown();
+
+        // Then
+        assertEquals(500, admitted.get(), "Concurrent callers should share the burst without losing requests");
+    }
+
+    @Test
+    void constructor_ShouldRejectMalformedQuotas() {
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> limiter("CUSTOMER0000000A=100"),
+                "Quota without a burst should be rejected");
+        assertThrows(IllegalStateException.class, () -> limiter("CUSTOMER0000000A=fast/5"),
+                "Quota with a non-numeric rate should be rejected");
+    }
+}
@@ -0,0 +1,212 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.SequenceRange;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.SequenceExhaustedException;
+import com.aamir.tracking.util.Country;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneSequencerTest {
+
+    private final InMemorySequenceBlockAllocator allocator = new InMemorySequenceBlockAllocator();
+    private static final int LANE = LaneSequencer.laneIndex(Country.MY, Country.SG);
+
+    private LaneSequencer sequencer;
+
+    @AfterEach
+    void tearDown() {
+        if (sequencer != null) {
+            sequencer.close();
+        }
+    }
+
+    @Test
+    void next_ShouldServeConsecutiveValuesAcrossBlocks() {
+        // Given
+        sequencer = new LaneSequencer("test", allocator, 100, 1000, 10, 3);
+
+        // When / Then
+        for (long expected = 100; expected < 150; expected++) {
+            assertEquals(expected, sequencer.next(LANE), "Contiguous blocks should not leave gaps");
+        }
+    }
+
+    @Test
+    void next_ShouldReserveOneBlockPerBlockSizeValues() {
+        // Given
+        AtomicInteger allocations = new AtomicInteger();
+        SequenceBlockAllocator countingAllocator = (name, start, end, size) -> {
+            allocations.incrementAndGet();
+            return allocator.allocate(name, start, end, size);
+        };
+        sequencer = new LaneSequencer("test", countingAllocator, 0, 100_000, 1000, 0);
+
+        // When: stop short of the last value, which would prefetch a sixth block in the background
+        for (int i = 0; i < 4999; i++) {
+            sequencer.next(LANE);
+        }
+
+        // Then
+        assertEquals(5, allocations.get(), "Should hit the allocator once per block");
+    }
+
+    @Test
+    void next_ShouldResumeAboveValuesReservedByPreviousSequencer() {
+        // Given - a previous run reserved a block and only used part of it
+        LaneSequencer previous = new LaneSequencer("test", allocator, 100, 1000, 10, 0);
+        previous.next(LANE);
+        previous.close();
+
+        // When
+        sequencer = new LaneSequencer("test", allocator, 100, 1000, 10, 0);
+
+        // Then
+        assertEquals(110, sequencer.next(LANE), "Values of a reserved block must never be reissued");
+    }
+
+    @Test
+    void next_ShouldSkipToNonContiguousBlock() {
+        // Given - another node takes every other block
+        SequenceBlockAllocator interleaved = (name, start, end, size) -> {
+            allocator.allocate(name, start, end, size);
+            return allocator.allocate(name, start, end, size);
+        };
+        sequencer = new LaneSequencer("test", interleaved, 0, 1000, 5, 0);
+
+        // When
+        long[] values = new long[6];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = sequencer.next(LANE);
+        }
+
+        // Then
+        assertArrayEquals(new long[]{5, 6, 7, 8, 9, 15}, values, "Should only serve values of its own blocks");
+    }
+
+    @Test
+    void reserve_ShouldReturnContiguousRange() {
+        // Given
+        sequencer = new LaneSequencer("test", allocator, 0, 1000, 10, 2);
+        sequencer.next(LANE);
+
+        // When
+        long first = sequencer.reserve(LANE, 25);
+
+        // Then
+        assertEquals(1, first, "Batch should start right after the last issued value");
+        assertEquals(26, sequencer.next(LANE), "Next value should follow the batch");
+    }
+
+    @Test
+    void next_ShouldThrowWhenRangeIsExhausted() {
+        // Given
+        sequencer = new LaneSequencer("test", allocator, 0, 3, 2, 1);
+        sequencer.next(LANE);
+        sequencer.next(LANE);
+        sequencer.next(LANE);
+
+        // When / Then
+        assertThrows(SequenceExhaustedException.class, () -> sequencer.next(LANE));
+    }
+
+    @Test
+    void reserve_ShouldRejectMoreValuesThanAreLeftWithoutExhaustingTheLane() {
+        // Given
+        AtomicInteger allocations = new AtomicInteger();
+        SequenceBlockAllocator countingAllocator = (name, start, end, size) -> {
+            allocations.incrementAndGet();
+            return allocator.allocate(name, start, end, size);
+        };
+        sequencer = new LaneSequencer("test", countingAllocator, 130, 700, 100, 0);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> sequencer.reserve(LANE, 571),
+                "Batch larger than the range should be rejected");
+        assertEquals(0, allocations.get(), "Rejected batch should not reserve a block");
+        assertEquals(130, sequencer.reserve(LANE, 500), "Batch within the range should be served");
+        assertThrows(IllegalArgumentException.class, () -> sequencer.reserve(LANE, 71),
+                "Batch larger than what is left should be rejected");
+        assertFalse(sequencer.isExhausted(LANE), "Oversized batch should not exhaust the lane");
+        assertEquals(630, sequencer.reserve(LANE, 70), "Remaining values should still be served");
+        assertThrows(SequenceExhaustedException.class, () -> sequencer.next(LANE));
+        assertTrue(sequencer.isExhausted(LANE), "Lane should be exhausted once nothing is left");
+    }
+
+    @Test
+    void next_ShouldCountEachLaneIndependently() {
+        // Given
+        sequencer = new LaneSequencer("test", allocator, 100, 1000, 10, 3);
+        int otherLane = LaneSequencer.laneIndex(Country.SG, Country.MY);
+
+        // When
+        long first = sequencer.next(LANE);
+        long second = sequencer.next(LANE);
+        long other = sequencer.next(otherLane);
+        long unassigned = sequencer.next(LaneSequencer.DEFAULT_LANE);
+
+        // Then
+        assertEquals(100, first, "Lane should start at the start range");
+        assertEquals(101, second, "Lane should continue its own sequence");
+        assertEquals(100, other, "Other lane should start at the start range as well");
+        assertEquals(100, unassigned, "Default lane should have its own sequence");
+    }
+
+    @Test
+    void next_ShouldOnlyExhaustTheAffectedLane() {
+        // Given
+        sequencer = new LaneSequencer("test", allocator, 0, 2, 2, 0);
+        sequencer.next(LANE);
+        sequencer.next(LANE);
+
+        // When / Then
+        assertThrows(SequenceExhaustedException.class, () -> sequencer.next(LANE));
+        assertThrows(SequenceExhaustedException.class, () -> sequencer.next(LANE),
+                "Exhausted lane should keep failing");
+        assertEquals(0, sequencer.next(LaneSequencer.laneIndex(Country.US, Country.BR)),
+                "Other lanes should keep issuing numbers");
+    }
+
+    @Test
+    void next_ShouldNotIssueDuplicatesUnderContention() throws InterruptedException {
+        // Given
+        sequencer = new LaneSequencer("test", allocator, 0, 1_000_000, 64, 16);
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    issued.add(sequencer.next(LANE));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(80_000, issued.size(), "Every issued value should be unique");
+    }
+
+    @Test
+    void allocator_ShouldNeverHandOutOverlappingBlocks() {
+        // Given
+        SequenceRange first = allocator.allocate("MYTH", 0, 100, 10);
+
+        // When
+        SequenceRange second = allocator.allocate("MYTH", 0, 100, 10);
+
+        // Then
+        assertEquals(first.getEnd(), second.getStart(), "Blocks should follow each other");
+    }
+}
@@ -0,0 +1,141 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.TrackingGenApplication;
+import com.aamir.tracking.model.InstanceLease;
+import com.aamir.tracking.repository.InstanceLeaseRepository;
+import com.aamir.tracking.service.SequenceBlockAllocator;
+import com.aamir.tracking.service.TrackingNumberService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several application contexts sharing one H2 file database, each standing in for a node.
+ */
+class LeasedSequenceBlockAllocatorTest {
+
+    @TempDir
+    private Path databaseDirectory;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void nodes_ShouldLeaseDistinctSlotsAndIssueUniqueIds() {
+        // Given
+        ConfigurableApplicationContext first = startNode();
+        ConfigurableApplicationContext second = startNode();
+
+        // When
+        CompletableFuture<List<String>> fromFirst = CompletableFuture.supplyAsync(() -> issue(first, 300));
+        CompletableFuture<List<String>> fromSecond = CompletableFuture.supplyAsync(() -> issue(second, 300));
+        List<String> issued = new ArrayList<>(fromFirst.join());
+        issued.addAll(fromSecond.join());
+
+        // Then
+        assertEquals("00", instanceId(first), "First node should lease the first slot");
+        assertEquals("01", instanceId(second), "Second node should lease the next free slot");
+        assertEquals(issued.size(), new HashSet<>(issued).size(), "Nodes should never issue the same ID");
+        assertTrue(fromSecond.join().stream().allMatch(id -> id.startsWith("MY01")),
+                "IDs should carry the leased instance ID");
+    }
+
+    @Test
+    void node_ShouldContinueAfterPreviousOwnerOfReleasedSlot() {
+        // Given
+        ConfigurableApplicationContext first = startNode();
+        List<String> beforeRestart = issue(first, 150);
+        first.close();
+
+        // When
+        ConfigurableApplicationContext restarted = startNode();
+        List<String> afterRestart = issue(restarted, 150);
+
+        // Then
+        assertEquals("00", instanceId(restarted), "Released slot should be leased again");
+        Set<String> issued = new HashSet<>(beforeRestart);
+        issued.addAll(afterRestart);
+        assertEquals(300, issued.size(), "New owner should continue after the segments of the previous one");
+    }
+
+    @Test
+    void node_ShouldTakeOverExpiredLeaseAndStopPreviousOwner() {
+        // Given
+        ConfigurableApplicationContext stale = startNode();
+        List<String> fromStale = issue(stale, 50);
+        // the node stalls, e.g. in a long pause, and its lease runs out without a heartbeat
+        LeasedSequenceBlockAllocator staleAllocator = stale.getBean(LeasedSequenceBlockAllocator.class);
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(staleAllocator, "heartbeatExecutor")).shutdownNow();
+        InstanceLeaseRepository leases = stale.getBean(InstanceLeaseRepository.class);
+        InstanceLease lease = leases.findById(0).orElseThrow();
+        lease.setExpiresAt(Timestamp.from(Instant.now().minusSeconds(1)));
+        leases.saveAndFlush(lease);
+
+        // When
+        ConfigurableApplicationContext successor = startNode();
+        List<String> fromSuccessor = issue(successor, 50);
+        // the stalled node resumes with its next heartbeat
+        ReflectionTestUtils.invokeMethod(staleAllocator, "renew");
+
+        // Then
+        assertEquals("00", instanceId(successor), "Expired slot should be taken over");
+        assertFalse(staleAllocator.holdsLease(), "Previous owner should notice it lost the slot");
+        assertThrows(IllegalStateException.class, () -> staleAllocator.allocate("MYSG", 0, 1_000_000, 10),
+                "Previous owner should not reserve segments any more");
+        Set<String> issued = new HashSet<>(fromStale);
+        issued.addAll(fromSuccessor);
+        assertEquals(100, issued.size(), "Both owners of the slot should issue distinct IDs");
+    }
+
+    private ConfigurableApplicationContext startNode() {
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(TrackingGenApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments rather than default properties, which application.properties would override
+                .run("--spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("tracking")
+                                + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--tracking.id.block.store=lease",
+                        "--tracking.id.block.size=10",
+                        "--tracking.id.block.low.water.mark=2",
+                        "--tracking.id.start.range=0",
+                        "--tracking.id.end.range=1000000",
+                        "--tracking.id.lease.ttl=2s",
+                        "--tracking.id.lease.heartbeat=200ms");
+        nodes.add(node);
+        return node;
+    }
+
+    private static List<String> issue(ConfigurableApplicationContext node, int count) {
+        TrackingNumberService service = node.getBean(TrackingNumberService.class);
+        List<String> issued = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            issued.add(service.getNextTrackingNumber());
+        }
+        return issued;
+    }
+
+    private static String instanceId(ConfigurableApplicationContext node) {
+        return node.getBean(SequenceBlockAllocator.class).instanceId("unused");
+    }
+}
@@ -0,0 +1,179 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.util.Country;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrackingIdFilterTest {
+
+    private static final Timestamp LONG_AGO = Timestamp.valueOf(LocalDate.of(2025, 3, 1).atStartOfDay());
+
+    @TempDir
+    Path directory;
+
+    private final List<TrackingNumber> stored = new CopyOnWriteArrayList<>();
+    private final List<TrackingIdFilter> filters = new ArrayList<>();
+    private TrackingNumberStore store;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 500; i++) {
+            stored.add(trackingNumber(i, LONG_AGO));
+        }
+        store = mock(TrackingNumberStore.class);
+        when(store.streamByFilters(any(TrackingNumberFilter.class), anyInt())).thenAnswer(invocation -> {
+            TrackingNumberFilter filter = invocation.getArgument(0);
+            return stored.stream().filter(row -> row.getOriginCountryId() == filter.getOriginCountry());
+        });
+        when(store.findPage(any(TrackingNumberFilter.class), any(TrackingNumberCursor.class), anyInt()))
+                .thenAnswer(invocation -> {
+                    TrackingNumberCursor after = invocation.getArgument(1);
+                    int limit = invocation.getArgument(2);
+                    Comparator<TrackingNumber> order = Comparator.comparing(TrackingNumber::getCreatedAt)
+                            .thenComparing(TrackingNumber::getTrackingId);
+                    TrackingNumber cursor = TrackingNumber.builder()
+                            .withCreatedAt(after.getCreatedAt())
+                            .withTrackingId(after.getTrackingId())
+                            .build();
+                    return stored.stream()
+                            .filter(row -> order.compare(row, cursor) > 0)
+                            .sorted(order)
+                            .limit(limit)
+                            .toList();
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        filters.forEach(TrackingIdFilter::stop);
+    }
+
+    @Test
+    void load_ShouldScanTheStoreWithoutASnapshot() {
+        // Given
+        TrackingIdFilter filter = filter();
+
+        // When
+        load(filter);
+
+        // Then
+        for (TrackingNumber trackingNumber : stored) {
+            assertFalse(filter.definitelyAbsent(trackingNumber.getTrackingId()),
+                    "Stored tracking ID " + trackingNumber.getTrackingId() + " should never be rejected");
+        }
+        assertTrue(filter.definitelyAbsent("NEVERISSUED"), "Unknown tracking ID should be rejected");
+        filter.stop();
+        assertTrue(Files.exists(directory.resolve("tracking-ids.bloom")), "Stopped filter should be snapshotted");
+    }
+
+    @Test
+    void load_ShouldRestoreTheSnapshotAndCatchUpWithoutScanning() {
+        // Given
+        load(filter()).stop();
+        for (int i = 500; i < 520; i++) {
+            stored.add(trackingNumber(i, Timestamp.from(Instant.now())));
+        }
+        TrackingNumberStore scanned = store;
+        store = mock(TrackingNumberStore.class);
+        when(store.findPage(any(TrackingNumberFilter.class), any(TrackingNumberCursor.class), anyInt()))
+                .thenAnswer(invocation -> scanned.findPage(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2)));
+        TrackingIdFilter restored = filter();
+
+        // When
+        load(restored);
+
+        // Then
+        for (TrackingNumber trackingNumber : stored) {
+            assertFalse(restored.definitelyAbsent(trackingNumber.getTrackingId()),
+                    "Tracking ID " + trackingNumber.getTrackingId() + " should be in the snapshot or caught up");
+        }
+        assertTrue(restored.definitelyAbsent("NEVERISSUED"), "Unknown tracking ID should be rejected");
+        verify(store, never()).streamByFilters(any(TrackingNumberFilter.class), anyInt());
+    }
+
+    @Test
+    void add_ShouldKeepTrackingIdsCreatedBeforeTheFilterIsReady() {
+        // Given
+        TrackingIdFilter filter = filter();
+        filter.add("CREATEDEARLY");
+
+        // When
+        boolean absentBeforeReady = filter.definitelyAbsent("NEVERISSUED");
+        load(filter);
+
+        // Then
+        assertFalse(absentBeforeReady, "Lookups should go to the store until the filter is ready");
+        assertFalse(filter.definitelyAbsent("CREATEDEARLY"), "Tracking ID added before loading should be kept");
+        assertTrue(filter.definitelyAbsent("NEVERISSUED"), "Unknown tracking ID should be rejected once ready");
+    }
+
+    private TrackingIdFilter filter() {
+        TrackingIdFilter filter = new TrackingIdFilter(store,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.0001);
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 100L);
+        ReflectionTestUtils.setField(filter, "scanThreads", 3);
+        ReflectionTestUtils.setField(filter, "scanFetchSize", 8);
+        ReflectionTestUtils.setField(filter, "snapshotFile", directory.resolve("tracking-ids.bloom").toString());
+        ReflectionTestUtils.setField(filter, "snapshotInterval", Duration.ofHours(1));
+        filters.add(filter);
+        return filter;
+    }
+
+    private static TrackingIdFilter load(TrackingIdFilter filter) {
+        filter.loadInBackground();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!filter.isReady() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(filter.isReady(), "Filter should be loaded");
+        return filter;
+    }
+
+    private static TrackingNumber trackingNumber(int index, Timestamp createdAt) {
+        Country[] countries = Country.values();
+        return TrackingNumber.builder()
+                .withTrackingId(String.format("IX%08d", index))
+                .withOriginCountryId(countries[index % countries.length])
+                .withDestinationCountryId(countries[(index / countries.length) % countries.length])
+                .withWeight(500)
+                .withCreatedAt(createdAt)
+                .withCustomerId(new UUID(0, index % 7))
+                .withCustomerName("Customer " + index % 7)
+                .withCustomerSlug("customer-" + index % 7)
+                .build();
+    }
+}
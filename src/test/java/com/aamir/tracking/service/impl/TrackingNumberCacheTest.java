@@ -0,0 +1,101 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.config.CacheConfiguration;
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.util.Country;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {CacheConfiguration.class, TrackingNumberCache.class}, properties = {
+        "tracking.cache.lookup.max.size=100",
+        "tracking.cache.customer.max.rows=10",
+        "tracking.cache.ttl=60s"
+})
+class TrackingNumberCacheTest {
+
+    private static final UUID CUSTOMER_ID = UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49");
+
+    @MockitoBean
+    private TrackingNumberStore trackingNumberStore;
+
+    @Autowired
+    private TrackingNumberCache trackingNumberCache;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void findByTrackingId_ShouldServeRepeatedLookupsFromCache() {
+        // Given
+        when(trackingNumberStore.findById("MYSG1")).thenReturn(Optional.of(trackingNumber("MYSG1")));
+        when(trackingNumberStore.findById("MISSING")).thenReturn(Optional.empty());
+        Cache<?, ?> cache = (Cache<?, ?>) cacheManager.getCache(TrackingNumberCache.BY_TRACKING_ID).getNativeCache();
+        CacheStats before = cache.stats();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            trackingNumberCache.findByTrackingId("MYSG1");
+            trackingNumberCache.findByTrackingId("MISSING");
+        }
+
+        // Then
+        verify(trackingNumberStore, times(1)).findById("MYSG1");
+        verify(trackingNumberStore, times(3)).findById("MISSING");
+        CacheStats stats = cache.stats().minus(before);
+        assertEquals(2, stats.hitCount(), "Repeated lookups of a known ID should be hits");
+        assertEquals(4, stats.missCount(), "Unknown IDs should miss every time");
+    }
+
+    @Test
+    void stored_ShouldCacheTrackingNumberAndDropCustomerLists() {
+        // Given
+        when(trackingNumberStore.findByFilters(any())).thenReturn(List.of(trackingNumber("MYSG1")));
+        trackingNumberCache.findByCustomerId(CUSTOMER_ID);
+        trackingNumberCache.findByCustomerSlug("red-box");
+
+        // When
+        trackingNumberCache.stored(trackingNumber("MYSG2"));
+        trackingNumberCache.findByCustomerId(CUSTOMER_ID);
+        trackingNumberCache.findByCustomerSlug("red-box");
+
+        // Then
+        verify(trackingNumberStore, times(4)).findByFilters(any());
+        assertEquals("MYSG2", trackingNumberCache.findByTrackingId("MYSG2").getTrackingId(),
+                "A stored tracking number should be found without the repository");
+        verify(trackingNumberStore, times(0)).findById(any());
+    }
+
+    private static TrackingNumber trackingNumber(String trackingId) {
+        return TrackingNumber.builder()
+                .withTrackingId(trackingId)
+                .withOriginCountryId(Country.MY)
+                .withDestinationCountryId(Country.SG)
+                .withWeight(2500)
+                .withCustomerId(CUSTOMER_ID)
+                .withCustomerName("Red Box")
+                .withCustomerSlug("red-box")
+                .build();
+    }
+}
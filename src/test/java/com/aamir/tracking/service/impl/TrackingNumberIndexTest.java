@@ -0,0 +1,211 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.util.Country;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrackingNumberIndexTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 3, 1);
+
+    private final Random random = new Random(7);
+    private final List<TrackingNumber> stored = new ArrayList<>();
+    private TrackingNumberIndex index;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 2000; i++) {
+            stored.add(trackingNumber(i));
+        }
+        TrackingNumberStore store = mock(TrackingNumberStore.class);
+        when(store.streamByFilters(any(TrackingNumberFilter.class), anyInt())).thenAnswer(invocation -> {
+            TrackingNumberFilter filter = invocation.getArgument(0);
+            return stored.stream().filter(row -> row.getOriginCountryId() == filter.getOriginCountry());
+        });
+        index = new TrackingNumberIndex(store,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new TrackingNumberMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "scanThreads", 3);
+        ReflectionTestUtils.setField(index, "scanFetchSize", 64);
+    }
+
+    @Test
+    void find_ShouldMatchEveryFilterCombinationLikeTheDatabase() {
+        // Given
+        index.rebuild();
+        TrackingNumber sample = stored.get(123);
+
+        for (int mask = 0; mask < 64; mask++) {
+            TrackingNumberFilter filter = TrackingNumberFilter.builder()
+                    .withOriginCountry((mask & 1) == 0 ? null : sample.getOriginCountryId())
+                    .withDestinationCountry((mask & 2) == 0 ? null : sample.getDestinationCountryId())
+                    .withWeight((mask & 4) == 0 ? null : sample.getWeight())
+                    .withCreatedOn((mask & 8) == 0 ? null : sample.getCreatedAt().toLocalDateTime().toLocalDate())
+                    .withCustomerId((mask & 16) == 0 ? null : sample.getCustomerId())
+                    .withCustomerSlug((mask & 32) == 0 ? null : sample.getCustomerSlug())
+                    .build();
+
+            // When
+            List<TrackingNumber> found = index.find(filter).orElseThrow();
+
+            // Then
+            assertEquals(trackingIds(bruteForce(filter)), trackingIds(found), "Matches for " + filter);
+        }
+    }
+
+    @Test
+    void find_ShouldRestoreEveryColumnOfAMatch() {
+        // Given
+        index.rebuild();
+        TrackingNumber sample = stored.get(42);
+
+        // When
+        TrackingNumber found = index.find(TrackingNumberFilter.builder()
+                        .withCustomerId(sample.getCustomerId())
+                        .withWeight(sample.getWeight())
+                        .build())
+                .orElseThrow().stream()
+                .filter(row -> row.getTrackingId().equals(sample.getTrackingId()))
+                .findFirst().orElseThrow();
+
+        // Then
+        assertEquals(sample.getOriginCountryId(), found.getOriginCountryId(), "Origin should be restored");
+        assertEquals(sample.getDestinationCountryId(), found.getDestinationCountryId(),
+                "Destination should be restored");
+        assertEquals(sample.getCreatedAt(), found.getCreatedAt(), "Creation time should keep its nanos");
+        assertEquals(sample.getUpdatedAt(), found.getUpdatedAt(), "Missing update time should stay null");
+        assertEquals(sample.getCustomerName(), found.getCustomerName(), "Customer name should be restored");
+        assertEquals(sample.getCustomerSlug(), found.getCustomerSlug(), "Customer slug should be restored");
+    }
+
+    @Test
+    void find_ShouldSeeTrackingNumbersAddedAfterTheBuild() {
+        // Given
+        index.rebuild();
+        TrackingNumber created = trackingNumber(5000);
+        TrackingNumberFilter filter = TrackingNumberFilter.builder()
+                .withCustomerSlug(created.getCustomerSlug())
+                .build();
+        int before = index.find(filter).orElseThrow().size();
+
+        // When
+        index.add(created);
+
+        // Then
+        List<TrackingNumber> after = index.find(filter).orElseThrow();
+        assertEquals(before + 1, after.size(), "New tracking number should be found");
+        assertTrue(trackingIds(after).contains(created.getTrackingId()), "New tracking number should be listed");
+        assertEquals(stored.size() + 1, index.size(), "Index should count the new row");
+    }
+
+    @Test
+    void find_ShouldLeaveFiltersItCannotAnswerToTheDatabase() {
+        // Given
+        TrackingNumberFilter all = TrackingNumberFilter.builder().build();
+
+        // When, Then
+        assertTrue(index.find(all).isEmpty(), "Filters should not be answered before the index is built");
+        index.rebuild();
+        assertEquals(stored.size(), index.find(all).orElseThrow().size(), "Empty filter should list every row");
+        assertTrue(index.find(TrackingNumberFilter.builder().withCustomerSlug("unknown").build())
+                .orElseThrow().isEmpty(), "Unknown slug should match nothing");
+    }
+
+    @Test
+    void find_ShouldMatchCustomerNamesLikeCaseInsensitiveSubstrings() {
+        // Given
+        stored.add(trackingNumber(3000, 20, "Ärger & Söhne GmbH"));
+        stored.add(trackingNumber(3001, 21, "Acme Acme Logistics"));
+        stored.add(trackingNumber(3002, 22, null));
+        stored.add(trackingNumber(3003, 23, "A_C Freight"));
+        stored.add(trackingNumber(3004, 24, "100% Parcel"));
+        index.rebuild();
+        TrackingNumber sample = stored.get(77);
+
+        for (String term : List.of("CUSTOMER 1", "mer 1", "r 1", "1", "Ä", "äRGER", "söhne gm", "acme ac", "me lo",
+                "xyz", "customer 1x", "a_c", "0%", "_", "%")) {
+            TrackingNumberFilter byName = TrackingNumberFilter.builder().withCustomerName(term).build();
+            TrackingNumberFilter combined = TrackingNumberFilter.builder()
+                    .withCustomerName(term)
+                    .withOriginCountry(sample.getOriginCountryId())
+                    .withWeight(sample.getWeight())
+                    .build();
+
+            // When
+            List<TrackingNumber> found = index.find(byName).orElseThrow();
+            List<TrackingNumber> foundCombined = index.find(combined).orElseThrow();
+
+            // Then
+            assertEquals(trackingIds(bruteForce(byName)), trackingIds(found), "Matches for name " + term);
+            assertEquals(trackingIds(bruteForce(combined)), trackingIds(foundCombined), "Matches for " + combined);
+        }
+    }
+
+    private List<TrackingNumber> bruteForce(TrackingNumberFilter filter) {
+        return stored.stream()
+                .filter(row -> filter.getOriginCountry() == null
+                        || row.getOriginCountryId() == filter.getOriginCountry())
+                .filter(row -> filter.getDestinationCountry() == null
+                        || row.getDestinationCountryId() == filter.getDestinationCountry())
+                .filter(row -> filter.getWeight() == null || filter.getWeight().equals(row.getWeight()))
+                .filter(row -> filter.getCreatedOn() == null
+                        || row.getCreatedAt().toLocalDateTime().toLocalDate().equals(filter.getCreatedOn()))
+                .filter(row -> filter.getCustomerId() == null || row.getCustomerId().equals(filter.getCustomerId()))
+                .filter(row -> filter.getCustomerSlug() == null
+                        || row.getCustomerSlug().equals(filter.getCustomerSlug()))
+                // lower(customer_name) like %name%, with the term lower-cased the same way
+                .filter(row -> filter.getCustomerName() == null || (row.getCustomerName() != null
+                        && row.getCustomerName().toLowerCase(Locale.ROOT)
+                        .contains(filter.getCustomerName().toLowerCase(Locale.ROOT))))
+                .toList();
+    }
+
+    private static List<String> trackingIds(List<TrackingNumber> trackingNumbers) {
+        return trackingNumbers.stream().map(TrackingNumber::getTrackingId).sorted(Comparator.naturalOrder()).toList();
+    }
+
+    private TrackingNumber trackingNumber(int index) {
+        int customer = random.nextInt(20);
+        return trackingNumber(index, customer, "Customer " + customer);
+    }
+
+    private TrackingNumber trackingNumber(int index, int customer, String customerName) {
+        Country[] countries = Country.values();
+        Timestamp createdAt = Timestamp.valueOf(FIRST_DAY.plusDays(random.nextInt(5)).atStartOfDay()
+                .plusNanos(random.nextLong(86_400_000_000_000L)));
+        return TrackingNumber.builder()
+                .withTrackingId(String.format("IX%08d", index))
+                .withOriginCountryId(countries[random.nextInt(countries.length)])
+                .withDestinationCountryId(countries[random.nextInt(countries.length)])
+                .withWeight(500 * (1 + random.nextInt(4)))
+                .withCreatedAt(createdAt)
+                .withCustomerId(new UUID(0, customer))
+                .withCustomerName(customerName)
+                .withCustomerSlug("customer-" + customer)
+                .build();
+    }
+}
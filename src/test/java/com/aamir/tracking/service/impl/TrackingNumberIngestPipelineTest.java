@@ -0,0 +1,184 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.repository.TrackingNumberStore;
+import com.aamir.tracking.service.IngestQueueFullException;
+import com.aamir.tracking.util.Country;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingNumberIngestPipelineTest {
+
+    @Mock
+    private TrackingNumberStore trackingNumberStore;
+
+    @Mock
+    private TrackingNumberBulkWriter trackingNumberBulkWriter;
+
+    @TempDir
+    Path journalDirectory;
+
+    private final List<List<TrackingNumber>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        batches.clear();
+    }
+
+    private TrackingNumberIngestPipeline pipeline(int capacity, int flushSize, Duration flushInterval) {
+        TrackingNumberIngestPipeline pipeline = new TrackingNumberIngestPipeline(trackingNumberStore,
+                trackingNumberBulkWriter, new TrackingNumberMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(pipeline, "mode", "async");
+        ReflectionTestUtils.setField(pipeline, "capacity", capacity);
+        ReflectionTestUtils.setField(pipeline, "flushSize", flushSize);
+        ReflectionTestUtils.setField(pipeline, "flushInterval", flushInterval);
+        ReflectionTestUtils.setField(pipeline, "backpressure", "reject");
+        ReflectionTestUtils.setField(pipeline, "offerTimeout", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(pipeline, "shutdownTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(pipeline, "journalDirectory", journalDirectory.toString());
+        ReflectionTestUtils.setField(pipeline, "journalSegmentSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(pipeline, "journalFsync", true);
+        return pipeline;
+    }
+
+    private void recordBatches() {
+        when(trackingNumberBulkWriter.write(anyList())).thenAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.getArgument(0)));
+            return Map.of();
+        });
+    }
+
+    @Test
+    void submit_ShouldStoreQueuedRecordsInBatchesAndDrainOnStop() throws IOException {
+        // Given
+        recordBatches();
+        TrackingNumberIngestPipeline pipeline = pipeline(100, 4, Duration.ofSeconds(10));
+        pipeline.start();
+
+        // When
+        for (int i = 0; i < 30; i++) {
+            pipeline.submit(trackingNumber("MYSG" + i));
+        }
+        pipeline.stop();
+
+        // Then
+        assertEquals(30, batches.stream().mapToInt(List::size).sum(), "Every submitted record should be stored");
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 4), "Batches should not exceed the flush size");
+        assertEquals(0, pipeline.queued(), "Nothing should be left in the queue");
+        assertEquals(0, segments(), "Journal segments should be deleted once their records are stored");
+    }
+
+    @Test
+    void submit_ShouldRejectWhenQueueIsFull() {
+        // Given: the writer waits for a full batch that never comes
+        recordBatches();
+        TrackingNumberIngestPipeline pipeline = pipeline(2, 100, Duration.ofSeconds(10));
+        pipeline.start();
+        pipeline.submit(trackingNumber("MYSG1"));
+        pipeline.submit(trackingNumber("MYSG2"));
+
+        // When / Then
+        assertThrows(IngestQueueFullException.class, () -> pipeline.submit(trackingNumber("MYSG3")),
+                "A full queue should reject instead of growing");
+        pipeline.stop();
+        assertEquals(2, batches.stream().mapToInt(List::size).sum(), "Queued records should be drained on stop");
+    }
+
+    @Test
+    void start_ShouldReplayUnstoredRecordsFromJournal() throws IOException {
+        // Given: an earlier run journaled three records and stored only one before it crashed
+        IngestJournal crashed = new IngestJournal(journalDirectory, DataSize.ofKilobytes(1).toBytes(), true);
+        crashed.append(trackingNumber("MYSG1"));
+        crashed.append(trackingNumber("MYSG2"));
+        crashed.append(trackingNumber("MYSG3"));
+        when(trackingNumberStore.findAllById(any())).thenReturn(List.of(trackingNumber("MYSG2")));
+        recordBatches();
+        TrackingNumberIngestPipeline pipeline = pipeline(100, 100, Duration.ofMillis(20));
+
+        // When
+        pipeline.start();
+        pipeline.stop();
+
+        // Then
+        assertEquals(1, batches.size(), "Replay should store the missing records in one batch");
+        assertEquals(List.of("MYSG1", "MYSG3"), batches.get(0).stream().map(TrackingNumber::getTrackingId).toList(),
+                "Only records missing from the database should be replayed");
+        assertEquals(batches.get(0).get(0).getCreatedAt(), trackingNumber("MYSG1").getCreatedAt(),
+                "Replayed records should keep their creation time");
+        assertEquals(0, segments(), "Replayed segments should be deleted");
+    }
+
+    @Test
+    void submit_ShouldWriteARecordThatFailedOnItsOwnAgainWithoutARestart() throws Exception {
+        // Given: the first write of MYSG2 fails, the rest of its batch is stored
+        when(trackingNumberBulkWriter.write(anyList())).thenAnswer(invocation -> {
+            List<TrackingNumber> rows = new ArrayList<>(invocation.getArgument(0));
+            batches.add(rows);
+            return batches.size() == 1 ? Map.of(1, "Connection reset") : Map.of();
+        });
+        TrackingNumberIngestPipeline pipeline = pipeline(100, 3, Duration.ofMillis(20));
+        pipeline.start();
+
+        // When
+        pipeline.submit(trackingNumber("MYSG1"));
+        pipeline.submit(trackingNumber("MYSG2"));
+        pipeline.submit(trackingNumber("MYSG3"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (pipeline.queued() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        pipeline.stop();
+
+        // Then
+        assertEquals(0, pipeline.queued(), "Failed record should be stored by a later attempt");
+        assertEquals(List.of("MYSG2"), batches.get(1).stream().map(TrackingNumber::getTrackingId).toList(),
+                "Only the failed record should be written again");
+        assertEquals(0, segments(), "Journal segments should be deleted once the retry stored the record");
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            return files.count();
+        }
+    }
+
+    private static TrackingNumber trackingNumber(String trackingId) {
+        Timestamp createdAt = Timestamp.from(Instant.parse("2025-03-01T10:15:30.123456789Z"));
+        return TrackingNumber.builder()
+                .withTrackingId(trackingId)
+                .withOriginCountryId(Country.MY)
+                .withDestinationCountryId(Country.SG)
+                .withWeight(2500)
+                .withCreatedAt(createdAt)
+                .withCustomerId(UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"))
+                .withCustomerName("Red Box")
+                .withCustomerSlug("red-box")
+                .build();
+    }
+}
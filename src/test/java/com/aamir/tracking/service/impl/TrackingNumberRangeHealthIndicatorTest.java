@@ -0,0 +1,97 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.util.Country;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingNumberRangeHealthIndicatorTest {
+
+    private TrackingNumberMetrics metrics;
+    private LaneSequencer sequencer;
+    private TrackingNumberRangeHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new TrackingNumberMetrics(new SimpleMeterRegistry());
+        sequencer = new LaneSequencer("tracking_id", new InMemorySequenceBlockAllocator(), 0, 100, 10, 2);
+        metrics.bind(sequencer);
+        healthIndicator = new TrackingNumberRangeHealthIndicator(metrics);
+        ReflectionTestUtils.setField(healthIndicator, "warnRatio", 0.1);
+        ReflectionTestUtils.setField(healthIndicator, "warnBefore", Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequencer.close();
+    }
+
+    @Test
+    void health_ShouldWarnBeforeRangeIsExhaustedAndGoDownOnceItIs() {
+        // Given
+        int lane = LaneSequencer.DEFAULT_LANE;
+        sequencer.reserve(lane, 50);
+
+        // When / Then
+        assertEquals(Status.UP, healthIndicator.health().getStatus(), "Half the range left should be healthy");
+
+        // When
+        sequencer.reserve(lane, 45);
+        Health low = healthIndicator.health();
+
+        // Then
+        assertEquals(TrackingNumberRangeHealthIndicator.WARN, low.getStatus(),
+                "Less than a tenth of the range left should warn");
+        assertEquals(List.of("default"), low.getDetails().get("lowLanes"), "Low lane should be named");
+        assertEquals(5L, low.getDetails().get("lowestRemaining"), "Remaining values should be reported");
+
+        // When
+        sequencer.reserve(lane, 5);
+        assertThrows(IllegalStateException.class, () -> sequencer.next(lane));
+
+        // Then
+        assertEquals(Status.DOWN, healthIndicator.health().getStatus(), "Exhausted default lane should be down");
+    }
+
+    @Test
+    void health_ShouldOnlyWarnWhileOtherLanesStillIssue() {
+        // Given
+        int lane = LaneSequencer.laneIndex(Country.MY, Country.SG);
+        sequencer.reserve(lane, 100);
+        assertThrows(IllegalStateException.class, () -> sequencer.next(lane));
+
+        // When
+        Health health = healthIndicator.health();
+
+        // Then
+        assertEquals(TrackingNumberRangeHealthIndicator.WARN, health.getStatus(),
+                "One exhausted lane should not take the node out of rotation");
+        assertEquals(List.of("MYSG"), health.getDetails().get("exhaustedLanes"), "Exhausted lane should be named");
+    }
+
+    @Test
+    void health_ShouldWarnWhenRecentRateExhaustsRangeWithinWarningPeriod() {
+        // Given
+        ReflectionTestUtils.setField(healthIndicator, "warnBefore", Duration.ofDays(1));
+        int lane = LaneSequencer.laneIndex(Country.MY, Country.SG);
+        sequencer.next(lane);
+
+        // When
+        metrics.recordSingleGeneration(lane, -1);
+        Health health = healthIndicator.health();
+
+        // Then
+        assertEquals(TrackingNumberRangeHealthIndicator.WARN, health.getStatus(),
+                "Issuing at any rate should exhaust a 100 value range within a day");
+        assertEquals(List.of("MYSG"), health.getDetails().get("lowLanes"), "Only the busy lane should be reported");
+    }
+}
@@ -0,0 +1,100 @@
+package com.aamir.tracking.service.impl;
+
+import com.aamir.tracking.model.TrackingNumber;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.util.Country;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackingNumberRollupTest {
+
+    private Instant now = Instant.parse("2025-01-01T10:00:00Z");
+    private TrackingNumberRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        };
+        rollup = new TrackingNumberRollup(clock);
+        ReflectionTestUtils.setField(rollup, "enabled", true);
+        ReflectionTestUtils.setField(rollup, "window", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(rollup, "bucketCount", 10);
+        rollup.init();
+    }
+
+    @Test
+    void recentByLane_ShouldSumCountsAndWeightsPerLane() {
+        // Given
+        rollup.record(trackingNumber(Country.MY, Country.SG, 1000));
+        rollup.record(trackingNumber(Country.MY, Country.SG, 3000));
+        now = now.plus(Duration.ofMinutes(3));
+        rollup.record(trackingNumber(Country.US, Country.MY, 500));
+
+        // When
+        List<TrackingNumberStats> stats = rollup.recentByLane();
+
+        // Then
+        assertEquals(2, stats.size(), "Only lanes with tracking numbers should be listed");
+        TrackingNumberStats mySg = stats.stream().filter(lane -> lane.getOriginCountry() == Country.MY)
+                .findFirst().orElseThrow();
+        assertEquals(Country.SG, mySg.getDestinationCountry(), "Lane should keep its destination");
+        assertEquals(2, mySg.getCount(), "Both tracking numbers of the lane should be counted");
+        assertEquals(4000, mySg.getTotalWeight(), "Weights of the lane should be summed");
+        assertEquals(2000, mySg.averageWeight(), "Average should be total weight over count");
+    }
+
+    @Test
+    void recentByLane_ShouldDropBucketsOutsideTheWindow() {
+        // Given
+        rollup.record(trackingNumber(Country.MY, Country.SG, 1000));
+        now = now.plus(Duration.ofMinutes(5));
+        rollup.record(trackingNumber(Country.MY, Country.SG, 2000));
+
+        // When
+        now = now.plus(Duration.ofMinutes(6));
+        List<TrackingNumberStats> afterFirstExpired = rollup.recentByLane();
+        // the ring wraps around to the first bucket and has to clear it
+        now = now.plus(Duration.ofMinutes(9));
+        rollup.record(trackingNumber(Country.MY, Country.SG, 4000));
+        List<TrackingNumberStats> afterWrap = rollup.recentByLane();
+
+        // Then
+        assertEquals(1, afterFirstExpired.get(0).getCount(), "Bucket older than the window should be left out");
+        assertEquals(2000, afterFirstExpired.get(0).getTotalWeight(), "Only the recent weight should remain");
+        assertEquals(4000, afterWrap.get(0).getTotalWeight(), "Reused bucket should start from zero");
+        assertTrue(afterWrap.stream().allMatch(lane -> lane.getCount() == 1), "Old buckets should be gone");
+    }
+
+    private static TrackingNumber trackingNumber(Country origin, Country destination, int weight) {
+        return TrackingNumber.builder()
+                .withOriginCountryId(origin)
+                .withDestinationCountryId(destination)
+                .withWeight(weight)
+                .build();
+    }
+}
@@ -2,24 +2,39 @@ package com.aamir.tracking.service.impl;
 
 import com.aamir.tracking.controller.dto.request.TrackingNumberRequest;
 import com.aamir.tracking.model.TrackingNumber;
-import com.aamir.tracking.repository.TrackingNumberRepository;
+import com.aamir.tracking.model.TrackingNumberBulkResult;
+import com.aamir.tracking.model.TrackingNumberCursor;
+import com.aamir.tracking.model.TrackingNumberFilter;
+import com.aamir.tracking.model.TrackingNumberGrouping;
+import com.aamir.tracking.model.TrackingNumberPage;
+import com.aamir.tracking.model.TrackingNumberRange;
+import com.aamir.tracking.model.TrackingNumberStats;
+import com.aamir.tracking.repository.TrackingNumberStore;
 import com.aamir.tracking.util.Country;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,7 +43,31 @@ import static org.mockito.Mockito.when;
 class TrackingNumberServiceImplTest {
 
     @Mock
-    private TrackingNumberRepository trackingNumberRepository;
+    private TrackingNumberStore trackingNumberStore;
+
+    @Spy
+    private InMemorySequenceBlockAllocator sequenceBlockAllocator;
+
+    @Mock
+    private TrackingNumberBulkWriter trackingNumberBulkWriter;
+
+    @Spy
+    private TrackingNumberMetrics trackingNumberMetrics = new TrackingNumberMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private TrackingNumberIngestPipeline trackingNumberIngestPipeline;
+
+    @Mock
+    private TrackingNumberCache trackingNumberCache;
+
+    @Mock
+    private TrackingNumberRollup trackingNumberRollup;
+
+    @Mock
+    private TrackingNumberIndex trackingNumberIndex;
+
+    @Mock
+    private TrackingIdFilter trackingIdFilter;
 
     @InjectMocks
     private TrackingNumberServiceImpl trackingNumberService;
@@ -45,6 +84,19 @@ class TrackingNumberServiceImplTest {
         ReflectionTestUtils.setField(trackingNumberService, "startRange", 1000);
         ReflectionTestUtils.setField(trackingNumberService, "endRange", 9999);
         ReflectionTestUtils.setField(trackingNumberService, "padding", 4);
+        ReflectionTestUtils.setField(trackingNumberService, "blockSize", 100);
+        ReflectionTestUtils.setField(trackingNumberService, "lowWaterMark", 10);
+        ReflectionTestUtils.setField(trackingNumberService, "maxBatchSize", 500);
+        ReflectionTestUtils.setField(trackingNumberService, "maxBulkSize", 100);
+        ReflectionTestUtils.setField(trackingNumberService, "maxPageSize", 50);
+        ReflectionTestUtils.setField(trackingNumberService, "exportFetchSize", 20);
+        ReflectionTestUtils.setField(trackingNumberService, "maxStatsGroups", 10);
+        ReflectionTestUtils.setField(trackingNumberService, "mode", "sequence");
+        ReflectionTestUtils.setField(trackingNumberService, "snowflakeEpoch", "2025-01-01T00:00:00Z");
+        ReflectionTestUtils.setField(trackingNumberService, "snowflakeTimestampBits", 40);
+        ReflectionTestUtils.setField(trackingNumberService, "snowflakeInstanceBits", 10);
+        ReflectionTestUtils.setField(trackingNumberService, "snowflakeSequenceBits", 12);
+        ReflectionTestUtils.setField(trackingNumberService, "snowflakeInstance", 1L);
 
         // Initialize counter before tests
         trackingNumberService.init();
@@ -114,10 +166,67 @@ class TrackingNumberServiceImplTest {
         assertThrows(IllegalStateException.class, () -> trackingNumberService.getNextTrackingNumber());
     }
 
+    @Test
+    void getNextTrackingNumbers_ShouldReturnContiguousBatch() {
+        // Given
+        String single = trackingNumberService.getNextTrackingNumber();
+
+        // When
+        List<String> batch = trackingNumberService.getNextTrackingNumbers(3);
+
+        // Then
+        assertEquals("MY011000", single, "Single tracking number should come from the start range");
+        assertEquals(List.of("MY011001", "MY011002", "MY011003"), batch,
+                "Batch should continue the sequence without gaps");
+        assertEquals("MY011004", trackingNumberService.getNextTrackingNumber(),
+                "Next tracking number should follow the batch");
+    }
+
+    @Test
+    void getNextTrackingNumberRange_ShouldDescribeReservedRange() {
+        // When
+        TrackingNumberRange range = trackingNumberService.getNextTrackingNumberRange(250);
+
+        // Then
+        assertEquals("MY01", range.getPrefix(), "Range prefix should include the instance ID");
+        assertEquals(1000, range.getFirst(), "Range should start at the start range");
+        assertEquals(1249, range.getLast(), "Range should end after count numbers");
+        assertEquals(4, range.getPadding(), "Range should report the padding");
+        assertEquals("MY011250", trackingNumberService.getNextTrackingNumber(),
+                "Next tracking number should follow the range");
+    }
+
+    @Test
+    void getNextTrackingNumbers_ShouldReturnTimeOrderedIdsInSnowflakeMode() {
+        // Given
+        ReflectionTestUtils.setField(trackingNumberService, "mode", "snowflake");
+        ReflectionTestUtils.setField(trackingNumberService, "idLength", 16);
+        trackingNumberService.init();
+
+        // When
+        String single = trackingNumberService.getNextTrackingNumber();
+        List<String> batch = trackingNumberService.getNextTrackingNumbers(3);
+
+        // Then
+        assertEquals(14, single.length(), "Snowflake ID should be the default lane prefix and twelve characters");
+        assertTrue(single.startsWith("MY"), "Snowflake ID should start with the lane prefix");
+        assertTrue(single.compareTo(batch.get(0)) < 0 && batch.get(0).compareTo(batch.get(2)) < 0,
+                "Snowflake IDs should sort in the order they were issued");
+        assertThrows(IllegalArgumentException.class, () -> trackingNumberService.getNextTrackingNumberRange(3),
+                "Ranges of prefix and padded number cannot describe snowflake IDs");
+        verify(sequenceBlockAllocator, never()).allocate(any(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void getNextTrackingNumbers_ShouldRejectCountOutsideLimits() {
+        assertThrows(IllegalArgumentException.class, () -> trackingNumberService.getNextTrackingNumbers(0));
+        assertThrows(IllegalArgumentException.class, () -> trackingNumberService.getNextTrackingNumbers(501));
+    }
+
     @Test
     void createNextTrackingNumber_ShouldCreateTrackingNumberWithCorrectData() {
         // Given
-        when(trackingNumberRepository.save(any(TrackingNumber.class)))
+        when(trackingNumberStore.save(any(TrackingNumber.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
@@ -139,7 +248,32 @@ class TrackingNumberServiceImplTest {
         assertTrue(trackingId.startsWith("MY"), "Tracking ID should start with origin country code");
         assertTrue(trackingId.contains("SG"), "Tracking ID should contain destination country code");
 
-        verify(trackingNumberRepository).save(any(TrackingNumber.class));
+        verify(trackingNumberStore).save(any(TrackingNumber.class));
+    }
+
+    @Test
+    void createTrackingNumbers_ShouldReserveIdsPerLaneAndReportFailures() {
+        // Given
+        List<TrackingNumberRequest> requests = List.of(
+                new TrackingNumberRequest("MY", "SG", "1.0", customerId, "First Customer"),
+                new TrackingNumberRequest("XX", "SG", "1.0", customerId, "Unknown Country"),
+                new TrackingNumberRequest("US", "BR", "2.0", customerId, "Second Customer"),
+                new TrackingNumberRequest("MY", "SG", "3.0", customerId, "Third Customer"));
+        when(trackingNumberBulkWriter.write(any())).thenReturn(Map.of(2, "Could not store tracking number"));
+        when(trackingNumberStore.save(any(TrackingNumber.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        TrackingNumberBulkResult result = trackingNumberService.createTrackingNumbers(requests);
+
+        // Then
+        assertEquals(List.of("MYSG011000", "USBR011000"),
+                result.getCreated().stream().map(TrackingNumber::getTrackingId).toList(),
+                "Each lane should number its items from its own reservation");
+        assertEquals(List.of(1, 3), List.copyOf(result.getFailures().keySet()),
+                "Failures should be reported by request position");
+        assertEquals("MYSG011002", trackingNumberService.createNextTrackingNumber(sampleRequest).getTrackingId(),
+                "Single create should continue after the bulk reservation");
     }
 
     @Test
@@ -150,7 +284,7 @@ class TrackingNumberServiceImplTest {
                 createSampleTrackingNumber("SG01MY1001", Country.SG, Country.MY)
         );
 
-        when(trackingNumberRepository.findAll()).thenReturn(expectedTrackingNumbers);
+        when(trackingNumberStore.findAll()).thenReturn(expectedTrackingNumbers);
 
         // When
         List<TrackingNumber> result = trackingNumberService.getAllTrackingNumbers();
@@ -159,7 +293,105 @@ class TrackingNumberServiceImplTest {
         assertEquals(2, result.size(), "Should return the correct number of tracking numbers");
         assertEquals(expectedTrackingNumbers, result, "Should return the tracking numbers from repository");
 
-        verify(trackingNumberRepository).findAll();
+        verify(trackingNumberStore).findAll();
+    }
+
+    @Test
+    void getTrackingNumber_ShouldSkipCacheAndStoreForIdsTheFilterRulesOut() {
+        // Given
+        TrackingNumber stored = TrackingNumber.builder().withTrackingId("MYSG011000").build();
+        when(trackingIdFilter.definitelyAbsent("MYSG099999")).thenReturn(true);
+        when(trackingNumberCache.findByTrackingId("MYSG011000")).thenReturn(stored);
+
+        // When
+        boolean absentFound = trackingNumberService.getTrackingNumber("MYSG099999").isPresent();
+        TrackingNumber found = trackingNumberService.getTrackingNumber("MYSG011000").orElseThrow();
+
+        // Then
+        assertFalse(absentFound, "ID ruled out by the filter should not be found");
+        assertEquals(stored, found, "ID the filter may hold should be looked up");
+        verify(trackingNumberCache, never()).findByTrackingId("MYSG099999");
+    }
+
+    @Test
+    void filterTrackingNumbers_ShouldServeSingleCustomerListsFromCache() {
+        // Given
+        TrackingNumber cached = TrackingNumber.builder().withTrackingId("MYSG011000").build();
+        when(trackingNumberCache.findByCustomerId(UUID.fromString(customerId))).thenReturn(List.of(cached));
+        when(trackingNumberCache.findByCustomerSlug("test-customer")).thenReturn(List.of(cached));
+
+        // When
+        List<TrackingNumber> byId = trackingNumberService.filterTrackingNumbers(null, null, null, null, customerId,
+                null, null);
+        List<TrackingNumber> bySlug = trackingNumberService.filterTrackingNumbers(null, null, "", "", null, "",
+                "test-customer");
+        trackingNumberService.filterTrackingNumbers(Country.MY, null, null, null, customerId, null, null);
+
+        // Then
+        assertEquals(List.of(cached), byId, "Customer ID alone should be served from the cache");
+        assertEquals(List.of(cached), bySlug, "Customer slug alone should be served from the cache");
+        verify(trackingNumberStore).findByFilters(argThat(filter -> filter.getOriginCountry() == Country.MY));
+    }
+
+    @Test
+    void aggregateTrackingNumbers_ShouldPushGroupingAndFilterDownToRepository() {
+        // Given
+        TrackingNumberStats lane = TrackingNumberStats.builder()
+                .withOriginCountry(Country.MY)
+                .withDestinationCountry(Country.SG)
+                .withCount(3)
+                .withTotalWeight(7500)
+                .build();
+        when(trackingNumberStore.aggregate(any(TrackingNumberFilter.class), eq(TrackingNumberGrouping.LANE),
+                eq(10))).thenReturn(List.of(lane));
+
+        // When
+        List<TrackingNumberStats> stats = trackingNumberService.aggregateTrackingNumbers("lane", Country.MY, null,
+                null, "2025-01-01", null, null, null);
+
+        // Then
+        assertEquals(List.of(lane), stats, "Groups should come from the repository");
+        assertEquals(2500, stats.get(0).averageWeight(), "Average should be total weight over count");
+        verify(trackingNumberStore).aggregate(argThat(filter -> filter.getOriginCountry() == Country.MY
+                && "2025-01-01".equals(String.valueOf(filter.getCreatedOn()))), eq(TrackingNumberGrouping.LANE),
+                eq(10));
+        assertThrows(IllegalArgumentException.class,
+                () -> trackingNumberService.aggregateTrackingNumbers("week", null, null, null, null, null, null,
+                        null), "Unknown grouping should be rejected");
+    }
+
+    @Test
+    void filterTrackingNumberPage_ShouldSeekPastCursorAndReturnNextCursor() {
+        // Given
+        TrackingNumber first = createSampleTrackingNumber("MY01SG1000", Country.MY, Country.SG);
+        TrackingNumber second = createSampleTrackingNumber("MY01SG1001", Country.MY, Country.SG);
+        TrackingNumber third = createSampleTrackingNumber("MY01SG1002", Country.MY, Country.SG);
+        TrackingNumberCursor after = new TrackingNumberCursor(Timestamp.valueOf("2025-01-01 10:00:00.123456"),
+                "MY01SG0999");
+        when(trackingNumberStore.findPage(any(TrackingNumberFilter.class), any(TrackingNumberCursor.class),
+                eq(3))).thenReturn(List.of(first, second, third));
+
+        // When
+        TrackingNumberPage page = trackingNumberService.filterTrackingNumberPage(Country.MY, null, null, null, null,
+                null, null, after.encode(), 2);
+
+        // Then
+        assertEquals(List.of(first, second), page.getItems(), "Page should hold at most limit tracking numbers");
+        assertEquals("MY01SG1001", page.getNextCursor().getTrackingId(),
+                "Next cursor should point at the last tracking number of the page");
+        assertEquals(second.getCreatedAt(), TrackingNumberCursor.decode(page.getNextCursor().encode()).getCreatedAt(),
+                "Cursor should survive encoding");
+        verify(trackingNumberStore).findPage(any(TrackingNumberFilter.class),
+                argThat(cursor -> cursor.getTrackingId().equals("MY01SG0999")
+                        && cursor.getCreatedAt().equals(after.getCreatedAt())), eq(3));
+    }
+
+    @Test
+    void filterTrackingNumberPage_ShouldRejectInvalidCursorAndLimit() {
+        assertThrows(IllegalArgumentException.class, () -> trackingNumberService.filterTrackingNumberPage(null,
+                null, null, null, null, null, null, "not a cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> trackingNumberService.filterTrackingNumberPage(null,
+                null, null, null, null, null, null, null, 51));
     }
 
     @Test
@@ -177,7 +409,7 @@ class TrackingNumberServiceImplTest {
                 "Test Customer"
         );
 
-        when(trackingNumberRepository.save(any(TrackingNumber.class)))
+        when(trackingNumberStore.save(any(TrackingNumber.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
@@ -203,7 +435,7 @@ class TrackingNumberServiceImplTest {
         TrackingNumberRequest request3 = new TrackingNumberRequest(
                 "MY", "SG", "1.0", customerId, "Special-Character_Name");
 
-        when(trackingNumberRepository.save(any(TrackingNumber.class)))
+        when(trackingNumberStore.save(any(TrackingNumber.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
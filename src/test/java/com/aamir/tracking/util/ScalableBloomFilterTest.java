@@ -0,0 +1,68 @@
+package com.aamir.tracking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void mightContain_ShouldKeepEveryKeyAndTheFalsePositiveRateWhileGrowing() {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("MYSG" + i);
+        }
+
+        // Then
+        assertTrue(filter.stageCount() > 1, "Filter should grow past its initial capacity");
+        assertEquals(20_000, filter.count(), "Every added key should be counted");
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(filter.mightContain("MYSG" + i), "Added key should never be reported absent: MYSG" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("SGMY" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000, "False positive rate should stay below 1%, was " + falsePositives
+                + " in 100000");
+        assertTrue(filter.expectedFalsePositiveRate() < 0.01, "Expected false positive rate should stay below 1%");
+    }
+
+    @Test
+    void readFrom_ShouldRestoreTheWrittenFilter() throws IOException {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.001);
+        for (int i = 0; i < 500; i++) {
+            filter.add("MYSG" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        // When
+        ScalableBloomFilter restored = ScalableBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Then
+        assertEquals(filter.count(), restored.count(), "Restored filter should keep the count");
+        assertEquals(filter.stageCount(), restored.stageCount(), "Restored filter should keep its stages");
+        assertEquals(0.001, restored.getFalsePositiveRate(), "Restored filter should keep its settings");
+        for (int i = 0; i < 500; i++) {
+            assertTrue(restored.mightContain("MYSG" + i), "Restored filter should hold every key");
+        }
+        restored.add("MYSG500");
+        assertTrue(restored.mightContain("MYSG500"), "Restored filter should accept new keys");
+        assertThrows(IOException.class, () -> ScalableBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(new byte[16]))), "Other data should be rejected");
+    }
+}
@@ -0,0 +1,113 @@
+package com.aamir.tracking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final String PATTERN = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final AtomicLong clock = new AtomicLong(EPOCH.toEpochMilli() + 1_000);
+
+    private SnowflakeIdGenerator generator(int sequenceBits) {
+        return SnowflakeIdGenerator.builder()
+                .withLanePrefixes(new String[]{"MYSG", "MY"})
+                .withPattern(PATTERN)
+                .withIdLength(16)
+                .withEpoch(EPOCH)
+                .withTimestampBits(40)
+                .withInstanceBits(10)
+                .withSequenceBits(sequenceBits)
+                .withInstance(3)
+                .withClock(clock::get)
+                .build();
+    }
+
+    @Test
+    void next_ShouldRenderFixedWidthIdsThatSortByTime() {
+        // Given
+        SnowflakeIdGenerator generator = generator(12);
+        List<String> ids = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 5_000; i++) {
+            ids.add(generator.next(0));
+            if (i % 100 == 0) {
+                clock.addAndGet(7);
+            }
+        }
+
+        // Then
+        assertEquals(12, generator.width(), "62 bits should take twelve base-36 characters");
+        assertEquals(5_000, new HashSet<>(ids).size(), "Every ID should be unique");
+        for (int i = 1; i < ids.size(); i++) {
+            assertEquals(16, ids.get(i).length(), "IDs should be padded to a fixed width");
+            assertTrue(ids.get(i).startsWith("MYSG"), "IDs should start with the lane prefix");
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "Later IDs should sort after earlier ones");
+        }
+    }
+
+    @Test
+    void reserve_ShouldBorrowFromSequenceWhenClockMovesBackwards() {
+        // Given
+        SnowflakeIdGenerator generator = generator(12);
+        String before = generator.next(1);
+
+        // When
+        clock.addAndGet(-500);
+        String after = generator.next(1);
+
+        // Then
+        assertTrue(before.compareTo(after) < 0, "IDs after a clock step back should continue after earlier ones");
+    }
+
+    @Test
+    void reserve_ShouldCarryIntoNextMillisecondWhenSequenceOverflows() {
+        // Given: four values per millisecond and a clock that stands still
+        SnowflakeIdGenerator generator = generator(2);
+        Set<String> ids = new HashSet<>();
+
+        // When
+        long first = generator.reserve(3);
+        long next = generator.reserve(3);
+
+        // Then
+        assertEquals(first + 3, next, "The batch should continue after the previous one");
+        for (long value = first; value < next + 3; value++) {
+            ids.add(generator.format(0, value));
+        }
+        assertEquals(6, ids.size(), "Values carried into the next millisecond should stay unique");
+    }
+
+    @Test
+    void constructor_ShouldRejectLayoutThatDoesNotFitIdLength() {
+        assertThrows(IllegalStateException.class, () -> SnowflakeIdGenerator.builder()
+                .withLanePrefixes(new String[]{"MYSG"})
+                .withPattern("0123456789")
+                .withIdLength(16)
+                .withEpoch(EPOCH)
+                .withTimestampBits(41)
+                .withInstanceBits(10)
+                .withSequenceBits(12)
+                .build(), "63 bits need 19 decimal digits, more than fit behind the prefix");
+        assertThrows(IllegalStateException.class, () -> SnowflakeIdGenerator.builder()
+                .withLanePrefixes(new String[]{"MYSG"})
+                .withPattern(PATTERN)
+                .withIdLength(16)
+                .withEpoch(EPOCH)
+                .withTimestampBits(40)
+                .withInstanceBits(2)
+                .withSequenceBits(12)
+                .withInstance(4)
+                .build(), "Instance 4 does not fit in two bits");
+    }
+}
@@ -0,0 +1,55 @@
+package com.aamir.tracking.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingIdFormatterTest {
+
+    private static final String PATTERN = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private final TrackingIdFormatter formatter =
+            new TrackingIdFormatter(new String[]{"MYSG", "MY"}, "XYZ3", PATTERN, 16, 6);
+
+    @Test
+    void format_ShouldZeroPadSequenceBehindPrefix() {
+        assertEquals("MYSGXYZ3000130", formatter.format(0, 130), "Sequence should be padded to six digits");
+        assertEquals("MYXYZ3000000", formatter.format(1, 0), "Zero should render as padding only");
+    }
+
+    @Test
+    void format_ShouldMatchLegacyStringBuilderOutput() {
+        for (long sequence : new long[]{1, 9, 10, 99_999, 100_000, 999_999, 1_000_000, 12_345_678}) {
+            String number = Long.toString(sequence);
+            String expected = "MYSGXYZ3" + "0".repeat(Math.max(0, 6 - number.length())) + number;
+            assertEquals(expected, formatter.format(0, sequence), "Should render like the previous formatter");
+        }
+    }
+
+    @Test
+    void format_ShouldRejectIdLongerThanIdLength() {
+        assertThrows(IllegalStateException.class, () -> formatter.format(0, 123_456_789),
+                "Nine digits should not fit behind an eight character prefix");
+    }
+
+    @Test
+    void prefix_ShouldIncludeInstanceId() {
+        assertEquals("MYXYZ3", formatter.prefix(1), "Prefix should be country codes plus instance ID");
+    }
+
+    @Test
+    void constructor_ShouldTruncateLongPrefix() {
+        TrackingIdFormatter truncating = new TrackingIdFormatter(new String[]{"ABCDEFGH"}, "1", PATTERN, 16, 2);
+
+        assertEquals("ABCDEF105", truncating.format(0, 5), "Prefix should be cut to six characters");
+    }
+
+    @Test
+    void constructor_ShouldRejectCharactersOutsidePattern() {
+        assertThrows(IllegalStateException.class,
+                () -> new TrackingIdFormatter(new String[]{"MY"}, "x-1", PATTERN, 16, 4));
+        assertThrows(IllegalStateException.class,
+                () -> new TrackingIdFormatter(new String[]{"MY"}, "AB", "ABCDEFGHIJ", 16, 4),
+                "Pattern without digits cannot render sequence numbers");
+    }
+}